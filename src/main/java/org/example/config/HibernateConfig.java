@@ -2,6 +2,10 @@ package org.example.config;
 
 import jakarta.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.orm.jpa.JpaTransactionManager;
@@ -10,23 +14,47 @@ import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import java.util.HashMap;
+import java.util.Map;
+
 
 @Configuration
 @EnableTransactionManagement
+@EnableConfigurationProperties({PersistenceProperties.class, JpaProperties.class})
+@Slf4j
 public class HibernateConfig {
     @Bean
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(
+            DataSource dataSource,
+            PersistenceProperties persistenceProperties,
+            JpaProperties jpaProperties) {
         var em = new LocalContainerEntityManagerFactoryBean();
         em.setDataSource(dataSource);
         em.setPackagesToScan("org.example.entity");
         em.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        em.setJpaPropertyMap(hibernateProperties(persistenceProperties, jpaProperties));
+        log.info("Info: профиль persistence: {}", persistenceProperties.getProfile());
         return em;
     }
 
+    // Порядок приоритета: профиль < persistence.* < spring.jpa.properties.*
+    static Map<String, Object> hibernateProperties(PersistenceProperties persistenceProperties, JpaProperties jpaProperties) {
+        Map<String, Object> properties = new HashMap<>();
+        // Сортировка по сущностям дает длинные однотипные пачки INSERT/UPDATE
+        properties.put(AvailableSettings.ORDER_INSERTS, true);
+        properties.put(AvailableSettings.ORDER_UPDATES, true);
+        properties.put(AvailableSettings.BATCH_VERSIONED_DATA, true);
+        // Последовательность хранит нижнюю границу выданной пачки id (совместимо с DEFAULT nextval)
+        properties.put(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo");
+        properties.putAll(persistenceProperties.toHibernateProperties());
+        properties.putAll(jpaProperties.getProperties());
+        return properties;
+    }
+
     @Bean
     public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
         var txManager = new JpaTransactionManager();
         txManager.setEntityManagerFactory(emf);
         return txManager;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Готовые наборы настроек Hibernate под характер нагрузки
+@Getter
+@RequiredArgsConstructor
+public enum PersistenceProfile {
+
+    // Короткие транзакции веб-запросов: умеренные пачки, небольшие выборки
+    OLTP(50, 100, 2048, 16, true, false),
+    // Массовая загрузка: крупные пачки INSERT/UPDATE, мало разных запросов
+    BULK_LOAD(500, 1000, 256, 64, true, false),
+    // Отчеты: большие выборки, пакетная подгрузка связей, статистика запросов
+    REPORTING(50, 5000, 4096, 100, true, true);
+
+    private final int jdbcBatchSize;
+    private final int jdbcFetchSize;
+    private final int queryPlanCacheMaxSize;
+    private final int defaultBatchFetchSize;
+    private final boolean inClauseParameterPadding;
+    private final boolean generateStatistics;
+}
@@ -0,0 +1,42 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Профиль производительности persistence-слоя: persistence.profile=oltp|bulk-load|reporting,
+// отдельные значения профиля переопределяются свойствами persistence.*
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "persistence")
+public class PersistenceProperties {
+
+    private PersistenceProfile profile = PersistenceProfile.OLTP;
+
+    // null - значение берется из профиля
+    private Integer jdbcBatchSize;
+    private Integer jdbcFetchSize;
+    private Integer queryPlanCacheMaxSize;
+    private Integer defaultBatchFetchSize;
+    private Boolean inClauseParameterPadding;
+    private Boolean generateStatistics;
+
+    public Map<String, Object> toHibernateProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, valueOf(jdbcBatchSize, profile.getJdbcBatchSize()));
+        properties.put(AvailableSettings.STATEMENT_FETCH_SIZE, valueOf(jdbcFetchSize, profile.getJdbcFetchSize()));
+        properties.put(AvailableSettings.QUERY_PLAN_CACHE_MAX_SIZE, valueOf(queryPlanCacheMaxSize, profile.getQueryPlanCacheMaxSize()));
+        properties.put(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE, valueOf(defaultBatchFetchSize, profile.getDefaultBatchFetchSize()));
+        properties.put(AvailableSettings.IN_CLAUSE_PARAMETER_PADDING, valueOf(inClauseParameterPadding, profile.isInClauseParameterPadding()));
+        properties.put(AvailableSettings.GENERATE_STATISTICS, valueOf(generateStatistics, profile.isGenerateStatistics()));
+        return properties;
+    }
+
+    private static <T> T valueOf(T override, T profileValue) {
+        return override != null ? override : profileValue;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.config;
+
+import lombok.RequiredArgsConstructor;
+import org.example.security.JwtHandshakeInterceptor;
+import org.example.websocket.MessageHub;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+// Канал доставки новых сообщений: ws://host/ws/messages?token=<jwt>
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final MessageHub messageHub;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+
+    @Value("${websocket.allowed-origins:*}")
+    private String[] allowedOrigins;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(messageHub, "/ws/messages")
+                .addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOriginPatterns(allowedOrigins);
+    }
+}
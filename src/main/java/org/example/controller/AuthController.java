@@ -4,11 +4,14 @@ import lombok.RequiredArgsConstructor;
 import org.example.dto.JwtResponse;
 import org.example.dto.LoginDTO;
 import org.example.dto.RegisterDTO;
+import org.example.dto.UsernameAvailabilityDTO;
 import org.example.service.AuthService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -29,4 +32,10 @@ public class AuthController {
         JwtResponse jwtResponse = authService.login(loginDTO);
         return ResponseEntity.ok(jwtResponse);
     }
+
+    @GetMapping("/username-available")
+    public ResponseEntity<UsernameAvailabilityDTO> usernameAvailable(@RequestParam String username) {
+        boolean available = authService.isUsernameAvailable(username);
+        return ResponseEntity.ok(new UsernameAvailabilityDTO(username, available));
+    }
 }
@@ -2,8 +2,12 @@ package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.example.dto.ChatDTO;
-import org.example.security.CustomUserDetails;
+import org.example.dto.InboxChatDTO;
+import org.example.dto.MessageDTO;
+import org.example.dto.PageDTO;
+import org.example.security.UserPrincipal;
 import org.example.service.ChatService;
+import org.example.service.MessageService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -17,11 +21,12 @@ import java.util.Set;
 public class ChatController {
 
     private final ChatService chatService;
+    private final MessageService messageService;
 
     //Создать чат
     @PostMapping("/create/{user2}")
     public ResponseEntity<ChatDTO> createChat(@PathVariable Long user2, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId1 = userDetails.getId();
         
         ChatDTO chat = chatService.createChat(userId1, user2);
@@ -31,7 +36,7 @@ public class ChatController {
     //Создать групповой чат
     @PostMapping("/group")
     public ResponseEntity<ChatDTO> createGroupChat(@RequestBody Set<Long> participantsIds, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long currentUserId = userDetails.getId();
         
         // Добавляем текущего пользователя к участникам
@@ -44,17 +49,50 @@ public class ChatController {
     //Посмотреть чаты текущего пользователя
     @GetMapping("/my-chats")
     public ResponseEntity<List<ChatDTO>> getMyChats(Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         List<ChatDTO> chats = chatService.getUserChats(userId);
         return ResponseEntity.ok(chats);
     }
 
+    //Входящие: чаты с последним сообщением и числом непрочитанных, от недавних к старым
+    @GetMapping("/inbox")
+    public ResponseEntity<List<InboxChatDTO>> getInbox(Authentication authentication) {
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        Long userId = userDetails.getId();
+
+        List<InboxChatDTO> inbox = chatService.getInbox(userId);
+        return ResponseEntity.ok(inbox);
+    }
+
+    //Отметить сообщения чата прочитанными до указанного включительно
+    @PutMapping("/{id}/read/{messageId}")
+    public ResponseEntity<Void> markRead(@PathVariable("id") Long chatId, @PathVariable Long messageId, Authentication authentication) {
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        Long userId = userDetails.getId();
+
+        chatService.markRead(chatId, userId, messageId);
+        return ResponseEntity.noContent().build();
+    }
+
+    //История сообщений чата (постранично, от новых к старым)
+    @GetMapping("/{id}/messages")
+    public ResponseEntity<PageDTO<MessageDTO>> getChatMessages(@PathVariable("id") Long chatId,
+                                                               @RequestParam(required = false) String before,
+                                                               @RequestParam(required = false) Integer limit,
+                                                               Authentication authentication) {
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        Long userId = userDetails.getId();
+
+        PageDTO<MessageDTO> messages = messageService.getChatMessages(chatId, userId, before, limit);
+        return ResponseEntity.ok(messages);
+    }
+
     //Удалить чат
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteChat(@PathVariable("id") Long chatId, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long requesterId = userDetails.getId();
         
         chatService.deleteChat(chatId, requesterId);
@@ -2,7 +2,7 @@ package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.example.dto.CommentDTO;
-import org.example.security.CustomUserDetails;
+import org.example.security.UserPrincipal;
 import org.example.service.CommentService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -20,7 +20,7 @@ public class CommentController {
     //Добавить комментарий
     @PostMapping
     public ResponseEntity<CommentDTO> addComment(@RequestBody CommentDTO commentDTO, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long authorId = userDetails.getId();
         
         // Устанавливаем автора комментария
@@ -33,7 +33,7 @@ public class CommentController {
     //Удалить комментарий
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteComment(@PathVariable("id") Long commentId, @RequestParam Long postId, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         // Проверяем, что пользователь может удалить этот комментарий
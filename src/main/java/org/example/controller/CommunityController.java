@@ -2,8 +2,9 @@ package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.example.dto.CommunityDTO;
-import org.example.dto.UserDTO;
-import org.example.security.CustomUserDetails;
+import org.example.dto.CommunityMemberDTO;
+import org.example.dto.PageDTO;
+import org.example.security.UserPrincipal;
 import org.example.service.CommunityService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -21,7 +22,7 @@ public class CommunityController {
     //Создать сообщество
     @PostMapping("/create")
     public ResponseEntity<CommunityDTO> createCommunity(@RequestParam String name, @RequestParam String description, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long adminId = userDetails.getId();
         
         CommunityDTO create = communityService.createCommunity(adminId, name, description);
@@ -31,7 +32,7 @@ public class CommunityController {
     //Удалить сообщество
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<Void> deleteCommunity(@PathVariable("id") Long communityId, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long adminId = userDetails.getId();
         
         communityService.deleteCommunity(communityId, adminId);
@@ -41,7 +42,7 @@ public class CommunityController {
     //Присоединиться к сообществу
     @PostMapping("/join/{communityId}")
     public ResponseEntity<Void> joinCommunity(@PathVariable Long communityId, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         communityService.joinCommunity(communityId, userId);
@@ -51,7 +52,7 @@ public class CommunityController {
     //Покинуть сообщество
     @PostMapping("/leave/{communityId}")
     public ResponseEntity<Void> leaveCommunity(@PathVariable Long communityId, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         communityService.leaveCommunity(communityId, userId);
@@ -68,7 +69,7 @@ public class CommunityController {
     //Посмотреть сообщества текущего пользователя
     @GetMapping("/my-communities")
     public ResponseEntity<List<CommunityDTO>> getMyCommunities(Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         List<CommunityDTO> communities = communityService.getUserCommunities(userId);
@@ -77,15 +78,17 @@ public class CommunityController {
 
     //Посмотреть список участников
     @GetMapping("/members/{communityId}")
-    public ResponseEntity<List<UserDTO>> getCommunityMembers(@PathVariable Long communityId) {
-        List<UserDTO> members = communityService.getCommunityMembers(communityId);
+    public ResponseEntity<PageDTO<CommunityMemberDTO>> getCommunityMembers(@PathVariable Long communityId,
+                                                                          @RequestParam(required = false) Long after,
+                                                                          @RequestParam(required = false) Integer limit) {
+        PageDTO<CommunityMemberDTO> members = communityService.getCommunityMembers(communityId, after, limit);
         return  ResponseEntity.ok(members);
     }
 
     //Добавить пост в сообщество
     @PostMapping("/post/{communityId}")
     public ResponseEntity<Void> addPostToCommunity(@PathVariable Long communityId, @RequestParam String content, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         communityService.addPostToCommunity(communityId, userId, content);
@@ -95,7 +98,7 @@ public class CommunityController {
     //Обновить сообщество
     @PostMapping("/update/{communityId}")
     public ResponseEntity<CommunityDTO> updateCommunity(@PathVariable Long communityId, @RequestBody CommunityDTO updatedDTO, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long adminId = userDetails.getId();
         
         CommunityDTO update = communityService.updateCommunity(communityId, adminId, updatedDTO);
@@ -0,0 +1,28 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+import org.example.security.UserPrincipal;
+import org.example.service.TimelineService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/feed")
+@RequiredArgsConstructor
+public class FeedController {
+
+    private final TimelineService timelineService;
+
+    //Лента текущего пользователя: свои посты, посты друзей и сообществ
+    @GetMapping
+    public ResponseEntity<PageDTO<PostDTO>> getFeed(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit, Authentication authentication) {
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        Long userId = userDetails.getId();
+
+        PageDTO<PostDTO> feed = timelineService.getFeed(userId, cursor, limit);
+        return ResponseEntity.ok(feed);
+    }
+}
@@ -1,10 +1,15 @@
 package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.dto.FriendPathDTO;
 import org.example.dto.FriendshipDTO;
+import org.example.dto.MutualFriendsDTO;
+import org.example.dto.SuggestionDTO;
 import org.example.dto.UserDTO;
-import org.example.security.CustomUserDetails;
+import org.example.security.UserPrincipal;
+import org.example.service.FriendPathService;
 import org.example.service.FriendshipService;
+import org.example.service.SuggestionService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -18,10 +23,14 @@ public class FriendshipController {
 
     private final FriendshipService friendshipService;
 
+    private final SuggestionService suggestionService;
+
+    private final FriendPathService friendPathService;
+
     //Отправить запрос в друзья
     @PostMapping("/request/{receiver}")
     public ResponseEntity<FriendshipDTO> sendFriendRequest(@PathVariable("receiver") Long receiver, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long sender = userDetails.getId();
         
         FriendshipDTO request = friendshipService.sendFriendRequest(sender, receiver);
@@ -45,7 +54,7 @@ public class FriendshipController {
     //Удалить друга
     @DeleteMapping("/remove/{friendId}")
     public ResponseEntity<Void> removeFriend(@PathVariable Long friendId, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         friendshipService.removeFriend(userId, friendId);
@@ -55,17 +64,51 @@ public class FriendshipController {
     //Получить список друзей текущего пользователя
     @GetMapping("/my-friends")
     public ResponseEntity<List<UserDTO>> getMyFriends(Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         List<UserDTO> friends = friendshipService.getFriends(userId);
         return ResponseEntity.ok(friends);
     }
 
+    //Общие друзья текущего пользователя и другого пользователя
+    @GetMapping("/mutual/{otherUserId}")
+    public ResponseEntity<MutualFriendsDTO> getMutualFriends(@PathVariable Long otherUserId,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer limit,
+                                                             Authentication authentication) {
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        Long userId = userDetails.getId();
+
+        MutualFriendsDTO mutualFriends = friendshipService.getMutualFriends(userId, otherUserId, cursor, limit);
+        return ResponseEntity.ok(mutualFriends);
+    }
+
+    //Возможные друзья: друзья друзей и участники общих сообществ
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<SuggestionDTO>> getSuggestions(@RequestParam(required = false) Integer limit,
+                                                              Authentication authentication) {
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        Long userId = userDetails.getId();
+
+        List<SuggestionDTO> suggestions = suggestionService.getSuggestions(userId, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
+    //Кратчайшая цепочка друзей от текущего пользователя до другого
+    @GetMapping("/path/{userId}")
+    public ResponseEntity<FriendPathDTO> getPath(@PathVariable("userId") Long targetUserId, Authentication authentication) {
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        Long userId = userDetails.getId();
+
+        FriendPathDTO path = friendPathService.findPath(userId, targetUserId);
+        return ResponseEntity.ok(path);
+    }
+
     //Посмотреть входящие запросы в друзья
     @GetMapping("/pending")
     public ResponseEntity<List<FriendshipDTO>> getPendingRequests(Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         List<FriendshipDTO> pending = friendshipService.getPendingRequests(userId);
@@ -2,7 +2,8 @@ package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.example.dto.MessageDTO;
-import org.example.security.CustomUserDetails;
+import org.example.dto.MessageSyncDTO;
+import org.example.security.UserPrincipal;
 import org.example.service.MessageService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -20,7 +21,7 @@ public class MessageController {
     //Отправка сообщения
     @PostMapping("/send/{chat}")
     public ResponseEntity<MessageDTO> sendMessage(@PathVariable("chat") Long chatId, @RequestBody MessageDTO messageDTO, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long senderId = userDetails.getId();
         
         MessageDTO send = messageService.sendMessage(chatId, senderId, messageDTO);
@@ -36,7 +37,7 @@ public class MessageController {
     //Сообщение между текущим пользователем и другим
     @GetMapping("/between/{otherUserId}")
     public ResponseEntity<List<MessageDTO>> getMessageBetweenUsers(@PathVariable("otherUserId") Long otherUserId, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long currentUserId = userDetails.getId();
         
         List<MessageDTO> messageDTOS = messageService.getMessageBetweenUsers(currentUserId, otherUserId);
@@ -46,13 +47,25 @@ public class MessageController {
     //Все сообщения текущего пользователя
     @GetMapping("/my-messages")
     public ResponseEntity<List<MessageDTO>> getMyMessages(Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         List<MessageDTO> messageDTOS = messageService.getAllMessagesForUser(userId);
         return ResponseEntity.ok(messageDTOS);
     }
 
+    //Новые и удаленные сообщения во всех чатах текущего пользователя после водяного знака
+    @GetMapping("/sync")
+    public ResponseEntity<MessageSyncDTO> syncMessages(@RequestParam(required = false) String since,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       Authentication authentication) {
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        Long userId = userDetails.getId();
+
+        MessageSyncDTO sync = messageService.syncMessages(userId, since, limit);
+        return ResponseEntity.ok(sync);
+    }
+
     //Удалить сообщение
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteMessage(@PathVariable("id") Long messageId) {
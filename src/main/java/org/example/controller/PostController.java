@@ -1,8 +1,9 @@
 package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.dto.PageDTO;
 import org.example.dto.PostDTO;
-import org.example.security.CustomUserDetails;
+import org.example.security.UserPrincipal;
 import org.example.service.PostService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -20,7 +21,7 @@ public class PostController {
     //Создание поста текущим пользователем
     @PostMapping("/create")
     public ResponseEntity<PostDTO> createPostUser(@RequestBody PostDTO postDTO, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         PostDTO created = postService.createPostUser(userId, postDTO);
@@ -30,7 +31,7 @@ public class PostController {
     //Создание поста в сообществе
     @PostMapping("/community/{communityId}")
     public ResponseEntity<PostDTO> createPostCommunity(@PathVariable Long communityId, @RequestBody PostDTO postDTO, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         // Устанавливаем автора поста
@@ -49,7 +50,7 @@ public class PostController {
     //Список постов текущего пользователя
     @GetMapping("/my-posts")
     public ResponseEntity<List<PostDTO>> getMyPosts(Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         List<PostDTO> userPosts = postService.getPostsByUserId(userId);
@@ -63,17 +64,28 @@ public class PostController {
         return ResponseEntity.ok(communityPosts);
     }
 
-    //Посмотреть все посты
+    //Посмотреть все посты (постранично, от новых к старым)
     @GetMapping("/all")
-    public ResponseEntity<List<PostDTO>> getAllPosts() {
-        List<PostDTO> posts = postService.getAllPosts();
+    public ResponseEntity<PageDTO<PostDTO>> getAllPosts(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        PageDTO<PostDTO> posts = postService.getPostsPage(cursor, limit);
+        return ResponseEntity.ok(posts);
+    }
+
+    //Полнотекстовый поиск постов (по релевантности), можно ограничить сообществом или автором
+    @GetMapping("/search")
+    public ResponseEntity<PageDTO<PostDTO>> searchPosts(@RequestParam String q,
+                                                        @RequestParam(required = false) Long communityId,
+                                                        @RequestParam(required = false) Long authorId,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer limit) {
+        PageDTO<PostDTO> posts = postService.searchPosts(q, communityId, authorId, cursor, limit);
         return ResponseEntity.ok(posts);
     }
 
     //Обновить пост
     @PutMapping("/{id}")
     public ResponseEntity<PostDTO> updatePost(@PathVariable("id") Long postId, @RequestBody PostDTO updatedDTO, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         // Проверяем, что пользователь может редактировать этот пост
@@ -85,7 +97,7 @@ public class PostController {
     //Удаление поста
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletePost(@PathVariable("id") Long postId, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         // Проверяем, что пользователь может удалить этот пост
@@ -0,0 +1,31 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.dto.CommentDTO;
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+import org.example.service.ContentSearchService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/search")
+@RequiredArgsConstructor
+public class SearchController {
+
+    private final ContentSearchService contentSearchService;
+
+    //Быстрый поиск постов по индексу в памяти (AND/OR, префиксы слово*), от новых к старым
+    @GetMapping("/posts")
+    public ResponseEntity<PageDTO<PostDTO>> searchPosts(@RequestParam String q, @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        PageDTO<PostDTO> posts = contentSearchService.searchPosts(q, cursor, limit);
+        return ResponseEntity.ok(posts);
+    }
+
+    //Быстрый поиск комментариев по индексу в памяти, от новых к старым
+    @GetMapping("/comments")
+    public ResponseEntity<PageDTO<CommentDTO>> searchComments(@RequestParam String q, @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        PageDTO<CommentDTO> comments = contentSearchService.searchComments(q, cursor, limit);
+        return ResponseEntity.ok(comments);
+    }
+}
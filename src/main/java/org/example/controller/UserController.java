@@ -1,15 +1,14 @@
 package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.dto.PageDTO;
 import org.example.dto.UserDTO;
-import org.example.security.CustomUserDetails;
+import org.example.security.UserPrincipal;
 import org.example.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
@@ -27,7 +26,7 @@ public class UserController {
     //Получение текущего пользователя
     @GetMapping("/me")
     public ResponseEntity<UserDTO> getMyProfile(Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         UserDTO user = userService.getUserById(userId);
@@ -44,22 +43,25 @@ public class UserController {
     //Обновление текущего пользователя
     @PutMapping("/me")
     public ResponseEntity<UserDTO> updateMyProfile(@RequestBody UserDTO updatedDTO, Authentication authentication) {
-        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
         Long userId = userDetails.getId();
         
         UserDTO updatedUser = userService.updateUser(userId, updatedDTO);
         return ResponseEntity.ok(updatedUser);
     }
 
-    //Поиск по имени
+    //Поиск по началу имени и фамилии без учета регистра (fuzzy=true - нечеткое совпадение), постранично
     @GetMapping("/search")
-    public ResponseEntity<List<UserDTO>> searchUsersByName(
+    public ResponseEntity<PageDTO<UserDTO>> searchUsersByName(
             @RequestParam(required = false) String firstName,
             @RequestParam(required = false) String lastName,
             @RequestParam(required = false) Integer age,
-            @RequestParam(required = false) String gender)
+            @RequestParam(required = false) String gender,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit)
     {
-        List<UserDTO> users = userService.searchUsers(firstName, lastName, age, gender);
+        PageDTO<UserDTO> users = userService.searchUsers(firstName, lastName, age, gender, fuzzy, cursor, limit);
         return ResponseEntity.ok(users);
     }
 }
@@ -14,4 +14,5 @@ public class CommunityDTO {
     private String description;
     private Long adminId;
     private LocalDateTime createdAt;
+    private long memberCount;
 }
\ No newline at end of file
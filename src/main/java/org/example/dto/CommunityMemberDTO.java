@@ -0,0 +1,15 @@
+package org.example.dto;
+
+import lombok.*;
+
+// Участник сообщества в списке: только поля для отображения, без ролей и профиля
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommunityMemberDTO {
+    private Long id;
+    private String username;
+    private String firstName;
+    private String lastName;
+}
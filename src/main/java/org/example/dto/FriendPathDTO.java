@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendPathDTO {
+    // false - цепочка не найдена в пределах глубины и бюджета поиска
+    private boolean found;
+    // Число связей в цепочке, null - цепочка не найдена
+    private Integer degree;
+    // Пользователи цепочки от текущего до целевого включительно
+    private List<UserDTO> path;
+}
@@ -0,0 +1,20 @@
+package org.example.dto;
+
+import lombok.*;
+import org.example.entity.enums.ChatType;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxChatDTO {
+    private Long chatId;
+    private ChatType type;
+    // null - в чате еще нет сообщений
+    private MessageDTO lastMessage;
+    private LocalDateTime lastActivityAt;
+    // Не больше ChatService.UNREAD_COUNT_CAP, клиент показывает его как "99+"
+    private long unreadCount;
+}
@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.*;
+import org.example.entity.enums.MessageEventType;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageEventDTO {
+    private Long eventId;
+    private MessageEventType type;
+    private Long chatId;
+    // null для CHAT_DELETED - клиент удаляет чат целиком вместе с сообщениями
+    private Long messageId;
+    // Только для CREATED; null, если сообщение уже удалено (событие DELETED идет следом)
+    private MessageDTO message;
+}
@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSyncDTO {
+    private List<MessageEventDTO> events;
+    // Передается как since в следующем запросе
+    private String watermark;
+    // true - событий больше, чем поместилось в ответ, запрос нужно повторить сразу
+    private boolean hasMore;
+}
@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MutualFriendsDTO {
+    // Общее число общих друзей, не только на текущей странице
+    private int count;
+    private List<UserDTO> items;
+    // Непрозрачный токен следующей страницы, null - страниц больше нет
+    private String nextCursor;
+}
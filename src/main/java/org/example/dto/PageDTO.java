@@ -0,0 +1,15 @@
+package org.example.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageDTO<T> {
+    private List<T> items;
+    // Непрозрачный токен следующей страницы, null - страниц больше нет
+    private String nextCursor;
+}
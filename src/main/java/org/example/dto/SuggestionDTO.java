@@ -0,0 +1,13 @@
+package org.example.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+    private UserDTO user;
+    private int mutualFriends;
+    private int sharedCommunities;
+}
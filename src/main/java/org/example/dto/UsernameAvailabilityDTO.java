@@ -0,0 +1,11 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UsernameAvailabilityDTO {
+    private String username;
+    private boolean available;
+}
@@ -18,12 +18,20 @@ import java.util.Set;
 @Builder
 public class Chat {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chats_seq")
+    @SequenceGenerator(name = "chats_seq", sequenceName = "chats_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
     private ChatType type;
 
+    // Канонический ключ пары для PRIVATE: меньший и больший id участников, у групповых чатов null
+    @Column(name = "min_user_id")
+    private Long minUserId;
+
+    @Column(name = "max_user_id")
+    private Long maxUserId;
+
     @ManyToMany
     @JoinTable(
             name = "chat_participants",
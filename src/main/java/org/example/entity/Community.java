@@ -18,7 +18,8 @@ import java.util.Set;
 @Builder
 public class Community {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "communities_seq")
+    @SequenceGenerator(name = "communities_seq", sequenceName = "communities_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -45,6 +46,11 @@ public class Community {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Поддерживается SQL-запросами вступления и выхода, поэтому не пишется из сущности:
+    // merge загруженного сообщества не затрет параллельно измененное значение
+    @Column(name = "member_count", insertable = false, updatable = false)
+    private long memberCount;
+
     @PrePersist
     public void prePersist() {
         createdAt = LocalDateTime.now();
@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 @Builder
 public class Friendship {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "friendships_seq")
+    @SequenceGenerator(name = "friendships_seq", sequenceName = "friendships_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -32,8 +33,17 @@ public class Friendship {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Канонический ключ пары: меньший и больший id из requester и receiver
+    @Column(name = "user_low")
+    private Long userLow;
+
+    @Column(name = "user_high")
+    private Long userHigh;
+
     @PrePersist
     public void prePersist() {
         createdAt = LocalDateTime.now();
+        userLow = Math.min(requester.getId(), receiver.getId());
+        userHigh = Math.max(requester.getId(), receiver.getId());
     }
 }
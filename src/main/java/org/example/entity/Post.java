@@ -16,7 +16,8 @@ import java.util.List;
 @Builder
 public class Post {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_seq")
+    @SequenceGenerator(name = "posts_seq", sequenceName = "posts_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -37,6 +38,10 @@ public class Post {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Номер правки текста: увеличивается при каждом изменении content, новый пост получает 0 из БД
+    @Column(name = "content_version", insertable = false)
+    private int contentVersion;
+
     @PrePersist
     public void prePersist() {
         createdAt = LocalDateTime.now();
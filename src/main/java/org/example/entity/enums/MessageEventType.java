@@ -0,0 +1,5 @@
+package org.example.entity.enums;
+
+public enum MessageEventType {
+    CREATED, DELETED, CHAT_DELETED
+}
@@ -0,0 +1,11 @@
+package org.example.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Публикуется при удалении сообщества, обрабатывается после коммита транзакции
+@Getter
+@AllArgsConstructor
+public class CommunityDeletedEvent {
+    private final Long communityId;
+}
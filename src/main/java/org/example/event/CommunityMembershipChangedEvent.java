@@ -0,0 +1,14 @@
+package org.example.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Публикуется при вступлении в сообщество и выходе из него, обрабатывается после коммита транзакции
+@Getter
+@AllArgsConstructor
+public class CommunityMembershipChangedEvent {
+    private final Long communityId;
+    private final Long userId;
+    // true - пользователь вступил, false - вышел
+    private final boolean member;
+}
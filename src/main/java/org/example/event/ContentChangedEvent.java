@@ -0,0 +1,17 @@
+package org.example.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.search.ContentType;
+
+// Публикуется при создании, изменении и удалении постов и комментариев, обрабатывается после коммита транзакции
+@Getter
+@AllArgsConstructor
+public class ContentChangedEvent {
+    private final ContentType type;
+    private final Long id;
+    // null - документ создан
+    private final String oldContent;
+    // null - документ удален
+    private final String newContent;
+}
@@ -0,0 +1,12 @@
+package org.example.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Публикуется после создания запроса в друзья, обрабатывается после коммита транзакции
+@Getter
+@AllArgsConstructor
+public class FriendRequestSentEvent {
+    private final Long requesterId;
+    private final Long receiverId;
+}
@@ -0,0 +1,14 @@
+package org.example.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Публикуется при принятии запроса в друзья и удалении дружбы, обрабатывается после коммита транзакции
+@Getter
+@AllArgsConstructor
+public class FriendshipChangedEvent {
+    private final Long userId1;
+    private final Long userId2;
+    // true - пользователи стали друзьями, false - дружба удалена
+    private final boolean friends;
+}
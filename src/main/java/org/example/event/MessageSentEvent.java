@@ -0,0 +1,15 @@
+package org.example.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.dto.MessageDTO;
+
+import java.util.List;
+
+// Публикуется при отправке сообщения, доставляется участникам чата после коммита транзакции
+@Getter
+@AllArgsConstructor
+public class MessageSentEvent {
+    private final MessageDTO message;
+    private final List<Long> recipientIds;
+}
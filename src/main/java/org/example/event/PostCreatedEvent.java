@@ -0,0 +1,16 @@
+package org.example.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Публикуется при создании поста, обрабатывается после коммита транзакции
+@Getter
+@AllArgsConstructor
+public class PostCreatedEvent {
+    private final Long postId;
+    private final Long authorId;
+    private final Long communityId;
+    private final LocalDateTime createdAt;
+}
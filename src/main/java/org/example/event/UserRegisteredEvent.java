@@ -0,0 +1,12 @@
+package org.example.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Публикуется при регистрации пользователя, обрабатывается после коммита транзакции
+@Getter
+@AllArgsConstructor
+public class UserRegisteredEvent {
+    private final Long userId;
+    private final String username;
+}
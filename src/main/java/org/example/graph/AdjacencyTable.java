@@ -0,0 +1,79 @@
+package org.example.graph;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Хэш-таблица с открытой адресацией: id пользователя -> отсортированный массив id друзей.
+// Чтение без блокировок и без выделения памяти; запись - только под блокировкой FriendGraph.
+// Ключ 0 означает пустую ячейку (id пользователей положительные), ключи не удаляются:
+// у пользователя без друзей остается пустой массив
+final class AdjacencyTable {
+
+    static final long[] EMPTY = new long[0];
+
+    private final AtomicLongArray keys;
+    private final AtomicReferenceArray<long[]> values;
+    private final int mask;
+    private int size;
+
+    AdjacencyTable(int expectedUsers) {
+        // Заполнение не больше половины - короткие цепочки проб
+        int capacity = Integer.highestOneBit(Math.max(expectedUsers, 8) * 2 - 1) << 1;
+        this.keys = new AtomicLongArray(capacity);
+        this.values = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    long[] get(long userId) {
+        for (int i = slot(userId); ; i = (i + 1) & mask) {
+            long key = keys.get(i);
+            if (key == userId) {
+                long[] friends = values.get(i);
+                return friends != null ? friends : EMPTY;
+            }
+            if (key == 0) {
+                return EMPTY;
+            }
+        }
+    }
+
+    // false - таблица заполнена, нужно перестроить ее с большей емкостью
+    boolean put(long userId, long[] friends) {
+        for (int i = slot(userId); ; i = (i + 1) & mask) {
+            long key = keys.get(i);
+            if (key == userId) {
+                values.set(i, friends);
+                return true;
+            }
+            if (key == 0) {
+                if ((size + 1) * 2 > keys.length()) {
+                    return false;
+                }
+                // Сначала значение, потом ключ: читатель не увидит ключ без списка друзей
+                values.set(i, friends);
+                keys.set(i, userId);
+                size++;
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    AdjacencyTable resized() {
+        AdjacencyTable copy = new AdjacencyTable(keys.length());
+        for (int i = 0; i < keys.length(); i++) {
+            long key = keys.get(i);
+            if (key != 0) {
+                copy.put(key, values.get(i));
+            }
+        }
+        return copy;
+    }
+
+    private int slot(long userId) {
+        return (int) ((userId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.graph;
+
+// Кандидаты второго круга по убыванию числа общих друзей: userIds[i] имеет mutualCounts[i] общих друзей
+public record Candidates(long[] userIds, int[] mutualCounts) {
+
+    public int size() {
+        return userIds.length;
+    }
+}
@@ -0,0 +1,297 @@
+package org.example.graph;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.example.event.FriendshipChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Граф дружбы в памяти процесса: для каждого пользователя отсортированный long[] id друзей (только ACCEPTED).
+// Строится при старте из friendships и обновляется после коммита принятия запроса и удаления дружбы.
+// Массивы не копируются при чтении и не должны изменяться вызывающим кодом
+@Slf4j
+@Component
+public class FriendGraph {
+
+    private static final int LOAD_BATCH = 50_000;
+    private static final int LOCK_STRIPES = 64;
+
+    private final EntityManager entityManager;
+    private final Object writeLock = new Object();
+    // События одной пары применяются по очереди, разных пар - параллельно
+    private final Object[] pairLocks = new Object[LOCK_STRIPES];
+    private volatile AdjacencyTable table = new AdjacencyTable(0);
+
+    public FriendGraph(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            pairLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        // Связи читаются порциями по id дружбы в примитивные массивы: в памяти нет списка
+        // из объектов-строк на весь граф, только по два long на связь
+        long[] requesters = new long[1024];
+        long[] receivers = new long[1024];
+        int edges = 0;
+        long after = 0;
+        List<?> rows;
+        do {
+            rows = entityManager.createNativeQuery(
+                            "SELECT id, requester_id, receiver_id FROM friendships WHERE status = 'ACCEPTED' AND id > :after ORDER BY id LIMIT :limit")
+                    .setParameter("after", after)
+                    .setParameter("limit", LOAD_BATCH)
+                    .getResultList();
+            if (edges + rows.size() > requesters.length) {
+                int capacity = Math.max(requesters.length * 2, edges + rows.size());
+                requesters = Arrays.copyOf(requesters, capacity);
+                receivers = Arrays.copyOf(receivers, capacity);
+            }
+            for (Object row : rows) {
+                Object[] columns = (Object[]) row;
+                after = ((Number) columns[0]).longValue();
+                requesters[edges] = ((Number) columns[1]).longValue();
+                receivers[edges] = ((Number) columns[2]).longValue();
+                edges++;
+            }
+        } while (rows.size() == LOAD_BATCH);
+
+        // Первый проход - степени вершин, второй - заполнение массивов
+        Map<Long, int[]> degrees = new HashMap<>();
+        for (int i = 0; i < edges; i++) {
+            degrees.computeIfAbsent(requesters[i], id -> new int[1])[0]++;
+            degrees.computeIfAbsent(receivers[i], id -> new int[1])[0]++;
+        }
+        Map<Long, long[]> adjacency = new HashMap<>(degrees.size() * 2);
+        degrees.forEach((userId, degree) -> adjacency.put(userId, new long[degree[0]]));
+        for (int i = 0; i < edges; i++) {
+            long requester = requesters[i];
+            long receiver = receivers[i];
+            adjacency.get(requester)[--degrees.get(requester)[0]] = receiver;
+            adjacency.get(receiver)[--degrees.get(receiver)[0]] = requester;
+        }
+
+        AdjacencyTable built = new AdjacencyTable(adjacency.size());
+        adjacency.forEach((userId, friends) -> built.put(userId, sortedDistinct(friends)));
+        synchronized (writeLock) {
+            table = built;
+        }
+        log.info("Info: граф дружбы загружен: {} пользователей, {} связей", built.size(), edges);
+    }
+
+    // Отсортированные id друзей, пустой массив - друзей нет
+    public long[] friendIds(long userId) {
+        return table.get(userId);
+    }
+
+    public int friendCount(long userId) {
+        return table.get(userId).length;
+    }
+
+    public boolean areFriends(long userId1, long userId2) {
+        return Arrays.binarySearch(table.get(userId1), userId2) >= 0;
+    }
+
+    public int mutualCount(long userId1, long userId2) {
+        return SortedLongs.intersectionSize(table.get(userId1), table.get(userId2));
+    }
+
+    // Не больше limit общих друзей с id больше after, по возрастанию id
+    public long[] mutualFriendIds(long userId1, long userId2, long after, int limit) {
+        long[] first = table.get(userId1);
+        long[] second = table.get(userId2);
+        long[] result = new long[Math.min(limit, Math.min(first.length, second.length))];
+        int found = SortedLongs.intersect(first, second, after, result);
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    // Друзья друзей с числом общих друзей, кроме самого пользователя, его друзей и excluded (отсортирован).
+    // Обходится не больше maxFriendsScanned друзей пользователя, подсчет распараллеливается в pool
+    public Candidates secondDegree(long userId, long[] excluded, int maxFriendsScanned, int limit, ForkJoinPool pool) {
+        AdjacencyTable snapshot = table;
+        long[] friends = snapshot.get(userId);
+        if (friends.length == 0) {
+            return new Candidates(AdjacencyTable.EMPTY, new int[0]);
+        }
+        int scanned = Math.min(friends.length, maxFriendsScanned);
+        LongIntCounter counts = pool.invoke(new SecondDegreeTask(snapshot, userId, friends, excluded, 0, scanned));
+        return counts.top(limit);
+    }
+
+    // Кратчайшая цепочка друзей от from до to включительно двунаправленным BFS или null,
+    // если цепочки нет длиной не больше maxDepth связей или поиск посетил больше maxVisited пользователей
+    public long[] shortestPath(long from, long to, int maxDepth, int maxVisited) {
+        if (from == to) {
+            return new long[]{from};
+        }
+        AdjacencyTable snapshot = table;
+        // Для каждого посещенного пользователя хранится предшественник, у стартовых - 0
+        LongLongMap forward = new LongLongMap(64);
+        LongLongMap backward = new LongLongMap(64);
+        forward.putIfAbsent(from, 0);
+        backward.putIfAbsent(to, 0);
+        long[] forwardFrontier = {from};
+        long[] backwardFrontier = {to};
+        int forwardSize = 1;
+        int backwardSize = 1;
+
+        for (int depth = 0; depth < maxDepth && forwardSize > 0 && backwardSize > 0; depth++) {
+            // Расширяется меньший фронт: каждый уровень добавляет к длине цепочки одну связь
+            boolean expandForward = forwardSize <= backwardSize;
+            LongLongMap visited = expandForward ? forward : backward;
+            LongLongMap other = expandForward ? backward : forward;
+            long[] frontier = expandForward ? forwardFrontier : backwardFrontier;
+            int frontierSize = expandForward ? forwardSize : backwardSize;
+
+            long[] next = new long[Math.max(16, frontierSize)];
+            int nextSize = 0;
+            for (int i = 0; i < frontierSize; i++) {
+                long node = frontier[i];
+                for (long neighbour : snapshot.get(node)) {
+                    if (!visited.putIfAbsent(neighbour, node)) {
+                        continue;
+                    }
+                    if (other.containsKey(neighbour)) {
+                        return joinPath(forward, backward, neighbour);
+                    }
+                    if (forward.size() + backward.size() > maxVisited) {
+                        return null;
+                    }
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, next.length * 2);
+                    }
+                    next[nextSize++] = neighbour;
+                }
+            }
+            if (expandForward) {
+                forwardFrontier = next;
+                forwardSize = nextSize;
+            } else {
+                backwardFrontier = next;
+                backwardSize = nextSize;
+            }
+        }
+        return null;
+    }
+
+    public void addFriendship(long userId1, long userId2) {
+        synchronized (writeLock) {
+            update(userId1, withFriend(table.get(userId1), userId2));
+            update(userId2, withFriend(table.get(userId2), userId1));
+        }
+    }
+
+    public void removeFriendship(long userId1, long userId2) {
+        synchronized (writeLock) {
+            update(userId1, withoutFriend(table.get(userId1), userId2));
+            update(userId2, withoutFriend(table.get(userId2), userId1));
+        }
+    }
+
+    // Граф обновляется раньше остальных слушателей, которые читают его после того же коммита.
+    // Слушатели принятия и удаления одной пары выполняются в произвольном порядке, не обязательно
+    // в порядке коммитов, поэтому связь ставится по закоммиченному статусу пары, а не по событию:
+    // слушатели пары идут по очереди, и последний из них видит последний коммит
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        long low = Math.min(event.getUserId1(), event.getUserId2());
+        long high = Math.max(event.getUserId1(), event.getUserId2());
+        synchronized (pairLocks[(int) Math.floorMod(low * 31 + high, LOCK_STRIPES)]) {
+            if (acceptedInDatabase(low, high)) {
+                addFriendship(low, high);
+            } else {
+                removeFriendship(low, high);
+            }
+        }
+    }
+
+    private boolean acceptedInDatabase(long low, long high) {
+        return !entityManager.createNativeQuery(
+                        "SELECT 1 FROM friendships WHERE user_low = :low AND user_high = :high AND status = 'ACCEPTED'")
+                .setParameter("low", low)
+                .setParameter("high", high)
+                .getResultList()
+                .isEmpty();
+    }
+
+    // Вызывается под writeLock
+    private void update(long userId, long[] friends) {
+        AdjacencyTable current = table;
+        if (!current.put(userId, friends)) {
+            AdjacencyTable grown = current.resized();
+            grown.put(userId, friends);
+            table = grown;
+        }
+    }
+
+    // Цепочка от начала прямого поиска через meeting до начала обратного
+    private static long[] joinPath(LongLongMap forward, LongLongMap backward, long meeting) {
+        int forwardLength = 0;
+        for (long node = meeting; node != 0; node = forward.get(node, 0)) {
+            forwardLength++;
+        }
+        int backwardLength = 0;
+        for (long node = backward.get(meeting, 0); node != 0; node = backward.get(node, 0)) {
+            backwardLength++;
+        }
+        long[] path = new long[forwardLength + backwardLength];
+        int position = forwardLength - 1;
+        for (long node = meeting; node != 0; node = forward.get(node, 0)) {
+            path[position--] = node;
+        }
+        position = forwardLength;
+        for (long node = backward.get(meeting, 0); node != 0; node = backward.get(node, 0)) {
+            path[position++] = node;
+        }
+        return path;
+    }
+
+    private static long[] withFriend(long[] friends, long friendId) {
+        int position = Arrays.binarySearch(friends, friendId);
+        if (position >= 0) {
+            return friends;
+        }
+        int insertAt = -position - 1;
+        long[] result = new long[friends.length + 1];
+        System.arraycopy(friends, 0, result, 0, insertAt);
+        result[insertAt] = friendId;
+        System.arraycopy(friends, insertAt, result, insertAt + 1, friends.length - insertAt);
+        return result;
+    }
+
+    private static long[] withoutFriend(long[] friends, long friendId) {
+        int position = Arrays.binarySearch(friends, friendId);
+        if (position < 0) {
+            return friends;
+        }
+        long[] result = new long[friends.length - 1];
+        System.arraycopy(friends, 0, result, 0, position);
+        System.arraycopy(friends, position + 1, result, position, friends.length - position - 1);
+        return result;
+    }
+
+    // Дубликаты возможны, если в friendships две записи для одной пары
+    private static long[] sortedDistinct(long[] friends) {
+        Arrays.sort(friends);
+        int distinct = 0;
+        for (int i = 0; i < friends.length; i++) {
+            if (i == 0 || friends[i] != friends[i - 1]) {
+                friends[distinct++] = friends[i];
+            }
+        }
+        return distinct == friends.length ? friends : Arrays.copyOf(friends, distinct);
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.graph;
+
+import java.util.Arrays;
+
+// Счетчик long -> int с открытой адресацией без упаковки в объекты.
+// Ключ 0 означает пустую ячейку, id пользователей положительные
+final class LongIntCounter {
+
+    private long[] keys;
+    private int[] counts;
+    private int mask;
+    private int size;
+
+    LongIntCounter(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(expectedKeys, 8) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.counts = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    void add(long key, int delta) {
+        int i = slot(key);
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == 0) {
+            keys[i] = key;
+            if (++size * 2 > keys.length) {
+                counts[i] = delta;
+                grow();
+                return;
+            }
+        }
+        counts[i] += delta;
+    }
+
+    int get(long key) {
+        for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return counts[i];
+            }
+        }
+        return 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Сливает меньший счетчик в больший и возвращает больший
+    LongIntCounter merge(LongIntCounter other) {
+        LongIntCounter target = size >= other.size ? this : other;
+        LongIntCounter source = target == this ? other : this;
+        for (int i = 0; i < source.keys.length; i++) {
+            if (source.keys[i] != 0) {
+                target.add(source.keys[i], source.counts[i]);
+            }
+        }
+        return target;
+    }
+
+    // Не больше limit ключей с наибольшими значениями: по убыванию значения, при равенстве по возрастанию ключа
+    Candidates top(int limit) {
+        long[] ids = new long[size];
+        int n = 0;
+        for (long key : keys) {
+            if (key != 0) {
+                ids[n++] = key;
+            }
+        }
+        Arrays.sort(ids);
+        // Значение в старших 32 битах, обратный индекс в младших: сортировка long[] без объектов
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = ((long) get(ids[i]) << 32) | (n - 1 - i);
+        }
+        Arrays.sort(packed);
+
+        int resultSize = Math.min(limit, n);
+        long[] userIds = new long[resultSize];
+        int[] values = new int[resultSize];
+        for (int k = 0; k < resultSize; k++) {
+            long entry = packed[n - 1 - k];
+            userIds[k] = ids[n - 1 - (int) (entry & 0xFFFFFFFFL)];
+            values[k] = (int) (entry >>> 32);
+        }
+        return new Candidates(userIds, values);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int j = slot(oldKeys[i]);
+                while (keys[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                counts[j] = oldCounts[i];
+            }
+        }
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+// Подсчет общих друзей для друзей друзей: диапазон друзей пользователя делится пополам,
+// пока суммарное число обходимых связей больше LEAF_EDGES, счетчики листьев сливаются
+final class SecondDegreeTask extends RecursiveTask<LongIntCounter> {
+
+    static final int LEAF_EDGES = 16_384;
+
+    private final AdjacencyTable table;
+    private final long userId;
+    private final long[] friends;
+    private final long[] excluded;
+    private final int from;
+    private final int to;
+
+    SecondDegreeTask(AdjacencyTable table, long userId, long[] friends, long[] excluded, int from, int to) {
+        this.table = table;
+        this.userId = userId;
+        this.friends = friends;
+        this.excluded = excluded;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected LongIntCounter compute() {
+        int edges = 0;
+        for (int i = from; i < to && edges <= LEAF_EDGES; i++) {
+            edges += table.get(friends[i]).length;
+        }
+        if (edges <= LEAF_EDGES || to - from == 1) {
+            return countLeaf(edges);
+        }
+        int middle = (from + to) >>> 1;
+        SecondDegreeTask left = new SecondDegreeTask(table, userId, friends, excluded, from, middle);
+        SecondDegreeTask right = new SecondDegreeTask(table, userId, friends, excluded, middle, to);
+        left.fork();
+        LongIntCounter rightCounts = right.compute();
+        return left.join().merge(rightCounts);
+    }
+
+    private LongIntCounter countLeaf(int edges) {
+        LongIntCounter counter = new LongIntCounter(Math.min(edges, LEAF_EDGES));
+        for (int i = from; i < to; i++) {
+            for (long candidate : table.get(friends[i])) {
+                if (candidate != userId
+                        && Arrays.binarySearch(friends, candidate) < 0
+                        && Arrays.binarySearch(excluded, candidate) < 0) {
+                    counter.add(candidate, 1);
+                }
+            }
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.graph;
+
+// Пересечение отсортированных массивов id без дубликатов.
+// При сопоставимых размерах - слияние за O(n + m), при сильной разнице - галопирующий поиск
+// по большему массиву за O(n * log(m / n))
+final class SortedLongs {
+
+    // Во сколько раз больший массив должен превосходить меньший, чтобы галоп был выгоднее слияния
+    static final int GALLOP_RATIO = 16;
+
+    private SortedLongs() {
+    }
+
+    static int intersectionSize(long[] a, long[] b) {
+        return intersect(a, b, Long.MIN_VALUE, null, Integer.MAX_VALUE);
+    }
+
+    // Записывает в out по возрастанию не больше out.length общих элементов, строго больших after
+    static int intersect(long[] a, long[] b, long after, long[] out) {
+        return intersect(a, b, after, out, out.length);
+    }
+
+    private static int intersect(long[] a, long[] b, long after, long[] out, int limit) {
+        long[] small = a.length <= b.length ? a : b;
+        long[] large = small == a ? b : a;
+        if (small.length == 0 || limit == 0) {
+            return 0;
+        }
+        int i = after == Long.MIN_VALUE ? 0 : lowerBound(small, 0, after + 1);
+        int j = after == Long.MIN_VALUE ? 0 : lowerBound(large, 0, after + 1);
+        int found = 0;
+
+        if (large.length / small.length >= GALLOP_RATIO) {
+            for (; i < small.length && j < large.length; i++) {
+                long value = small[i];
+                j = gallop(large, j, value);
+                if (j < large.length && large[j] == value) {
+                    if (out != null) {
+                        out[found] = value;
+                    }
+                    if (++found == limit) {
+                        break;
+                    }
+                    j++;
+                }
+            }
+            return found;
+        }
+
+        while (i < small.length && j < large.length) {
+            long x = small[i];
+            long y = large[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                if (out != null) {
+                    out[found] = x;
+                }
+                if (++found == limit) {
+                    break;
+                }
+                i++;
+                j++;
+            }
+        }
+        return found;
+    }
+
+    // Первый индекс >= from, где array[index] >= key: экспоненциальный шаг, затем двоичный поиск
+    private static int gallop(long[] array, int from, long key) {
+        if (from >= array.length || array[from] >= key) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        while (low + step < array.length && array[low + step] < key) {
+            low += step;
+            step <<= 1;
+        }
+        return lowerBound(array, low + 1, key, Math.min(low + step, array.length));
+    }
+
+    private static int lowerBound(long[] array, int from, long key) {
+        return lowerBound(array, from, key, array.length);
+    }
+
+    private static int lowerBound(long[] array, int from, long key, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (array[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
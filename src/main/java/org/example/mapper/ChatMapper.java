@@ -16,6 +16,8 @@ public interface ChatMapper {
     ChatDTO toDTO(Chat chat);
 
     @Mapping(target = "participants", source = "participantsIds", qualifiedByName = "mapIdsToUsers")
+    @Mapping(target = "minUserId", ignore = true)
+    @Mapping(target = "maxUserId", ignore = true)
     Chat fromDTO(ChatDTO dto);
 
     @Named("mapUsersToIds")
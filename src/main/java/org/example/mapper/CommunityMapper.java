@@ -16,6 +16,7 @@ public interface CommunityMapper {
     @Mapping(target = "admin", source = "adminId", qualifiedByName = "mapToUser")
     @Mapping(target = "members", ignore = true)
     @Mapping(target = "posts", ignore = true)
+    @Mapping(target = "memberCount", ignore = true)
     Community fromDTO(CommunityDTO dto);
 
     @Named("mapToUser")
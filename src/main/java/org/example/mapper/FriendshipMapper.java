@@ -15,6 +15,8 @@ public interface FriendshipMapper {
 
     @Mapping(target = "requester", source = "requesterId", qualifiedByName = "mapToUser")
     @Mapping(target = "receiver", source = "receiverId", qualifiedByName = "mapToUser")
+    @Mapping(target = "userLow", ignore = true)
+    @Mapping(target = "userHigh", ignore = true)
     Friendship fromDTO(FriendshipDTO dto);
 
     @Named("mapToUser")
@@ -16,5 +16,6 @@ public interface PostMapper {
     @Mapping(target = "author", ignore = true)
     @Mapping(target = "community", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "contentVersion", ignore = true)
     Post fromDTO(PostDTO dto);
 }
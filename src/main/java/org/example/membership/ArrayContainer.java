@@ -0,0 +1,134 @@
+package org.example.membership;
+
+import java.util.Arrays;
+
+// Разреженный контейнер: отсортированный массив до ARRAY_MAX_SIZE значений
+final class ArrayContainer extends Container {
+
+    final char[] values;
+
+    ArrayContainer(char[] values) {
+        this.values = values;
+    }
+
+    @Override
+    int cardinality() {
+        return values.length;
+    }
+
+    @Override
+    boolean contains(char value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    @Override
+    Container add(char value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return this;
+        }
+        if (values.length == ARRAY_MAX_SIZE) {
+            return toBitmap().add(value);
+        }
+        int insertAt = -position - 1;
+        char[] result = new char[values.length + 1];
+        System.arraycopy(values, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(values, insertAt, result, insertAt + 1, values.length - insertAt);
+        return new ArrayContainer(result);
+    }
+
+    @Override
+    Container remove(char value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return this;
+        }
+        if (values.length == 1) {
+            return null;
+        }
+        char[] result = new char[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+        return new ArrayContainer(result);
+    }
+
+    @Override
+    Container and(Container other) {
+        char[] result = new char[values.length];
+        int size = 0;
+        if (other instanceof ArrayContainer array) {
+            char[] otherValues = array.values;
+            int i = 0;
+            int j = 0;
+            while (i < values.length && j < otherValues.length) {
+                if (values[i] < otherValues[j]) {
+                    i++;
+                } else if (values[i] > otherValues[j]) {
+                    j++;
+                } else {
+                    result[size++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+        } else {
+            for (char value : values) {
+                if (other.contains(value)) {
+                    result[size++] = value;
+                }
+            }
+        }
+        return size == 0 ? null : new ArrayContainer(Arrays.copyOf(result, size));
+    }
+
+    @Override
+    Container or(Container other) {
+        if (other instanceof BitmapContainer) {
+            return other.or(this);
+        }
+        char[] otherValues = ((ArrayContainer) other).values;
+        char[] result = new char[values.length + otherValues.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < values.length || j < otherValues.length) {
+            if (j == otherValues.length || (i < values.length && values[i] < otherValues[j])) {
+                result[size++] = values[i++];
+            } else if (i == values.length || values[i] > otherValues[j]) {
+                result[size++] = otherValues[j++];
+            } else {
+                result[size++] = values[i];
+                i++;
+                j++;
+            }
+        }
+        ArrayContainer union = new ArrayContainer(Arrays.copyOf(result, size));
+        return size > ARRAY_MAX_SIZE ? union.toBitmap() : union;
+    }
+
+    @Override
+    int fill(long high, long[] out, int offset) {
+        for (char value : values) {
+            out[offset++] = high | value;
+        }
+        return offset;
+    }
+
+    @Override
+    int fillDescending(long high, int below, long[] out, int offset, int limit) {
+        int position = below > Character.MAX_VALUE ? values.length : Arrays.binarySearch(values, (char) below);
+        for (int i = (position >= 0 ? position : -position - 1) - 1; i >= 0 && offset < limit; i--) {
+            out[offset++] = high | values[i];
+        }
+        return offset;
+    }
+
+    BitmapContainer toBitmap() {
+        long[] words = new long[BitmapContainer.WORDS];
+        for (char value : values) {
+            words[value >>> 6] |= 1L << value;
+        }
+        return new BitmapContainer(words, values.length);
+    }
+}
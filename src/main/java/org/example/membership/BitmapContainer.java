@@ -0,0 +1,152 @@
+package org.example.membership;
+
+// Плотный контейнер: битовая карта на 65536 значений
+final class BitmapContainer extends Container {
+
+    static final int WORDS = 1024;
+
+    final long[] words;
+    private final int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+        return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container add(char value) {
+        if (contains(value)) {
+            return this;
+        }
+        long[] result = words.clone();
+        result[value >>> 6] |= 1L << value;
+        return new BitmapContainer(result, cardinality + 1);
+    }
+
+    @Override
+    Container remove(char value) {
+        if (!contains(value)) {
+            return this;
+        }
+        if (cardinality - 1 <= ARRAY_MAX_SIZE) {
+            // Значение еще не снято, поэтому массив собирается без него
+            char[] values = new char[cardinality - 1];
+            int size = 0;
+            for (int word = 0; word < WORDS; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    char current = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+                    if (current != value) {
+                        values[size++] = current;
+                    }
+                    bits &= bits - 1;
+                }
+            }
+            return new ArrayContainer(values);
+        }
+        long[] result = words.clone();
+        result[value >>> 6] &= ~(1L << value);
+        return new BitmapContainer(result, cardinality - 1);
+    }
+
+    @Override
+    Container and(Container other) {
+        if (other instanceof ArrayContainer) {
+            return other.and(this);
+        }
+        long[] otherWords = ((BitmapContainer) other).words;
+        long[] result = new long[WORDS];
+        int size = 0;
+        for (int i = 0; i < WORDS; i++) {
+            result[i] = words[i] & otherWords[i];
+            size += Long.bitCount(result[i]);
+        }
+        return compact(result, size);
+    }
+
+    @Override
+    Container or(Container other) {
+        long[] result = words.clone();
+        if (other instanceof ArrayContainer array) {
+            int size = cardinality;
+            for (char value : array.values) {
+                long bit = 1L << value;
+                if ((result[value >>> 6] & bit) == 0) {
+                    result[value >>> 6] |= bit;
+                    size++;
+                }
+            }
+            return new BitmapContainer(result, size);
+        }
+        long[] otherWords = ((BitmapContainer) other).words;
+        int size = 0;
+        for (int i = 0; i < WORDS; i++) {
+            result[i] |= otherWords[i];
+            size += Long.bitCount(result[i]);
+        }
+        return new BitmapContainer(result, size);
+    }
+
+    @Override
+    int fill(long high, long[] out, int offset) {
+        for (int word = 0; word < WORDS; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                out[offset++] = high | ((long) word << 6) | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return offset;
+    }
+
+    @Override
+    int fillDescending(long high, int below, long[] out, int offset, int limit) {
+        if (below == 0) {
+            return offset;
+        }
+        int last = below - 1;
+        // В первом слове отбрасываются биты не меньше below
+        long bits = words[last >>> 6] & (-1L >>> (63 - (last & 63)));
+        for (int word = last >>> 6; ; ) {
+            while (bits != 0 && offset < limit) {
+                int bit = 63 - Long.numberOfLeadingZeros(bits);
+                out[offset++] = high | ((long) word << 6) | bit;
+                bits &= ~(1L << bit);
+            }
+            if (offset == limit || --word < 0) {
+                return offset;
+            }
+            bits = words[word];
+        }
+    }
+
+    // Пересечение может оказаться разреженным - тогда оно хранится массивом
+    private static Container compact(long[] words, int size) {
+        if (size == 0) {
+            return null;
+        }
+        if (size > ARRAY_MAX_SIZE) {
+            return new BitmapContainer(words, size);
+        }
+        char[] values = new char[size];
+        int position = 0;
+        for (int word = 0; word < WORDS; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                values[position++] = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return new ArrayContainer(values);
+    }
+}
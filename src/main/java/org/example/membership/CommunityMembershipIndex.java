@@ -0,0 +1,172 @@
+package org.example.membership;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.example.event.CommunityDeletedEvent;
+import org.example.event.CommunityMembershipChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Участники сообществ в памяти процесса: id сообщества -> сжатый битмап id пользователей.
+// Строится при старте из community_members и обновляется после коммита вступления, выхода и удаления сообщества.
+// Проверки и операции над множествами выполняются без запросов к БД
+@Slf4j
+@Component
+public class CommunityMembershipIndex {
+
+    private static final int LOAD_BATCH = 50_000;
+    private static final int LOCK_STRIPES = 64;
+
+    private final EntityManager entityManager;
+    private final Map<Long, RoaringBitmap> members = new ConcurrentHashMap<>();
+    // События одной пары (сообщество, пользователь) применяются по очереди, разных пар - параллельно
+    private final Object[] pairLocks = new Object[LOCK_STRIPES];
+
+    public CommunityMembershipIndex(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            pairLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        // Связи читаются порциями по первичному ключу (community_id, user_id): участники одного
+        // сообщества идут подряд, и в памяти одновременно только id текущего сообщества
+        Map<Long, RoaringBitmap> built = new HashMap<>();
+        long[] userIds = new long[1024];
+        int size = 0;
+        long currentCommunity = 0;
+        long afterCommunity = 0;
+        long afterUser = 0;
+        long links = 0;
+        List<?> rows;
+        do {
+            rows = entityManager.createNativeQuery("""
+                            SELECT community_id, user_id FROM community_members
+                            WHERE (community_id, user_id) > (:afterCommunity, :afterUser)
+                            ORDER BY community_id, user_id LIMIT :limit
+                            """)
+                    .setParameter("afterCommunity", afterCommunity)
+                    .setParameter("afterUser", afterUser)
+                    .setParameter("limit", LOAD_BATCH)
+                    .getResultList();
+            for (Object row : rows) {
+                Object[] columns = (Object[]) row;
+                afterCommunity = ((Number) columns[0]).longValue();
+                afterUser = ((Number) columns[1]).longValue();
+                if (afterCommunity != currentCommunity) {
+                    if (size > 0) {
+                        built.put(currentCommunity, RoaringBitmap.of(Arrays.copyOf(userIds, size)));
+                    }
+                    currentCommunity = afterCommunity;
+                    size = 0;
+                }
+                if (size == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, size * 2);
+                }
+                userIds[size++] = afterUser;
+                links++;
+            }
+        } while (rows.size() == LOAD_BATCH);
+        if (size > 0) {
+            built.put(currentCommunity, RoaringBitmap.of(Arrays.copyOf(userIds, size)));
+        }
+
+        members.clear();
+        members.putAll(built);
+        log.info("Info: индекс участников загружен: {} сообществ, {} связей", built.size(), links);
+    }
+
+    public boolean isMember(long communityId, long userId) {
+        return members(communityId).contains(userId);
+    }
+
+    public long memberCount(long communityId) {
+        return members(communityId).cardinality();
+    }
+
+    // Участники сообщества, пустой битмап - участников нет или сообщества нет
+    public RoaringBitmap members(long communityId) {
+        return members.getOrDefault(communityId, RoaringBitmap.EMPTY);
+    }
+
+    // Те из userIds, кто состоит в сообществе, в исходном порядке
+    public long[] filterMembers(long communityId, long[] userIds) {
+        RoaringBitmap bitmap = members(communityId);
+        long[] result = new long[userIds.length];
+        int size = 0;
+        for (long userId : userIds) {
+            if (bitmap.contains(userId)) {
+                result[size++] = userId;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    // Пользователи, состоящие во всех перечисленных сообществах
+    public RoaringBitmap intersection(long... communityIds) {
+        if (communityIds.length == 0) {
+            return RoaringBitmap.EMPTY;
+        }
+        // Начинаем с самого маленького сообщества - промежуточные результаты не больше него
+        RoaringBitmap[] bitmaps = new RoaringBitmap[communityIds.length];
+        for (int i = 0; i < communityIds.length; i++) {
+            bitmaps[i] = members(communityIds[i]);
+        }
+        Arrays.sort(bitmaps, (a, b) -> Long.compare(a.cardinality(), b.cardinality()));
+        RoaringBitmap result = bitmaps[0];
+        for (int i = 1; i < bitmaps.length && !result.isEmpty(); i++) {
+            result = result.and(bitmaps[i]);
+        }
+        return result;
+    }
+
+    // Пользователи, состоящие хотя бы в одном из перечисленных сообществ
+    public RoaringBitmap union(long... communityIds) {
+        RoaringBitmap result = RoaringBitmap.EMPTY;
+        for (long communityId : communityIds) {
+            result = result.or(members(communityId));
+        }
+        return result;
+    }
+
+    // Слушатели вступления и выхода одного пользователя выполняются в произвольном порядке, не обязательно
+    // в порядке коммитов, поэтому членство берется из закоммиченной строки community_members, а не из события:
+    // слушатели пары идут по очереди, и последний из них видит последний коммит
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMembershipChanged(CommunityMembershipChangedEvent event) {
+        long userId = event.getUserId();
+        synchronized (pairLocks[(int) Math.floorMod(event.getCommunityId() * 31 + userId, LOCK_STRIPES)]) {
+            boolean member = memberInDatabase(event.getCommunityId(), userId);
+            // compute атомарен для ключа: параллельные изменения одного сообщества не теряются
+            members.compute(event.getCommunityId(), (communityId, bitmap) -> {
+                RoaringBitmap current = bitmap != null ? bitmap : RoaringBitmap.EMPTY;
+                RoaringBitmap updated = member ? current.with(userId) : current.without(userId);
+                return updated.isEmpty() ? null : updated;
+            });
+        }
+    }
+
+    private boolean memberInDatabase(long communityId, long userId) {
+        return !entityManager.createNativeQuery(
+                        "SELECT 1 FROM community_members WHERE community_id = :communityId AND user_id = :userId")
+                .setParameter("communityId", communityId)
+                .setParameter("userId", userId)
+                .getResultList()
+                .isEmpty();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCommunityDeleted(CommunityDeletedEvent event) {
+        members.remove(event.getCommunityId());
+    }
+}
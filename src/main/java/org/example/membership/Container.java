@@ -0,0 +1,28 @@
+package org.example.membership;
+
+// Контейнер младших 16 бит значений одного старшего ключа. Контейнеры неизменяемы:
+// add и remove возвращают новый контейнер, поэтому битмапы могут разделять их без копирования
+abstract class Container {
+
+    // Больше этого числа значений битовая карта (8 КБ) компактнее отсортированного массива
+    static final int ARRAY_MAX_SIZE = 4096;
+
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    abstract Container add(char value);
+
+    // null - контейнер стал пустым
+    abstract Container remove(char value);
+
+    abstract Container and(Container other);
+
+    abstract Container or(Container other);
+
+    // Записывает значения по возрастанию, начиная с offset, возвращает позицию после последнего
+    abstract int fill(long high, long[] out, int offset);
+
+    // Записывает значения меньше below по убыванию, пока offset не дойдет до limit, возвращает позицию после последнего
+    abstract int fillDescending(long high, int below, long[] out, int offset, int limit);
+}
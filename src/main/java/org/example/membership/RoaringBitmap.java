@@ -0,0 +1,205 @@
+package org.example.membership;
+
+import java.util.Arrays;
+
+// Сжатое неизменяемое множество id в духе Roaring: значения делятся по старшим 16 битам
+// на контейнеры - отсортированный массив для разреженных и битовую карту для плотных.
+// with/without копируют только измененный контейнер, остальные разделяются с исходным битмапом.
+// Поддерживаются id от 1 до 2^32 - 1
+public final class RoaringBitmap {
+
+    public static final RoaringBitmap EMPTY = new RoaringBitmap(new char[0], new Container[0], 0);
+
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+
+    // Отсортированные старшие 16 бит и контейнеры младших 16 бит
+    private final char[] keys;
+    private final Container[] containers;
+    private final long cardinality;
+
+    private RoaringBitmap(char[] keys, Container[] containers, long cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    // Битмап из произвольного набора id, порядок и повторы не важны
+    public static RoaringBitmap of(long... values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        char[] keys = new char[sorted.length];
+        Container[] containers = new Container[sorted.length];
+        int size = 0;
+        long cardinality = 0;
+        int i = 0;
+        while (i < sorted.length) {
+            long high = high(checked(sorted[i]));
+            char[] low = new char[Math.min(sorted.length - i, 1 << 16)];
+            int count = 0;
+            for (; i < sorted.length && high(checked(sorted[i])) == high; i++) {
+                char value = (char) sorted[i];
+                if (count == 0 || low[count - 1] != value) {
+                    low[count++] = value;
+                }
+            }
+            ArrayContainer container = new ArrayContainer(Arrays.copyOf(low, count));
+            keys[size] = (char) high;
+            containers[size++] = count > Container.ARRAY_MAX_SIZE ? container.toBitmap() : container;
+            cardinality += count;
+        }
+        return new RoaringBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), cardinality);
+    }
+
+    public long cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(long value) {
+        if (value < 0 || value > MAX_VALUE) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, (char) high(value));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public RoaringBitmap with(long value) {
+        char high = (char) high(checked(value));
+        int index = Arrays.binarySearch(keys, high);
+        if (index >= 0) {
+            Container updated = containers[index].add((char) value);
+            if (updated == containers[index]) {
+                return this;
+            }
+            Container[] newContainers = containers.clone();
+            newContainers[index] = updated;
+            return new RoaringBitmap(keys, newContainers, cardinality + 1);
+        }
+        int insertAt = -index - 1;
+        char[] newKeys = new char[keys.length + 1];
+        Container[] newContainers = new Container[containers.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, insertAt);
+        System.arraycopy(containers, 0, newContainers, 0, insertAt);
+        newKeys[insertAt] = high;
+        newContainers[insertAt] = new ArrayContainer(new char[]{(char) value});
+        System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+        System.arraycopy(containers, insertAt, newContainers, insertAt + 1, containers.length - insertAt);
+        return new RoaringBitmap(newKeys, newContainers, cardinality + 1);
+    }
+
+    public RoaringBitmap without(long value) {
+        if (!contains(value)) {
+            return this;
+        }
+        int index = Arrays.binarySearch(keys, (char) high(value));
+        Container updated = containers[index].remove((char) value);
+        if (updated != null) {
+            Container[] newContainers = containers.clone();
+            newContainers[index] = updated;
+            return new RoaringBitmap(keys, newContainers, cardinality - 1);
+        }
+        char[] newKeys = new char[keys.length - 1];
+        Container[] newContainers = new Container[containers.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(containers, 0, newContainers, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+        System.arraycopy(containers, index + 1, newContainers, index, containers.length - index - 1);
+        return new RoaringBitmap(newKeys, newContainers, cardinality - 1);
+    }
+
+    public RoaringBitmap and(RoaringBitmap other) {
+        char[] newKeys = new char[Math.min(keys.length, other.keys.length)];
+        Container[] newContainers = new Container[newKeys.length];
+        int size = 0;
+        long newCardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container != null) {
+                    newKeys[size] = keys[i];
+                    newContainers[size++] = container;
+                    newCardinality += container.cardinality();
+                }
+                i++;
+                j++;
+            }
+        }
+        return new RoaringBitmap(Arrays.copyOf(newKeys, size), Arrays.copyOf(newContainers, size), newCardinality);
+    }
+
+    public RoaringBitmap or(RoaringBitmap other) {
+        char[] newKeys = new char[keys.length + other.keys.length];
+        Container[] newContainers = new Container[newKeys.length];
+        int size = 0;
+        long newCardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            Container container;
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                newKeys[size] = keys[i];
+                container = containers[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                newKeys[size] = other.keys[j];
+                container = other.containers[j++];
+            } else {
+                newKeys[size] = keys[i];
+                container = containers[i++].or(other.containers[j++]);
+            }
+            newContainers[size++] = container;
+            newCardinality += container.cardinality();
+        }
+        return new RoaringBitmap(Arrays.copyOf(newKeys, size), Arrays.copyOf(newContainers, size), newCardinality);
+    }
+
+    // Значения по возрастанию
+    public long[] toArray() {
+        long[] result = new long[(int) cardinality];
+        int offset = 0;
+        for (int i = 0; i < keys.length; i++) {
+            offset = containers[i].fill((long) keys[i] << 16, result, offset);
+        }
+        return result;
+    }
+
+    // До limit наибольших значений меньше before, по убыванию
+    public long[] descending(long before, int limit) {
+        long[] result = new long[(int) Math.min(limit, cardinality)];
+        if (before <= 0 || result.length == 0) {
+            return result;
+        }
+        long last = Math.min(before - 1, MAX_VALUE);
+        int index = Arrays.binarySearch(keys, (char) high(last));
+        int below = (int) (last & 0xFFFF) + 1;
+        if (index < 0) {
+            index = -index - 2;
+            below = 1 << 16;
+        }
+        int size = 0;
+        for (; index >= 0 && size < result.length; index--) {
+            size = containers[index].fillDescending((long) keys[index] << 16, below, result, size, result.length);
+            below = 1 << 16;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long high(long value) {
+        return value >>> 16;
+    }
+
+    private static long checked(long value) {
+        if (value <= 0 || value > MAX_VALUE) {
+            throw new IllegalArgumentException("Значение вне диапазона битмапа: " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Позиция в журнале событий, упорядоченном по (id транзакции, id события)
+@Getter
+@AllArgsConstructor
+public class EventCursor {
+    private final long xactId;
+    private final long id;
+}
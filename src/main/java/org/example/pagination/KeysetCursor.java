@@ -0,0 +1,14 @@
+package org.example.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Позиция в выборке, упорядоченной по (created_at, id)
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+    private final LocalDateTime timestamp;
+    private final Long id;
+}
@@ -0,0 +1,129 @@
+package org.example.pagination;
+
+import org.example.dto.PageDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+public final class Pagination {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private static final char SEPARATOR = '|';
+
+    private Pagination() {
+    }
+
+    // Размер страницы с учетом значения по умолчанию и верхней границы
+    public static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    public static String encode(LocalDateTime timestamp, Long id) {
+        String raw = timestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null или пустая строка - первая страница
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Некорректный курсор страницы");
+        }
+    }
+
+    // Курсор для выборок, упорядоченных только по id
+    public static String encodeId(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null или пустая строка - первая страница (0, id положительные)
+    public static long decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор страницы");
+        }
+    }
+
+    // Курсор для выборок, упорядоченных по релевантности и id. Double.toString восстанавливается без потерь
+    public static String encodeRank(double rank, Long id) {
+        String raw = Double.toString(rank) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null или пустая строка - первая страница
+    public static RankCursor decodeRank(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new RankCursor(
+                    Double.parseDouble(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Некорректный курсор страницы");
+        }
+    }
+
+    // Курсор журнала событий: id транзакции и id события
+    public static String encodeEvent(long xactId, long id) {
+        String raw = Long.toString(xactId) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null или пустая строка - начало журнала
+    public static EventCursor decodeEvent(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new EventCursor(0L, 0L);
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            EventCursor position = new EventCursor(
+                    Long.parseLong(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+            if (position.getXactId() < 0 || position.getId() < 0) {
+                throw new IllegalArgumentException("Некорректный водяной знак синхронизации");
+            }
+            return position;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Некорректный водяной знак синхронизации");
+        }
+    }
+
+    // rows выбраны с limit + 1, лишняя строка означает наличие следующей страницы
+    public static <E, T> PageDTO<T> page(List<E> rows, int limit, Function<E, T> mapper, Function<T, String> cursorOf) {
+        boolean hasNext = rows.size() > limit;
+        List<T> items = rows.stream()
+                .limit(limit)
+                .map(mapper)
+                .toList();
+        String nextCursor = hasNext ? cursorOf.apply(items.get(items.size() - 1)) : null;
+        return new PageDTO<>(items, nextCursor);
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Позиция в выборке, упорядоченной по (релевантность, id)
+@Getter
+@AllArgsConstructor
+public class RankCursor {
+    private final double rank;
+    private final Long id;
+}
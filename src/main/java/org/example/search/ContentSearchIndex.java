@@ -0,0 +1,173 @@
+package org.example.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.example.event.ContentChangedEvent;
+import org.example.membership.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Поисковый индекс постов и комментариев в памяти процесса. При старте читается снимок, сохраненный
+// при остановке, и дополняется документами, добавленными после него; без снимка или при расхождении
+// с таблицей индекс строится заново. Снимок удаляется после чтения: после аварийной остановки
+// изменения, не попавшие в снимок, не теряются - индекс просто перестраивается
+@Slf4j
+@Component
+public class ContentSearchIndex {
+
+    private static final int LOAD_BATCH = 10_000;
+    private static final int LOCK_STRIPES = 64;
+
+    private final EntityManager entityManager;
+    private final Path snapshotPath;
+    private final Map<ContentType, InvertedIndex> indexes = new EnumMap<>(ContentType.class);
+    // Изменения одного документа применяются по очереди, разные документы - параллельно
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public ContentSearchIndex(EntityManager entityManager,
+                              @Value("${search.index.snapshot-path:data/search-index.snapshot}") String snapshotPath) {
+        this.entityManager = entityManager;
+        this.snapshotPath = Path.of(snapshotPath);
+        for (ContentType type : ContentType.values()) {
+            indexes.put(type, new InvertedIndex());
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<ContentType, InvertedIndex> snapshot = readSnapshot();
+        for (ContentType type : ContentType.values()) {
+            InvertedIndex index = snapshot != null ? catchUp(type, snapshot.get(type)) : null;
+            if (index == null) {
+                InvertedIndex.Builder builder = new InvertedIndex.Builder();
+                forEachRow(type, 0, builder::add);
+                index = builder.build();
+                log.info("Info: поисковый индекс {} построен: {} документов, {} токенов", type, builder.documentCount(), index.postings().size());
+            }
+            indexes.put(type, index);
+        }
+    }
+
+    @PreDestroy
+    public void saveSnapshot() {
+        try {
+            IndexSnapshot.write(snapshotPath, indexes);
+            log.info("Info: снимок поискового индекса сохранен в {}", snapshotPath);
+        } catch (IOException e) {
+            log.error("Error: не удалось сохранить снимок поискового индекса: {}", e.getMessage());
+        }
+    }
+
+    // До limit самых новых документов с id меньше before, подходящих под запрос
+    public long[] search(ContentType type, SearchQuery query, long before, int limit) {
+        return indexes.get(type).search(query, before, limit);
+    }
+
+    // Слушатели разных транзакций выполняются в произвольном порядке, и пара (old, new) из события может
+    // прийти раньше пары предыдущей правки. Поэтому с документа снимаются токены обоих текстов события,
+    // а ставятся токены закоммиченной строки: какой бы слушатель ни выполнился последним, он видит
+    // последнюю правку. Удаленная строка уже не вернется и не перечитывается
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onContentChanged(ContentChangedEvent event) {
+        long id = event.getId();
+        Set<String> stale = Tokenizer.tokens(event.getOldContent());
+        stale.addAll(Tokenizer.tokens(event.getNewContent()));
+        synchronized (locks[(int) Math.floorMod(id, LOCK_STRIPES)]) {
+            Object[] row = event.getNewContent() != null ? readRow(event.getType(), id) : null;
+            indexes.get(event.getType()).reindex(id, stale,
+                    row != null ? (String) row[0] : null, row != null ? ((Number) row[1]).intValue() : 0);
+        }
+    }
+
+    private Map<ContentType, InvertedIndex> readSnapshot() {
+        try {
+            Map<ContentType, InvertedIndex> snapshot = IndexSnapshot.read(snapshotPath);
+            Files.deleteIfExists(snapshotPath);
+            return snapshot;
+        } catch (IOException e) {
+            log.error("Error: снимок поискового индекса не прочитан, индекс будет построен заново: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Снимок годится, если после него в таблицу только добавлялись строки: они индексируются,
+    // иначе (удаления, строки с меньшими id, правки) - null, индекс строится заново.
+    // Номер правки строки только растет, поэтому при том же наборе строк правка после снимка
+    // меняет число отредактированных строк или сумму их номеров
+    private InvertedIndex catchUp(ContentType type, InvertedIndex index) {
+        RoaringBitmap documents = index.documents();
+        long[] last = documents.descending(Long.MAX_VALUE, 1);
+        long maxId = last.length == 0 ? 0 : last[0];
+
+        Object[] stats = (Object[]) entityManager.createNativeQuery(
+                        "SELECT COUNT(*), COUNT(*) FILTER (WHERE id > :maxId), "
+                                + "COUNT(*) FILTER (WHERE id <= :maxId AND content_version > 0), "
+                                + "COALESCE(SUM(content_version) FILTER (WHERE id <= :maxId), 0) FROM " + table(type))
+                .setParameter("maxId", maxId)
+                .getSingleResult();
+        long total = ((Number) stats[0]).longValue();
+        long added = ((Number) stats[1]).longValue();
+        long edited = ((Number) stats[2]).longValue();
+        long versionSum = ((Number) stats[3]).longValue();
+        Map<Long, Integer> versions = index.versions();
+        if (total - added != documents.cardinality() || edited != versions.size()
+                || versionSum != versions.values().stream().mapToLong(Integer::longValue).sum()) {
+            log.info("Info: снимок поискового индекса {} устарел, индекс будет построен заново", type);
+            return null;
+        }
+
+        if (added > 0) {
+            forEachRow(type, maxId, (id, content, version) -> index.reindex(id, Set.of(), content, version));
+        }
+        log.info("Info: поисковый индекс {} прочитан из снимка: {} документов, добавлено {}", type, index.documents().cardinality(), added);
+        return index;
+    }
+
+    // Строки с id больше after порциями по id: в памяти одновременно не больше LOAD_BATCH текстов
+    private void forEachRow(ContentType type, long after, RowConsumer consumer) {
+        List<?> rows;
+        do {
+            rows = entityManager.createNativeQuery("SELECT id, content, content_version FROM " + table(type)
+                            + " WHERE id > :after ORDER BY id LIMIT :limit")
+                    .setParameter("after", after)
+                    .setParameter("limit", LOAD_BATCH)
+                    .getResultList();
+            for (Object row : rows) {
+                Object[] columns = (Object[]) row;
+                after = ((Number) columns[0]).longValue();
+                consumer.accept(after, (String) columns[1], ((Number) columns[2]).intValue());
+            }
+        } while (rows.size() == LOAD_BATCH);
+    }
+
+    // Текст и номер правки строки после коммита, null - строки нет
+    private Object[] readRow(ContentType type, long id) {
+        List<?> rows = entityManager.createNativeQuery("SELECT content, content_version FROM " + table(type) + " WHERE id = :id")
+                .setParameter("id", id)
+                .getResultList();
+        return rows.isEmpty() ? null : (Object[]) rows.get(0);
+    }
+
+    private interface RowConsumer {
+        void accept(long id, String content, int version);
+    }
+
+    private static String table(ContentType type) {
+        return type == ContentType.POST ? "posts" : "comments";
+    }
+}
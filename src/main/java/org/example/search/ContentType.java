@@ -0,0 +1,7 @@
+package org.example.search;
+
+// Вид текста в поисковом индексе: у постов и комментариев собственные последовательности id
+public enum ContentType {
+    POST,
+    COMMENT
+}
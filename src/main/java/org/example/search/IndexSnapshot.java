@@ -0,0 +1,169 @@
+package org.example.search;
+
+import org.example.membership.RoaringBitmap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+// Снимок индексов в файле: при старте файл отображается в память и читается без повторной токенизации текстов.
+// Формат: MAGIC, VERSION, затем для каждого ContentType - список документов, номера правок
+// отредактированных документов, число токенов и пары (токен в UTF-8, список id).
+// Списки id - число значений и разности соседних id в varint, номера правок - число пар и пары (id, номер) в varint
+final class IndexSnapshot {
+
+    private static final int MAGIC = 0x53494458;
+    private static final int VERSION = 2;
+
+    private IndexSnapshot() {
+    }
+
+    // Файл пишется во временный и переносится на место целиком: оборванная запись не оставляет битого снимка
+    static void write(Path path, Map<ContentType, InvertedIndex> indexes) throws IOException {
+        Sink sink = new Sink();
+        sink.writeInt(MAGIC);
+        sink.writeInt(VERSION);
+        for (ContentType type : ContentType.values()) {
+            InvertedIndex index = indexes.get(type);
+            sink.writeIds(index.documents());
+            sink.writeVersions(index.versions());
+            Map<String, RoaringBitmap> postings = Map.copyOf(index.postings());
+            sink.writeVarLong(postings.size());
+            for (Map.Entry<String, RoaringBitmap> entry : postings.entrySet()) {
+                byte[] token = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                sink.writeVarLong(token.length);
+                sink.write(token, 0, token.length);
+                sink.writeIds(entry.getValue());
+            }
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sink.size());
+            buffer.put(sink.bytes(), 0, sink.size());
+            buffer.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // null - снимка нет
+    static Map<ContentType, InvertedIndex> read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Неизвестный формат снимка индекса");
+            }
+            Map<ContentType, InvertedIndex> indexes = new EnumMap<>(ContentType.class);
+            for (ContentType type : ContentType.values()) {
+                RoaringBitmap documents = readIds(buffer);
+                Map<Long, Integer> versions = readVersions(buffer);
+                int tokenCount = (int) readVarLong(buffer);
+                Map<String, RoaringBitmap> postings = new HashMap<>(tokenCount * 2);
+                for (int i = 0; i < tokenCount; i++) {
+                    byte[] token = new byte[(int) readVarLong(buffer)];
+                    buffer.get(token);
+                    postings.put(new String(token, StandardCharsets.UTF_8), readIds(buffer));
+                }
+                indexes.put(type, InvertedIndex.of(postings, documents, versions));
+            }
+            return indexes;
+        } catch (RuntimeException e) {
+            // Обрезанный или испорченный файл
+            throw new IOException("Снимок индекса поврежден", e);
+        }
+    }
+
+    private static RoaringBitmap readIds(ByteBuffer buffer) {
+        long[] ids = new long[(int) readVarLong(buffer)];
+        long previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            previous += readVarLong(buffer);
+            ids[i] = previous;
+        }
+        return RoaringBitmap.of(ids);
+    }
+
+    private static Map<Long, Integer> readVersions(ByteBuffer buffer) {
+        int count = (int) readVarLong(buffer);
+        Map<Long, Integer> versions = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            versions.put(readVarLong(buffer), (int) readVarLong(buffer));
+        }
+        return versions;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte current = buffer.get();
+            value |= (long) (current & 0x7F) << shift;
+            if (current >= 0) {
+                return value;
+            }
+        }
+    }
+
+    // Буфер записи, отдающий свой массив без копирования
+    private static final class Sink extends ByteArrayOutputStream {
+
+        Sink() {
+            super(1 << 16);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeVersions(Map<Long, Integer> versions) {
+            Map<Long, Integer> copy = Map.copyOf(versions);
+            writeVarLong(copy.size());
+            copy.forEach((id, version) -> {
+                writeVarLong(id);
+                writeVarLong(version);
+            });
+        }
+
+        void writeIds(RoaringBitmap bitmap) {
+            long[] ids = bitmap.toArray();
+            writeVarLong(ids.length);
+            long previous = 0;
+            for (long id : ids) {
+                writeVarLong(id - previous);
+                previous = id;
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.search;
+
+import org.example.membership.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Инвертированный индекс одного вида текста: токен -> сжатый битмап id документов.
+// Токены хранятся отсортированными, поэтому префикс - это непрерывный диапазон ключей.
+// Битмапы неизменяемы и заменяются целиком, чтение идет без блокировок
+final class InvertedIndex {
+
+    // Сколько токенов разворачивается из одного префикса: короткий префикс не должен обходить весь словарь
+    static final int MAX_PREFIX_EXPANSIONS = 512;
+
+    private final ConcurrentSkipListMap<String, RoaringBitmap> postings;
+    // Все проиндексированные документы, в том числе без токенов - для проверки снимка при старте
+    private final AtomicReference<RoaringBitmap> documents;
+    // Номера правок (content_version) отредактированных документов: по ним при старте видно,
+    // правились ли строки после снимка. Неправленые документы (номер 0) не хранятся
+    private final ConcurrentHashMap<Long, Integer> versions;
+
+    InvertedIndex() {
+        this(new ConcurrentSkipListMap<>(), RoaringBitmap.EMPTY, Map.of());
+    }
+
+    private InvertedIndex(ConcurrentSkipListMap<String, RoaringBitmap> postings, RoaringBitmap documents, Map<Long, Integer> versions) {
+        this.postings = postings;
+        this.documents = new AtomicReference<>(documents);
+        this.versions = new ConcurrentHashMap<>(versions);
+    }
+
+    // Индекс из пар (id, текст) одним проходом: списки id собираются по токенам и сжимаются в конце
+    static InvertedIndex build(List<Object[]> rows) {
+        Builder builder = new Builder();
+        for (Object[] row : rows) {
+            builder.add(((Number) row[0]).longValue(), (String) row[1]);
+        }
+        return builder.build();
+    }
+
+    // Построение по частям: тексты документов не нужно держать в памяти все сразу,
+    // накапливаются только списки id по токенам
+    static final class Builder {
+
+        private final Map<String, long[]> lists = new HashMap<>();
+        private final Map<String, int[]> sizes = new HashMap<>();
+        private final Map<Long, Integer> versions = new HashMap<>();
+        private long[] ids = new long[16];
+        private int documentCount;
+
+        void add(long id, String content) {
+            add(id, content, 0);
+        }
+
+        void add(long id, String content, int version) {
+            if (version > 0) {
+                versions.put(id, version);
+            }
+            if (documentCount == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[documentCount++] = id;
+            for (String token : Tokenizer.tokens(content)) {
+                int[] size = sizes.computeIfAbsent(token, key -> new int[1]);
+                long[] list = lists.get(token);
+                if (list == null || list.length == size[0]) {
+                    list = list == null ? new long[4] : Arrays.copyOf(list, list.length * 2);
+                    lists.put(token, list);
+                }
+                list[size[0]++] = id;
+            }
+        }
+
+        int documentCount() {
+            return documentCount;
+        }
+
+        InvertedIndex build() {
+            ConcurrentSkipListMap<String, RoaringBitmap> postings = new ConcurrentSkipListMap<>();
+            lists.forEach((token, list) -> postings.put(token, RoaringBitmap.of(Arrays.copyOf(list, sizes.get(token)[0]))));
+            return new InvertedIndex(postings, RoaringBitmap.of(Arrays.copyOf(ids, documentCount)), versions);
+        }
+    }
+
+    static InvertedIndex of(Map<String, RoaringBitmap> postings, RoaringBitmap documents, Map<Long, Integer> versions) {
+        return new InvertedIndex(new ConcurrentSkipListMap<>(postings), documents, versions);
+    }
+
+    // Изменение текста документа: null в oldContent - документ новый, null в newContent - удален
+    void update(long id, String oldContent, String newContent) {
+        reindex(id, Tokenizer.tokens(oldContent), newContent, 0);
+    }
+
+    // Документ приводится к тексту content с номером правки version (null - документа нет):
+    // id снимается с токенов stale, которых нет в content, и ставится на все токены content.
+    // Результат не зависит от того, какие из токенов stale и content уже были у документа
+    void reindex(long id, Set<String> stale, String content, int version) {
+        Set<String> added = Tokenizer.tokens(content);
+        Set<String> removed = new HashSet<>(stale);
+        removed.removeAll(added);
+
+        for (String token : removed) {
+            // Пустой битмап удаляет токен из словаря
+            postings.computeIfPresent(token, (key, bitmap) -> {
+                RoaringBitmap updated = bitmap.without(id);
+                return updated.isEmpty() ? null : updated;
+            });
+        }
+        for (String token : added) {
+            // Для уже стоящего id битмап не меняется
+            postings.merge(token, RoaringBitmap.of(id), (bitmap, single) -> bitmap.with(id));
+        }
+        documents.updateAndGet(bitmap -> content != null ? bitmap.with(id) : bitmap.without(id));
+        if (content != null && version > 0) {
+            versions.put(id, version);
+        } else {
+            versions.remove(id);
+        }
+    }
+
+    // До limit самых новых (с наибольшими id) документов меньше before, подходящих под запрос
+    long[] search(SearchQuery query, long before, int limit) {
+        RoaringBitmap result = RoaringBitmap.EMPTY;
+        for (List<SearchQuery.Term> clause : query.clauses()) {
+            result = result.or(match(clause));
+        }
+        return result.descending(before, limit);
+    }
+
+    private RoaringBitmap match(List<SearchQuery.Term> clause) {
+        // Пересечение начинается с самого короткого списка: промежуточные результаты не больше него
+        List<RoaringBitmap> bitmaps = new ArrayList<>(clause.size());
+        for (SearchQuery.Term term : clause) {
+            RoaringBitmap bitmap = term.prefix() ? prefixUnion(term.token()) : postings.getOrDefault(term.token(), RoaringBitmap.EMPTY);
+            if (bitmap.isEmpty()) {
+                return RoaringBitmap.EMPTY;
+            }
+            bitmaps.add(bitmap);
+        }
+        bitmaps.sort((a, b) -> Long.compare(a.cardinality(), b.cardinality()));
+        RoaringBitmap result = bitmaps.get(0);
+        for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+            result = result.and(bitmaps.get(i));
+        }
+        return result;
+    }
+
+    private RoaringBitmap prefixUnion(String prefix) {
+        RoaringBitmap result = RoaringBitmap.EMPTY;
+        int expanded = 0;
+        for (RoaringBitmap bitmap : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (++expanded > MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    NavigableMap<String, RoaringBitmap> postings() {
+        return postings;
+    }
+
+    RoaringBitmap documents() {
+        return documents.get();
+    }
+
+    Map<Long, Integer> versions() {
+        return versions;
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Разобранный запрос: дизъюнкция предложений, каждое - конъюнкция термов.
+// Слова через пробел объединяются по AND, отдельно стоящее OR разделяет предложения,
+// слово со звездочкой на конце (привет*) ищется по префиксу
+public record SearchQuery(List<List<Term>> clauses) {
+
+    private static final String OR = "OR";
+    private static final char PREFIX_MARK = '*';
+
+    public record Term(String token, boolean prefix) {
+    }
+
+    public static SearchQuery parse(String query) {
+        List<List<Term>> clauses = new ArrayList<>();
+        List<Term> clause = new ArrayList<>();
+        for (String word : query == null ? new String[0] : query.trim().split("\\s+")) {
+            if (word.equals(OR)) {
+                if (!clause.isEmpty()) {
+                    clauses.add(clause);
+                    clause = new ArrayList<>();
+                }
+                continue;
+            }
+            boolean prefix = word.length() > 1 && word.charAt(word.length() - 1) == PREFIX_MARK;
+            // Слово из нескольких токенов (пример: wi-fi) дает несколько AND-термов
+            List<String> tokens = new ArrayList<>(Tokenizer.tokens(prefix ? word.substring(0, word.length() - 1) : word));
+            tokens.sort(null);
+            for (String token : tokens) {
+                clause.add(new Term(token, prefix));
+            }
+        }
+        if (!clause.isEmpty()) {
+            clauses.add(clause);
+        }
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("Поисковый запрос не может быть пустым");
+        }
+        return new SearchQuery(clauses);
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.search;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+// Разбивает текст на токены индекса: последовательности букв и цифр в нижнем регистре, ё приводится к е.
+// Токены короче MIN_LENGTH отбрасываются, длиннее MAX_LENGTH - обрезаются. Стемминга нет: словоформы
+// находятся префиксным поиском
+public final class Tokenizer {
+
+    static final int MIN_LENGTH = 2;
+    static final int MAX_LENGTH = 40;
+
+    private Tokenizer() {
+    }
+
+    // Различные токены текста, null - пустое множество
+    public static Set<String> tokens(String text) {
+        Set<String> tokens = new HashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean tokenChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                if (i - start >= MIN_LENGTH) {
+                    tokens.add(normalized.substring(start, Math.min(i, start + MAX_LENGTH)));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
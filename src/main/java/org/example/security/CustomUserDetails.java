@@ -4,12 +4,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
 import org.example.entity.User;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
 import java.util.stream.Collectors;
 
-public class CustomUserDetails implements UserDetails {
+public class CustomUserDetails implements UserPrincipal {
 
     private final User user;
     
@@ -54,6 +53,7 @@ public class CustomUserDetails implements UserDetails {
         return true; // можно завести флаг в User
     }
 
+    @Override
     public Long getId() {
         return user.getId();
     }
@@ -1,5 +1,6 @@
 package org.example.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,6 +9,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -31,11 +33,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
 
-                if (jwtTokenProvider.validateToken(token)) {
-                    String username = jwtTokenProvider.getUsername(token);
+                // Подпись проверяется один раз, дальше работаем с разобранными claims
+                Claims claims = jwtTokenProvider.getValidClaims(token);
+
+                if (claims != null) {
+                    JwtUserPrincipal principal = jwtTokenProvider.getPrincipal(claims);
+                    String username = principal != null ? principal.getUsername() : claims.getSubject();
 
                     if (username != null && SecurityContextHolder.getContext().getAuthentication() == null){
-                        var userDetails = userDetailsService.loadUserByUsername(username);
+                        // БД читается только для старых токенов без claims и при перепроверке по возрасту токена
+                        UserDetails userDetails = principal != null && !jwtTokenProvider.requiresDbCheck(principal)
+                                ? principal
+                                : userDetailsService.loadUserByUsername(username);
 
                         var auth = new UsernamePasswordAuthenticationToken(
                                 userDetails, null, userDetails.getAuthorities());
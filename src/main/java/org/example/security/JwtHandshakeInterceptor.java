@@ -0,0 +1,73 @@
+package org.example.security;
+
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+// Проверка JWT при открытии WebSocket. Браузер не умеет передавать заголовки в handshake,
+// поэтому токен принимается и из параметра ?token=
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String USER_ID_ATTRIBUTE = "userId";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final CustomUserDetailsService userDetailsService;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String token = resolveToken(request);
+        Claims claims = token != null ? jwtTokenProvider.getValidClaims(token) : null;
+
+        if (claims == null) {
+            log.warn("Невалидный JWT-токен при подключении к WebSocket");
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        JwtUserPrincipal principal = jwtTokenProvider.getPrincipal(claims);
+        // Как и в фильтре: БД читается только для старых токенов без claims и при перепроверке по возрасту
+        UserPrincipal user;
+        try {
+            user = principal != null && !jwtTokenProvider.requiresDbCheck(principal)
+                    ? principal
+                    : (UserPrincipal) userDetailsService.loadUserByUsername(claims.getSubject());
+        } catch (UsernameNotFoundException e) {
+            // Токен валиден, но пользователь удален
+            log.warn("Пользователь из JWT-токена не найден при подключении к WebSocket: {}", claims.getSubject());
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        attributes.put(USER_ID_ATTRIBUTE, user.getId());
+        log.info("Info: пользователь {} подключился к WebSocket", user.getUsername());
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private String resolveToken(ServerHttpRequest request) {
+        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        return UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("token");
+    }
+}
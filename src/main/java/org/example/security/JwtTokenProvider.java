@@ -1,6 +1,8 @@
 package org.example.security;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,55 +10,111 @@ import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 @Component
 public class JwtTokenProvider {
 
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLES = "roles";
+
     // Ключ
     private final Key secretKey;
+    // Парсер потокобезопасен, собирается один раз
+    private final JwtParser jwtParser;
+    // Кэш проверенных токенов, null - кэш выключен
+    private final VerifiedTokenCache verifiedTokenCache;
     // Время жизни токена
     private final long validityInMilliseconds;
+    // Возраст токена, после которого пользователь перепроверяется по БД (-1 - никогда, 0 - всегда)
+    private final long dbCheckAfterMilliseconds;
 
     public JwtTokenProvider (
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.expiration-ms}") long validityInMilliseconds
+            @Value("${jwt.expiration-ms}") long validityInMilliseconds,
+            @Value("${jwt.db-check-after-ms:-1}") long dbCheckAfterMilliseconds,
+            @Value("${jwt.verified-cache-size:0}") int verifiedCacheSize
     ) {
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build();
+        this.verifiedTokenCache = verifiedCacheSize > 0 ? new VerifiedTokenCache(verifiedCacheSize) : null;
         this.validityInMilliseconds = validityInMilliseconds;
+        this.dbCheckAfterMilliseconds = dbCheckAfterMilliseconds;
     }
 
-    public String generateToken(String username) {
+    public String generateToken(Long userId, String username, Collection<String> roles) {
         Date now = new Date();
         Date validity = new Date(now.getTime() + validityInMilliseconds);
 
         return Jwts.builder()
                 .setSubject(username) // логин
+                .claim(CLAIM_USER_ID, userId) // id пользователя
+                .claim(CLAIM_ROLES, List.copyOf(roles)) // роли
                 .setIssuedAt(now) // когда создан
                 .setExpiration(validity) // когда истечет
                 .signWith(secretKey) // подпись
                 .compact();
     }
 
+    // Проверка подписи и срока действия, claims разбираются один раз на запрос.
+    // Бросает JwtException/IllegalArgumentException для невалидного токена
+    public Claims verify(String token) {
+        if (verifiedTokenCache == null) {
+            return jwtParser.parseClaimsJws(token).getBody();
+        }
+        Claims claims = verifiedTokenCache.get(token, System.currentTimeMillis());
+        if (claims == null) {
+            claims = jwtParser.parseClaimsJws(token).getBody();
+            verifiedTokenCache.put(token, claims);
+        }
+        return claims;
+    }
+
     // username из токена
     public String getUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return verify(token).getSubject();
     }
 
-    public boolean validateToken(String token) {
+    // Пользователь из claims токена, null - токен выпущен без id пользователя
+    public JwtUserPrincipal getPrincipal(String token) {
+        return getPrincipal(verify(token));
+    }
+
+    public JwtUserPrincipal getPrincipal(Claims claims) {
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        if (userId == null) {
+            return null;
+        }
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        return new JwtUserPrincipal(
+                userId.longValue(),
+                claims.getSubject(),
+                roles == null ? List.of() : roles.stream().map(String::valueOf).toList(),
+                claims.getIssuedAt().toInstant());
+    }
+
+    // Нужно ли перепроверить пользователя по БД (удален, сменились роли)
+    public boolean requiresDbCheck(JwtUserPrincipal principal) {
+        if (dbCheckAfterMilliseconds < 0) {
+            return false;
+        }
+        return principal.getIssuedAt().toEpochMilli() + dbCheckAfterMilliseconds <= System.currentTimeMillis();
+    }
+
+    // claims валидного токена или null
+    public Claims getValidClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(secretKey)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            return verify(token);
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
         }
     }
+
+    public boolean validateToken(String token) {
+        return getValidClaims(token) != null;
+    }
 }
@@ -0,0 +1,69 @@
+package org.example.security;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Пользователь, восстановленный из claims JWT без обращения к БД
+public class JwtUserPrincipal implements UserPrincipal {
+
+    private final Long id;
+    private final String username;
+    private final Set<GrantedAuthority> authorities;
+    @Getter
+    private final Instant issuedAt;
+
+    public JwtUserPrincipal(Long id, String username, Collection<String> roles, Instant issuedAt) {
+        this.id = id;
+        this.username = username;
+        this.authorities = roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableSet());
+        this.issuedAt = issuedAt;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null; // пароль в токене не хранится
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -27,6 +27,7 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) //Без сессий
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/**").permitAll() //Регистрация и логин открыты
+                        .requestMatchers("/ws/**").permitAll() //Токен WebSocket проверяет JwtHandshakeInterceptor
                         .anyRequest().authenticated()) //остальные требуют токен
 
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class); // вставляем фильтр до стандартного
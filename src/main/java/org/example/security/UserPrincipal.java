@@ -0,0 +1,8 @@
+package org.example.security;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+// Общий контракт аутентифицированного пользователя для контроллеров
+public interface UserPrincipal extends UserDetails {
+    Long getId();
+}
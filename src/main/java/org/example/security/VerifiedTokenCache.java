@@ -0,0 +1,74 @@
+package org.example.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Ограниченный LRU-кэш уже проверенных токенов: SHA-256 токена -> claims.
+// Запись живет не дольше exp токена, сам токен в памяти не хранится
+class VerifiedTokenCache {
+
+    private final int maxSize;
+    private final Map<String, Entry> entries;
+
+    VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+        // accessOrder = true - при переполнении вытесняется давно не использованный токен
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > VerifiedTokenCache.this.maxSize;
+            }
+        };
+    }
+
+    // claims проверенного ранее токена или null, если токена нет в кэше или он истек
+    Claims get(String token, long nowMillis) {
+        String key = digest(token);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAtMillis() <= nowMillis) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.claims();
+        }
+    }
+
+    void put(String token, Claims claims) {
+        if (claims.getExpiration() == null) {
+            return;
+        }
+        Entry entry = new Entry(claims, claims.getExpiration().getTime());
+        String key = digest(token);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private record Entry(Claims claims, long expiresAtMillis) {
+    }
+}
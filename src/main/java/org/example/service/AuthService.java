@@ -7,4 +7,5 @@ import org.example.dto.RegisterDTO;
 public interface AuthService {
     JwtResponse register(RegisterDTO request);
     JwtResponse login(LoginDTO request);
+    boolean isUsernameAvailable(String username);
 }
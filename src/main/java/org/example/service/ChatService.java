@@ -1,13 +1,19 @@
 package org.example.service;
 
 import org.example.dto.ChatDTO;
+import org.example.dto.InboxChatDTO;
 
 import java.util.List;
 import java.util.Set;
 
 public interface ChatService {
+    // Непрочитанные считаются не дальше этого значения: стоимость не зависит от размера переписки
+    int UNREAD_COUNT_CAP = 100;
+
     ChatDTO createChat(Long userId1, Long userId2);
     ChatDTO createGroupChat(Set<Long> participantsIds);
     List<ChatDTO> getUserChats(Long userId);
+    List<InboxChatDTO> getInbox(Long userId);
+    void markRead(Long chatId, Long userId, Long messageId);
     void deleteChat(Long chatId, Long requesterId);
 }
\ No newline at end of file
@@ -1,7 +1,8 @@
 package org.example.service;
 
 import org.example.dto.CommunityDTO;
-import org.example.dto.UserDTO;
+import org.example.dto.CommunityMemberDTO;
+import org.example.dto.PageDTO;
 
 import java.util.List;
 
@@ -12,7 +13,7 @@ public interface CommunityService {
     void leaveCommunity(Long communityId, Long userId);
     List<CommunityDTO> getAllCommunities();
     List<CommunityDTO> getUserCommunities(Long userId);
-    List<UserDTO> getCommunityMembers(Long communityId);
+    PageDTO<CommunityMemberDTO> getCommunityMembers(Long communityId, Long after, Integer limit);
     void addPostToCommunity(Long communityId, Long userId, String content);
     CommunityDTO updateCommunity(Long communityId, Long adminId, CommunityDTO updatedDTO);
 }
\ No newline at end of file
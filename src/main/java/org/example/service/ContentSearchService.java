@@ -0,0 +1,10 @@
+package org.example.service;
+
+import org.example.dto.CommentDTO;
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+
+public interface ContentSearchService {
+    PageDTO<PostDTO> searchPosts(String query, String cursor, Integer limit);
+    PageDTO<CommentDTO> searchComments(String query, String cursor, Integer limit);
+}
@@ -0,0 +1,7 @@
+package org.example.service;
+
+import org.example.dto.FriendPathDTO;
+
+public interface FriendPathService {
+    FriendPathDTO findPath(Long userId, Long targetUserId);
+}
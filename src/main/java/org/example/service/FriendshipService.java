@@ -1,6 +1,7 @@
 package org.example.service;
 
 import org.example.dto.FriendshipDTO;
+import org.example.dto.MutualFriendsDTO;
 import org.example.dto.UserDTO;
 
 import java.util.List;
@@ -12,4 +13,5 @@ public interface FriendshipService {
     void removeFriend(Long userId, Long friendId);
     List<UserDTO> getFriends(Long userId);
     List<FriendshipDTO> getPendingRequests(Long userId);
+    MutualFriendsDTO getMutualFriends(Long userId, Long otherUserId, String cursor, Integer limit);
 }
\ No newline at end of file
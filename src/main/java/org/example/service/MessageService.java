@@ -1,6 +1,8 @@
 package org.example.service;
 
 import org.example.dto.MessageDTO;
+import org.example.dto.MessageSyncDTO;
+import org.example.dto.PageDTO;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,5 +12,7 @@ public interface MessageService {
     Optional<MessageDTO> getMessageById(Long messageId);
     List<MessageDTO> getMessageBetweenUsers(Long userId1, Long userId2);
     List<MessageDTO> getAllMessagesForUser(Long userId);
+    PageDTO<MessageDTO> getChatMessages(Long chatId, Long userId, String before, Integer limit);
+    MessageSyncDTO syncMessages(Long userId, String since, Integer limit);
     void deleteMessage(Long messageId);
 }
@@ -1,5 +1,6 @@
 package org.example.service;
 
+import org.example.dto.PageDTO;
 import org.example.dto.PostDTO;
 
 import java.util.List;
@@ -11,7 +12,8 @@ public interface PostService {
     Optional<PostDTO> getPostById(Long postId);
     List<PostDTO> getPostsByUserId(Long userId);
     List<PostDTO> getPostsByCommunityId(Long communityId);
-    List<PostDTO> getAllPosts();
+    PageDTO<PostDTO> getPostsPage(String cursor, Integer limit);
+    PageDTO<PostDTO> searchPosts(String query, Long communityId, Long authorId, String cursor, Integer limit);
     PostDTO updatePost(Long postId, PostDTO updatedPost);
     void deletePost(Long postId);
 }
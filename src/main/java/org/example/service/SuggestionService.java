@@ -0,0 +1,13 @@
+package org.example.service;
+
+import org.example.dto.SuggestionDTO;
+
+import java.util.List;
+
+public interface SuggestionService {
+    // Вес одного общего друга и одного общего сообщества в оценке кандидата
+    int MUTUAL_FRIEND_WEIGHT = 2;
+    int SHARED_COMMUNITY_WEIGHT = 1;
+
+    List<SuggestionDTO> getSuggestions(Long userId, Integer limit);
+}
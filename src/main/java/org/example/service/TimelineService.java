@@ -0,0 +1,10 @@
+package org.example.service;
+
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+import org.example.event.PostCreatedEvent;
+
+public interface TimelineService {
+    void fanOut(PostCreatedEvent event);
+    PageDTO<PostDTO> getFeed(Long userId, String cursor, Integer limit);
+}
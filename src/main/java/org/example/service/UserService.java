@@ -1,12 +1,11 @@
 package org.example.service;
 
+import org.example.dto.PageDTO;
 import org.example.dto.UserDTO;
 
-import java.util.List;
-
 public interface UserService {
     UserDTO registerUser(UserDTO userDTO);
     UserDTO updateUser(Long id, UserDTO updatedDTO);
     UserDTO getUserById(Long id);
-    List<UserDTO> searchUsers(String firstName, String lastName, Integer age, String gender);
+    PageDTO<UserDTO> searchUsers(String firstName, String lastName, Integer age, String gender, boolean fuzzy, String cursor, Integer limit);
 }
\ No newline at end of file
@@ -12,14 +12,19 @@ import org.example.entity.User;
 import org.example.repository.RoleRepository;
 import org.example.repository.UserRepository;
 import org.example.security.JwtTokenProvider;
+import org.example.security.UserPrincipal;
 import org.example.service.AuthService;
 import org.example.service.UserService;
+import org.example.username.UsernameFilter;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -33,6 +38,7 @@ public class AuthServiceImpl implements AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthenticationManager authenticationManager;
+    private final UsernameFilter usernameFilter;
 
     @Override
     public JwtResponse register(RegisterDTO request) {
@@ -58,7 +64,7 @@ public class AuthServiceImpl implements AuthService {
         user.setRoles(Set.of(userRole));
         userRepository.save(user);
 
-        String token = jwtTokenProvider.generateToken(user.getUsername());
+        String token = jwtTokenProvider.generateToken(user.getId(), user.getUsername(), Set.of(userRole.getName().name()));
         return new JwtResponse(token);
     }
 
@@ -69,9 +75,28 @@ public class AuthServiceImpl implements AuthService {
                 request.getPassword()
         );
 
-        authenticationManager.authenticate(auth);
+        Authentication authentication = authenticationManager.authenticate(auth);
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        Set<String> roles = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
 
-        String token = jwtTokenProvider.generateToken(request.getUsername());
+        String token = jwtTokenProvider.generateToken(principal.getId(), principal.getUsername(), roles);
         return new JwtResponse(token);
     }
+
+    // Проверка на каждое нажатие клавиши: транзакция не открывается, на свободный логин отвечает фильтр,
+    // в users идем только за "возможно занят" - по уникальному индексу на username
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public boolean isUsernameAvailable(String username) {
+        if (username == null || username.isBlank()) {
+            log.error("Error: логин для проверки пустой");
+            throw new IllegalArgumentException("Логин не может быть пустым");
+        }
+        if (!usernameFilter.mightBeTaken(username)) {
+            return true;
+        }
+        return !userRepository.existsByUsername(username);
+    }
 }
@@ -6,13 +6,18 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.dto.ChatDTO;
+import org.example.dto.InboxChatDTO;
+import org.example.dto.MessageDTO;
 import org.example.entity.Chat;
 import org.example.entity.User;
 import org.example.entity.enums.ChatType;
+import org.example.entity.enums.MessageEventType;
 import org.example.mapper.ChatMapper;
 import org.example.service.ChatService;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -34,41 +39,50 @@ public class ChatServiceImpl implements ChatService {
             throw new IllegalArgumentException("Нельзя создать чат с самим собой");
         }
 
-        // Поиск существующего приватного чата с двумя участниками
-        List<Chat> existingChats = entityManager.createQuery("""
-                SELECT c FROM Chat c
-                JOIN c.participants p1
-                JOIN c.participants p2
-                WHERE c.type = :type
-                  AND p1.id = :id1
-                  AND p2.id = :id2
-                  AND SIZE(c.participants) = 2
-                """, Chat.class)
-                .setParameter("type", ChatType.PRIVATE)
-                .setParameter("id1", userId1)
-                .setParameter("id2", userId2)
-                .getResultList();
+        long low = Math.min(userId1, userId2);
+        long high = Math.max(userId1, userId2);
 
-        if (!existingChats.isEmpty()) {
+        // Поиск существующего приватного чата - одно обращение к uq_chats_private_pair
+        Long existingId = findPrivateChatId(low, high);
+        if (existingId != null) {
             log.info("Чат между пользователями {} и {} уже существует", userId1, userId2);
-            return chatMapper.toDTO(existingChats.get(0));
+            return privateChatDTO(existingId, low, high);
         }
 
-        User user1 = entityManager.find(User.class, userId1);
-        User user2 = entityManager.find(User.class, userId2);
-
-        if (user1 == null || user2 == null) {
+        Long usersFound = entityManager.createQuery("SELECT COUNT(u) FROM User u WHERE u.id IN (:low, :high)", Long.class)
+                .setParameter("low", low)
+                .setParameter("high", high)
+                .getSingleResult();
+        if (usersFound != 2) {
             throw new IllegalArgumentException("Один или оба пользователя не найдены");
         }
 
-        Chat chat = Chat.builder()
-                .type(ChatType.PRIVATE)
-                .participants(Set.of(user1, user2))
-                .build();
+        // При одновременном создании второй INSERT ждет первый и по уникальному ключу ничего не вставляет
+        @SuppressWarnings("unchecked")
+        List<Number> inserted = entityManager.createNativeQuery("""
+                INSERT INTO chats (type, min_user_id, max_user_id)
+                VALUES ('PRIVATE', :low, :high)
+                ON CONFLICT (min_user_id, max_user_id) DO NOTHING
+                RETURNING id
+                """)
+                .setParameter("low", low)
+                .setParameter("high", high)
+                .getResultList();
+
+        if (inserted.isEmpty()) {
+            log.info("Чат между пользователями {} и {} создан параллельным запросом", userId1, userId2);
+            return privateChatDTO(findPrivateChatId(low, high), low, high);
+        }
+
+        Long chatId = inserted.get(0).longValue();
+        entityManager.createNativeQuery("INSERT INTO chat_participants (chat_id, user_id) VALUES (:chatId, :low), (:chatId, :high)")
+                .setParameter("chatId", chatId)
+                .setParameter("low", low)
+                .setParameter("high", high)
+                .executeUpdate();
 
-        entityManager.persist(chat);
         log.info("Создан новый приватный чат между {} и {}", userId1, userId2);
-        return chatMapper.toDTO(chat);
+        return privateChatDTO(chatId, low, high);
     }
 
     @Override
@@ -99,17 +113,99 @@ public class ChatServiceImpl implements ChatService {
 
     @Override
     public List<ChatDTO> getUserChats(Long userId) {
-        List<Chat> chats = entityManager.createQuery("""
-                SELECT c FROM Chat c
+        // Строка на каждого участника каждого чата пользователя: чаты и участники читаются одним запросом
+        List<Object[]> rows = entityManager.createQuery("""
+                SELECT c.id, c.type, other.id FROM Chat c
                 JOIN c.participants p
+                JOIN c.participants other
                 WHERE p.id = :userId
-                """, Chat.class)
+                ORDER BY c.id
+                """, Object[].class)
+                .setParameter("userId", userId)
+                .getResultList();
+
+        Map<Long, ChatDTO> chats = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            ChatDTO chat = chats.computeIfAbsent((Long) row[0], id -> ChatDTO.builder()
+                    .id(id)
+                    .type((ChatType) row[1])
+                    .participantsIds(new HashSet<>())
+                    .build());
+            chat.getParticipantsIds().add((Long) row[2]);
+        }
+
+        return new ArrayList<>(chats.values());
+    }
+
+    @Override
+    public List<InboxChatDTO> getInbox(Long userId) {
+        // Строка на чат: последнее сообщение - один шаг по idx_messages_chat_sent_at_id,
+        // непрочитанные - диапазон того же индекса после отметки прочтения, не длиннее UNREAD_COUNT_CAP
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT c.id, c.type, lm.id, lm.content, lm.sender_id, lm.sent_at, unread.cnt
+                FROM chat_participants cp
+                JOIN chats c ON c.id = cp.chat_id
+                LEFT JOIN LATERAL (
+                    SELECT m.id, m.content, m.sender_id, m.sent_at FROM messages m
+                    WHERE m.chat_id = cp.chat_id
+                    ORDER BY m.sent_at DESC, m.id DESC
+                    LIMIT 1
+                ) lm ON true
+                CROSS JOIN LATERAL (
+                    SELECT COUNT(*) AS cnt FROM (
+                        SELECT 1 FROM messages m
+                        WHERE m.chat_id = cp.chat_id
+                          AND m.sender_id <> cp.user_id
+                          AND (cp.last_read_at IS NULL OR (m.sent_at, m.id) > (cp.last_read_at, cp.last_read_message_id))
+                        LIMIT :unreadCap
+                    ) u
+                ) unread
+                WHERE cp.user_id = :userId
+                ORDER BY lm.sent_at DESC NULLS LAST, c.id DESC
+                """)
                 .setParameter("userId", userId)
+                .setParameter("unreadCap", UNREAD_COUNT_CAP)
                 .getResultList();
 
-        return chats.stream()
-                .map(chatMapper::toDTO)
-                .collect(Collectors.toList());
+        List<InboxChatDTO> inbox = rows.stream()
+                .map(this::toInboxChat)
+                .toList();
+
+        log.info("Info: входящие пользователя {}: {} чатов", userId, inbox.size());
+        return inbox;
+    }
+
+    @Override
+    public void markRead(Long chatId, Long userId, Long messageId) {
+        // Отметка только сдвигается вперед: повторный или запоздавший запрос ничего не меняет
+        int updated = entityManager.createNativeQuery("""
+                UPDATE chat_participants cp
+                SET last_read_message_id = m.id, last_read_at = m.sent_at
+                FROM messages m
+                WHERE cp.chat_id = :chatId AND cp.user_id = :userId
+                  AND m.id = :messageId AND m.chat_id = cp.chat_id
+                  AND (cp.last_read_at IS NULL OR (m.sent_at, m.id) > (cp.last_read_at, cp.last_read_message_id))
+                """)
+                .setParameter("chatId", chatId)
+                .setParameter("userId", userId)
+                .setParameter("messageId", messageId)
+                .executeUpdate();
+
+        if (updated == 0) {
+            Boolean participant = (Boolean) entityManager.createNativeQuery(
+                    "SELECT EXISTS (SELECT 1 FROM chat_participants WHERE chat_id = :chatId AND user_id = :userId)")
+                    .setParameter("chatId", chatId)
+                    .setParameter("userId", userId)
+                    .getSingleResult();
+            if (!participant) {
+                log.error("Error: пользователь {} не является участником чата {}", userId, chatId);
+                throw new SecurityException("Только участник может отмечать сообщения чата прочитанными");
+            }
+            log.info("Info: отметка прочтения чата {} пользователя {} не изменилась (messageId = {})", chatId, userId, messageId);
+            return;
+        }
+        log.info("Info: пользователь {} прочитал чат {} до сообщения {}", userId, chatId, messageId);
     }
 
     @Override
@@ -127,7 +223,55 @@ public class ChatServiceImpl implements ChatService {
             throw new SecurityException("Только участник может удалить чат");
         }
 
+        // До удаления участников: каждый из них узнает об удалении чата при синхронизации
+        entityManager.createNativeQuery("""
+                INSERT INTO message_events (chat_id, user_id, type)
+                SELECT chat_id, user_id, :type FROM chat_participants WHERE chat_id = :chatId
+                """)
+                .setParameter("chatId", chatId)
+                .setParameter("type", MessageEventType.CHAT_DELETED.name())
+                .executeUpdate();
         entityManager.remove(chat);
         log.info("Чат {} удален пользователем {}", chatId, requesterId);
     }
+
+    private InboxChatDTO toInboxChat(Object[] row) {
+        Long chatId = ((Number) row[0]).longValue();
+        LocalDateTime lastActivityAt = toLocalDateTime(row[5]);
+        MessageDTO lastMessage = row[2] == null ? null : MessageDTO.builder()
+                .id(((Number) row[2]).longValue())
+                .content((String) row[3])
+                .chatId(chatId)
+                .senderId(((Number) row[4]).longValue())
+                .sentAt(lastActivityAt)
+                .build();
+        return InboxChatDTO.builder()
+                .chatId(chatId)
+                .type(ChatType.valueOf((String) row[1]))
+                .lastMessage(lastMessage)
+                .lastActivityAt(lastActivityAt)
+                .unreadCount(((Number) row[6]).longValue())
+                .build();
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private Long findPrivateChatId(long low, long high) {
+        return entityManager.createQuery("SELECT c.id FROM Chat c WHERE c.minUserId = :low AND c.maxUserId = :high", Long.class)
+                .setParameter("low", low)
+                .setParameter("high", high)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static ChatDTO privateChatDTO(Long chatId, long low, long high) {
+        return ChatDTO.builder()
+                .id(chatId)
+                .type(ChatType.PRIVATE)
+                .participantsIds(new HashSet<>(List.of(low, high)))
+                .build();
+    }
 }
@@ -9,14 +9,16 @@ import org.example.dto.CommentDTO;
 import org.example.entity.Comment;
 import org.example.entity.Post;
 import org.example.entity.User;
+import org.example.event.ContentChangedEvent;
 import org.example.mapper.CommentMapper;
+import org.example.search.ContentType;
 import org.example.service.CommentService;
 import org.mapstruct.control.MappingControl;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -29,6 +31,8 @@ public class CommentServiceImpl implements CommentService {
 
     private final CommentMapper commentMapper;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     @Override
     public CommentDTO addComment(CommentDTO commentDTO) {
         if (commentDTO.getContent() == null || commentDTO.getContent().isBlank()) {
@@ -52,6 +56,7 @@ public class CommentServiceImpl implements CommentService {
                 .build();
 
         entityManager.persist(comment);
+        eventPublisher.publishEvent(new ContentChangedEvent(ContentType.COMMENT, comment.getId(), null, comment.getContent()));
         log.info("Info: комментарий добавлен пользователем {} к посту {}", author.getId(), post.getId());
 
         return commentMapper.toDTO(comment);
@@ -72,19 +77,18 @@ public class CommentServiceImpl implements CommentService {
         }
 
         entityManager.remove(comment);
+        eventPublisher.publishEvent(new ContentChangedEvent(ContentType.COMMENT, comment.getId(), comment.getContent(), null));
         log.info("Info: комментарий с id = {} удален", commentId);
     }
 
     @Override
     public List<CommentDTO> getCommentsByPostId(Long postId) {
-        List<Comment> comments = entityManager.createQuery("SELECT c FROM Comment c JOIN c.post p WHERE p.id = :postId", Comment.class)
+        // Проекция в CommentDTO: id автора и поста берутся из внешних ключей, без загрузки связей
+        List<CommentDTO> result = entityManager.createQuery(
+                "SELECT new org.example.dto.CommentDTO(c.id, c.content, c.author.id, c.post.id, c.createdAt) FROM Comment c WHERE c.post.id = :postId", CommentDTO.class)
                 .setParameter("postId", postId)
                 .getResultList();
 
-        List<CommentDTO> result = comments.stream()
-                .map(commentMapper::toDTO)
-                .collect(Collectors.toList());
-
         log.info("Info: количество комментариев к посту {} = {}", postId, result.size());
         return result;
     }
@@ -7,14 +7,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.example.dto.CommunityDTO;
+import org.example.dto.CommunityMemberDTO;
+import org.example.dto.PageDTO;
 import org.example.dto.PostDTO;
-import org.example.dto.UserDTO;
+import org.example.entity.Comment;
 import org.example.entity.Community;
 import org.example.entity.Post;
 import org.example.entity.User;
+import org.example.event.CommunityDeletedEvent;
+import org.example.event.CommunityMembershipChangedEvent;
+import org.example.event.ContentChangedEvent;
+import org.example.event.PostCreatedEvent;
 import org.example.mapper.CommunityMapper;
-import org.example.mapper.UserMapper;
+import org.example.pagination.Pagination;
+import org.example.search.ContentType;
 import org.example.service.CommunityService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -31,7 +39,7 @@ public class CommunityServiceImpl implements CommunityService {
     private EntityManager entityManager;
 
     private final CommunityMapper communityMapper;
-    private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @PostConstruct
     public void debugInit() {
@@ -78,7 +86,20 @@ public class CommunityServiceImpl implements CommunityService {
             throw new IllegalArgumentException("Только администратор может удалить сообщество");
         }
 
+        // Посты блокируются до загрузки: правка поста, ждущая блокировку, после удаления его не найдет,
+        // а закоммиченная раньше уже видна в загруженном тексте
+        entityManager.createNativeQuery("SELECT id FROM posts WHERE community_id = :communityId FOR UPDATE")
+                .setParameter("communityId", communityId)
+                .getResultList();
+        // Посты и комментарии все равно загружаются для каскадного удаления - их тоже убираем из поискового индекса
+        for (Post post : community.getPosts()) {
+            for (Comment comment : post.getComments()) {
+                eventPublisher.publishEvent(new ContentChangedEvent(ContentType.COMMENT, comment.getId(), comment.getContent(), null));
+            }
+            eventPublisher.publishEvent(new ContentChangedEvent(ContentType.POST, post.getId(), post.getContent(), null));
+        }
         entityManager.remove(community);
+        eventPublisher.publishEvent(new CommunityDeletedEvent(communityId));
         log.info("Info: сообщество с id = {} удалено", communityId);
     }
 
@@ -97,8 +118,22 @@ public class CommunityServiceImpl implements CommunityService {
             throw new IllegalArgumentException("Пользователь не найден");
         }
 
-        community.getMembers().add(user);
-        entityManager.merge(community);
+        // Одна вставка связи без загрузки коллекции участников, счетчик растет только при новой связи
+        int inserted = entityManager.createNativeQuery("""
+                WITH inserted AS (
+                    INSERT INTO community_members (community_id, user_id) VALUES (:communityId, :userId)
+                    ON CONFLICT DO NOTHING
+                    RETURNING community_id
+                )
+                UPDATE communities SET member_count = member_count + 1
+                WHERE id IN (SELECT community_id FROM inserted)
+                """)
+                .setParameter("communityId", communityId)
+                .setParameter("userId", userId)
+                .executeUpdate();
+        if (inserted > 0) {
+            eventPublisher.publishEvent(new CommunityMembershipChangedEvent(communityId, userId, true));
+        }
         log.info("Info: пользователь {} присоединился к сообществу {}", userId, communityId);
     }
 
@@ -117,9 +152,21 @@ public class CommunityServiceImpl implements CommunityService {
             throw new IllegalArgumentException("Пользователь не найден");
         }
 
-        community.getMembers().remove(user);
-
-        entityManager.merge(community);
+        // Одно удаление связи без загрузки коллекции участников, счетчик уменьшается только при удаленной связи
+        int deleted = entityManager.createNativeQuery("""
+                WITH deleted AS (
+                    DELETE FROM community_members WHERE community_id = :communityId AND user_id = :userId
+                    RETURNING community_id
+                )
+                UPDATE communities SET member_count = member_count - 1
+                WHERE id IN (SELECT community_id FROM deleted)
+                """)
+                .setParameter("communityId", communityId)
+                .setParameter("userId", userId)
+                .executeUpdate();
+        if (deleted > 0) {
+            eventPublisher.publishEvent(new CommunityMembershipChangedEvent(communityId, userId, false));
+        }
         log.info("info: пользователь {} покинул сообщество {}", userId, communityId);
     }
 
@@ -150,20 +197,36 @@ public class CommunityServiceImpl implements CommunityService {
     }
 
     @Override
-    public List<UserDTO> getCommunityMembers(Long communityId) {
-        Community community = entityManager.find(Community.class, communityId);
-        if (community == null) {
+    public PageDTO<CommunityMemberDTO> getCommunityMembers(Long communityId, Long after, Integer limit) {
+        int pageSize = Pagination.limit(limit);
+
+        // Keyset по первичному ключу community_members(community_id, user_id): одна ограниченная страница за вызов
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT u.id, u.username, u.first_name, u.last_name
+                FROM community_members cm
+                JOIN users u ON u.id = cm.user_id
+                WHERE cm.community_id = :communityId AND cm.user_id > :after
+                ORDER BY cm.user_id
+                LIMIT :limit
+                """)
+                .setParameter("communityId", communityId)
+                .setParameter("after", after != null ? after : 0L)
+                .setParameter("limit", pageSize + 1)
+                .getResultList();
+
+        // Пустая страница - проверяем, существует ли сообщество
+        if (rows.isEmpty() && entityManager.find(Community.class, communityId) == null) {
             log.error("Error: сообщество {} не найдено", communityId);
             throw new IllegalArgumentException("Сообщество не найдено");
         }
 
-        List<UserDTO> result = community.getMembers().stream()
-                .map(userMapper::toDTO)
-                .collect(Collectors.toList());
-
-        log.info("Info: количество участников сообщества {}", result.size());
+        PageDTO<CommunityMemberDTO> page = Pagination.page(rows, pageSize,
+                row -> new CommunityMemberDTO(((Number) row[0]).longValue(), (String) row[1], (String) row[2], (String) row[3]),
+                member -> String.valueOf(member.getId()));
 
-        return result;
+        log.info("Info: страница участников сообщества {}: {}", communityId, page.getItems().size());
+        return page;
     }
 
     @Override
@@ -196,6 +259,7 @@ public class CommunityServiceImpl implements CommunityService {
 
         entityManager.persist(post);
         entityManager.merge(community);
+        eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), userId, communityId, post.getCreatedAt()));
 
         log.info("Info: новый пост {} добавлен в сообщество {}", post.getId(), communityId);
     }
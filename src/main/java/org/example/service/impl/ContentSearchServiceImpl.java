@@ -0,0 +1,83 @@
+package org.example.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.CommentDTO;
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+import org.example.pagination.Pagination;
+import org.example.search.ContentSearchIndex;
+import org.example.search.ContentType;
+import org.example.search.SearchQuery;
+import org.example.service.ContentSearchService;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class ContentSearchServiceImpl implements ContentSearchService {
+
+    @PersistenceContext
+    private final EntityManager entityManager;
+
+    private final ContentSearchIndex searchIndex;
+
+    @Override
+    public PageDTO<PostDTO> searchPosts(String query, String cursor, Integer limit) {
+        PageDTO<Long> ids = searchIds(ContentType.POST, query, cursor, limit);
+        if (ids.getItems().isEmpty()) {
+            return new PageDTO<>(List.of(), null);
+        }
+
+        List<PostDTO> posts = entityManager.createQuery(PostServiceImpl.POST_DTO_SELECT + " WHERE p.id IN :ids", PostDTO.class)
+                .setParameter("ids", ids.getItems())
+                .getResultList();
+
+        log.info("Info: по индексу найдено постов на странице: {}", posts.size());
+        return new PageDTO<>(inIndexOrder(ids.getItems(), posts, PostDTO::getId), ids.getNextCursor());
+    }
+
+    @Override
+    public PageDTO<CommentDTO> searchComments(String query, String cursor, Integer limit) {
+        PageDTO<Long> ids = searchIds(ContentType.COMMENT, query, cursor, limit);
+        if (ids.getItems().isEmpty()) {
+            return new PageDTO<>(List.of(), null);
+        }
+
+        List<CommentDTO> comments = entityManager.createQuery(
+                        "SELECT new org.example.dto.CommentDTO(c.id, c.content, c.author.id, c.post.id, c.createdAt) FROM Comment c WHERE c.id IN :ids", CommentDTO.class)
+                .setParameter("ids", ids.getItems())
+                .getResultList();
+
+        log.info("Info: по индексу найдено комментариев на странице: {}", comments.size());
+        return new PageDTO<>(inIndexOrder(ids.getItems(), comments, CommentDTO::getId), ids.getNextCursor());
+    }
+
+    // Страница id из индекса, от новых к старым. Курсор - последний id страницы
+    private PageDTO<Long> searchIds(ContentType type, String query, String cursor, Integer limit) {
+        SearchQuery parsed = SearchQuery.parse(query);
+        int pageSize = Pagination.limit(limit);
+        long after = Pagination.decodeId(cursor);
+        long before = after == 0 ? Long.MAX_VALUE : after;
+
+        long[] ids = searchIndex.search(type, parsed, before, pageSize + 1);
+        return Pagination.page(Arrays.stream(ids).boxed().toList(), pageSize, Function.identity(), Pagination::encodeId);
+    }
+
+    // Строки из БД в порядке индекса; документ, удаленный до обновления индекса, пропускается
+    private static <T> List<T> inIndexOrder(List<Long> ids, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, T> byId = rows.stream().collect(Collectors.toMap(idOf, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.FriendPathDTO;
+import org.example.dto.UserDTO;
+import org.example.entity.User;
+import org.example.graph.FriendGraph;
+import org.example.mapper.UserMapper;
+import org.example.service.FriendPathService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@Transactional
+public class FriendPathServiceImpl implements FriendPathService {
+
+    private final EntityManager entityManager;
+    private final FriendGraph friendGraph;
+    private final UserMapper userMapper;
+    // Наибольшая длина цепочки в связях
+    private final int maxDepth;
+    // Сколько пользователей поиск может посетить с обеих сторон, прежде чем сдаться
+    private final int maxVisited;
+
+    public FriendPathServiceImpl(EntityManager entityManager,
+                                 FriendGraph friendGraph,
+                                 UserMapper userMapper,
+                                 @Value("${friendships.path.max-depth:6}") int maxDepth,
+                                 @Value("${friendships.path.max-visited:100000}") int maxVisited) {
+        this.entityManager = entityManager;
+        this.friendGraph = friendGraph;
+        this.userMapper = userMapper;
+        this.maxDepth = maxDepth;
+        this.maxVisited = maxVisited;
+    }
+
+    @Override
+    public FriendPathDTO findPath(Long userId, Long targetUserId) {
+        long[] pathIds = friendGraph.shortestPath(userId, targetUserId, maxDepth, maxVisited);
+        if (pathIds == null) {
+            log.info("Info: цепочка друзей между пользователями {} и {} не найдена", userId, targetUserId);
+            return new FriendPathDTO(false, null, List.of());
+        }
+
+        Map<Long, User> users = entityManager.createQuery(
+                "SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id IN :ids", User.class)
+                .setParameter("ids", Arrays.stream(pathIds).boxed().toList())
+                .getResultList()
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        if (users.size() < pathIds.length) {
+            // Целевого пользователя нет или кто-то в цепочке удален
+            log.error("Error: пользователь из цепочки {} не найден", Arrays.toString(pathIds));
+            throw new IllegalArgumentException("Пользователь не найден");
+        }
+
+        List<UserDTO> path = Arrays.stream(pathIds)
+                .mapToObj(id -> userMapper.toDTO(users.get(id)))
+                .toList();
+        log.info("Info: цепочка друзей между пользователями {} и {} длиной {}", userId, targetUserId, pathIds.length - 1);
+        return new FriendPathDTO(true, pathIds.length - 1, path);
+    }
+}
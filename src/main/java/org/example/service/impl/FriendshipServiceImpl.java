@@ -6,17 +6,23 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.dto.FriendshipDTO;
+import org.example.dto.MutualFriendsDTO;
 import org.example.dto.UserDTO;
 import org.example.entity.Friendship;
 import org.example.entity.User;
 import org.example.entity.enums.FriendshipStatus;
+import org.example.event.FriendRequestSentEvent;
+import org.example.event.FriendshipChangedEvent;
+import org.example.graph.FriendGraph;
 import org.example.mapper.FriendshipMapper;
 import org.example.mapper.UserMapper;
+import org.example.pagination.Pagination;
 import org.example.service.FriendshipService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Slf4j
@@ -32,6 +38,10 @@ public class FriendshipServiceImpl implements FriendshipService {
 
     private final UserMapper userMapper;
 
+    private final FriendGraph friendGraph;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     @Override
     public FriendshipDTO sendFriendRequest(Long requesterId, Long receiverId) {
         if (requesterId.equals(receiverId)) {
@@ -47,25 +57,38 @@ public class FriendshipServiceImpl implements FriendshipService {
             throw new IllegalArgumentException("Один из пользователей не найден");
         }
 
-        // Проверка на существующий запрос или дружбу
-        List<Friendship> existing = entityManager.createQuery("SELECT f FROM Friendship f WHERE (f.requester.id = :r1 AND f.receiver.id = :r2) OR (f.requester.id = :r2 AND f.receiver.id = :r1)", Friendship.class)
-                .setParameter("r1", requesterId)
-                .setParameter("r2", receiverId)
+        // Уникальный ключ пары заменяет проверку перед вставкой: при существующем запросе, дружбе
+        // или одновременном встречном запросе INSERT ничего не вставляет
+        LocalDateTime createdAt = LocalDateTime.now();
+        @SuppressWarnings("unchecked")
+        List<Number> inserted = entityManager.createNativeQuery("""
+                INSERT INTO friendships (requester_id, receiver_id, status, created_at, user_low, user_high)
+                VALUES (:requesterId, :receiverId, :status, :createdAt, :low, :high)
+                ON CONFLICT (user_low, user_high) DO NOTHING
+                RETURNING id
+                """)
+                .setParameter("requesterId", requesterId)
+                .setParameter("receiverId", receiverId)
+                .setParameter("status", FriendshipStatus.PENDING.name())
+                .setParameter("createdAt", createdAt)
+                .setParameter("low", Math.min(requesterId, receiverId))
+                .setParameter("high", Math.max(requesterId, receiverId))
                 .getResultList();
 
-        if (!existing.isEmpty()) {
+        if (inserted.isEmpty()) {
             log.error("Error: отношение уже существует между пользователями {} и {}", requesterId, receiverId);
             throw new IllegalArgumentException("Запрос уже существует или пользователи уже друзья");
         }
 
         Friendship friendship = Friendship.builder()
+                .id(inserted.get(0).longValue())
                 .requester(requester)
                 .receiver(receiver)
                 .status(FriendshipStatus.PENDING)
-                .createdAt(LocalDateTime.now())
+                .createdAt(createdAt)
                 .build();
 
-        entityManager.persist(friendship);
+        eventPublisher.publishEvent(new FriendRequestSentEvent(requesterId, receiverId));
         log.info("Info: запрос в друзья отправлен от {} к {}", requesterId, receiverId);
         return friendshipMapper.toDTO(friendship);
     }
@@ -86,6 +109,8 @@ public class FriendshipServiceImpl implements FriendshipService {
 
         friendship.setStatus(FriendshipStatus.ACCEPTED);
         entityManager.merge(friendship);
+        eventPublisher.publishEvent(new FriendshipChangedEvent(
+                friendship.getRequester().getId(), friendship.getReceiver().getId(), true));
 
         log.info("Info: запрос в друзья принят id = {}", requestId);
     }
@@ -112,50 +137,40 @@ public class FriendshipServiceImpl implements FriendshipService {
 
     @Override
     public void removeFriend(Long userId, Long friendId) {
-        List<Friendship> friendships = entityManager.createQuery("SELECT f FROM Friendship f WHERE (f.requester.id = :userId AND f.receiver.id = :friendId) OR (f.requester.id = :friendId AND f.receiver.id = :userId)", Friendship.class)
-                .setParameter("userId", userId)
-                .setParameter("friendId", friendId)
-                .getResultList();
-
-        if (friendships.isEmpty()) {
+        // Удаление одним обращением к уникальному индексу пары, в каком бы направлении ни был запрос
+        int deleted = entityManager.createQuery(
+                "DELETE FROM Friendship f WHERE f.userLow = :low AND f.userHigh = :high")
+                .setParameter("low", Math.min(userId, friendId))
+                .setParameter("high", Math.max(userId, friendId))
+                .executeUpdate();
+
+        if (deleted == 0) {
             log.error("Error: дружба между пользователями {} и {} не найдена", userId, friendId);
             throw new IllegalArgumentException("Дружба не найдена");
         }
 
-        //Удалить все на случай дубликатов
-        for (Friendship friendship : friendships) {
-            entityManager.remove(friendship);
-        }
+        eventPublisher.publishEvent(new FriendshipChangedEvent(userId, friendId, false));
 
         log.info("Info: дружба между пользователями {} и {} удалена", userId, friendId);
     }
 
     @Override
     public List<UserDTO> getFriends(Long userId) {
-        // Получаем друзей, где пользователь является отправителем запроса
-        List<User> friendsAsRequester = entityManager.createQuery(
-                "SELECT f.receiver FROM Friendship f " +
-                "WHERE f.requester.id = :userId AND f.status = :status", User.class)
-                .setParameter("userId", userId)
-                .setParameter("status", FriendshipStatus.ACCEPTED)
-                .getResultList();
+        // id друзей берем из графа в памяти, из БД загружаем только самих пользователей
+        long[] friendIds = friendGraph.friendIds(userId);
+        if (friendIds.length == 0) {
+            log.info("Info: найдено 0 друзей для пользователя {}", userId);
+            return List.of();
+        }
 
-        // Получаем друзей, где пользователь является получателем запроса
-        List<User> friendsAsReceiver = entityManager.createQuery(
-                "SELECT f.requester FROM Friendship f " +
-                "WHERE f.receiver.id = :userId AND f.status = :status", User.class)
-                .setParameter("userId", userId)
-                .setParameter("status", FriendshipStatus.ACCEPTED)
+        List<User> friends = entityManager.createQuery(
+                "SELECT u FROM User u WHERE u.id IN :ids ORDER BY u.id", User.class)
+                .setParameter("ids", Arrays.stream(friendIds).boxed().toList())
                 .getResultList();
 
-        // Объединяем списки
-        List<User> allFriends = new ArrayList<>();
-        allFriends.addAll(friendsAsRequester);
-        allFriends.addAll(friendsAsReceiver);
-
-        log.info("Info: найдено {} друзей для пользователя {}", allFriends.size(), userId);
+        log.info("Info: найдено {} друзей для пользователя {}", friends.size(), userId);
 
-        return allFriends.stream()
+        return friends.stream()
                 .map(userMapper::toDTO)
                 .toList();
     }
@@ -174,4 +189,31 @@ public class FriendshipServiceImpl implements FriendshipService {
                 .map(friendshipMapper::toDTO)
                 .toList();
     }
+
+    @Override
+    public MutualFriendsDTO getMutualFriends(Long userId, Long otherUserId, String cursor, Integer limit) {
+        if (userId.equals(otherUserId)) {
+            log.error("Error: запрос общих друзей пользователя {} с самим собой", userId);
+            throw new IllegalArgumentException("Нельзя запросить общих друзей с самим собой");
+        }
+        int pageSize = Pagination.limit(limit);
+        long after = Pagination.decodeId(cursor);
+
+        // Пересечение отсортированных списков друзей из графа, лишний id означает наличие следующей страницы
+        int count = friendGraph.mutualCount(userId, otherUserId);
+        long[] ids = friendGraph.mutualFriendIds(userId, otherUserId, after, pageSize + 1);
+        List<Long> pageIds = Arrays.stream(ids).limit(pageSize).boxed().toList();
+
+        List<UserDTO> items = pageIds.isEmpty() ? List.of() : entityManager.createQuery(
+                "SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id IN :ids ORDER BY u.id", User.class)
+                .setParameter("ids", pageIds)
+                .getResultList()
+                .stream()
+                .map(userMapper::toDTO)
+                .toList();
+        String nextCursor = ids.length > pageSize ? Pagination.encodeId(pageIds.get(pageIds.size() - 1)) : null;
+
+        log.info("Info: найдено {} общих друзей пользователей {} и {}", count, userId, otherUserId);
+        return new MutualFriendsDTO(count, items, nextCursor);
+    }
 }
@@ -2,20 +2,32 @@ package org.example.service.impl;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.dto.MessageDTO;
+import org.example.dto.MessageEventDTO;
+import org.example.dto.MessageSyncDTO;
+import org.example.dto.PageDTO;
 import org.example.entity.Chat;
 import org.example.entity.Message;
 import org.example.entity.User;
+import org.example.entity.enums.MessageEventType;
+import org.example.event.MessageSentEvent;
 import org.example.mapper.MessageMapper;
+import org.example.pagination.EventCursor;
+import org.example.pagination.KeysetCursor;
+import org.example.pagination.Pagination;
 import org.example.service.MessageService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -23,10 +35,14 @@ import java.util.Optional;
 @Slf4j
 public class MessageServiceImpl implements MessageService {
 
+    // Проекция сразу в MessageDTO: id чата и отправителя берутся из внешних ключей
+    private static final String MESSAGE_DTO_SELECT = "SELECT new org.example.dto.MessageDTO(m.id, m.content, m.chat.id, m.sender.id, m.sentAt) FROM Message m";
+
     @PersistenceContext
     private final EntityManager entityManager;
 
     private final MessageMapper messageMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public MessageDTO sendMessage(Long chatId, Long senderId, MessageDTO messageDTO) {
@@ -50,7 +66,23 @@ public class MessageServiceImpl implements MessageService {
 
         entityManager.persist(message);
         log.info("Info: сообщение отправлено в чат {} от пользователя {} с id (message = {})", chatId, senderId, message.getId());
-        return messageMapper.toDTO(message);
+
+        MessageDTO sent = messageMapper.toDTO(message);
+        List<Long> recipientIds = entityManager.createQuery(
+                "SELECT p.id FROM Chat c JOIN c.participants p WHERE c.id = :chatId", Long.class)
+                .setParameter("chatId", chatId)
+                .getResultList();
+        // Отвечая в чат, отправитель прочитал все, что было до его сообщения
+        entityManager.createNativeQuery(
+                "UPDATE chat_participants SET last_read_message_id = :messageId, last_read_at = :sentAt WHERE chat_id = :chatId AND user_id = :userId")
+                .setParameter("messageId", message.getId())
+                .setParameter("sentAt", message.getSentAt())
+                .setParameter("chatId", chatId)
+                .setParameter("userId", senderId)
+                .executeUpdate();
+        appendEvent(chatId, message.getId(), MessageEventType.CREATED);
+        eventPublisher.publishEvent(new MessageSentEvent(sent, recipientIds));
+        return sent;
     }
 
     @Override
@@ -67,52 +99,63 @@ public class MessageServiceImpl implements MessageService {
 
     @Override
     public List<MessageDTO> getMessageBetweenUsers(Long userId1, Long userId2) {
-        List<Chat> chats = entityManager.createQuery(
-                "SELECT c FROM Chat c JOIN c.participants p1 JOIN c.participants p2 WHERE p1.id = :userId1 AND p2.id = :userId2 AND c.type = :chatType", Chat.class)
-                .setParameter("userId1", userId1)
-                .setParameter("userId2", userId2)
-                .setParameter("chatType", org.example.entity.enums.ChatType.PRIVATE)
-                .getResultList();
-
-        if (chats.isEmpty()) {
-            log.error("Error: чат между пользователями {} и {} не найден", userId1, userId2);
-            return List.of();
-        }
-
-        Chat chat = chats.get(0);
-
-        List<Message> messages = entityManager.createQuery(
-                "SELECT m FROM Message m WHERE m.chat.id = :chatId ORDER BY m.sentAt ASC", Message.class)
-                .setParameter("chatId", chat.getId())
+        // Приватный чат находится по каноническому ключу пары, сообщения читаются тем же запросом
+        List<MessageDTO> messages = entityManager.createQuery(
+                MESSAGE_DTO_SELECT + " WHERE m.chat.id = (SELECT c.id FROM Chat c WHERE c.minUserId = :low AND c.maxUserId = :high) ORDER BY m.sentAt ASC", MessageDTO.class)
+                .setParameter("low", Math.min(userId1, userId2))
+                .setParameter("high", Math.max(userId1, userId2))
                 .getResultList();
 
         log.info("Info: найдено {} сообщений между пользователями {} и {}", messages.size(), userId1, userId2);
-
-        return messages.stream()
-                .map(messageMapper::toDTO)
-                .toList();
+        return messages;
     }
 
     @Override
     public List<MessageDTO> getAllMessagesForUser(Long userId) {
-        List<Long> chatIds = entityManager.createQuery("SELECT c.id FROM Chat c JOIN c.participants p WHERE p.id = :userId", Long.class)
+        List<MessageDTO> messages = entityManager.createQuery(
+                MESSAGE_DTO_SELECT + " WHERE m.chat.id IN (SELECT c.id FROM Chat c JOIN c.participants p WHERE p.id = :userId) ORDER BY m.sentAt ASC", MessageDTO.class)
                 .setParameter("userId", userId)
                 .getResultList();
 
-        if (chatIds.isEmpty()) {
-            log.error("Error: у пользователя {} нет чатов", userId);
-            return List.of();
+        log.info("Info: найдено {} сообщения пользователя {}", messages.size(), userId);
+        return messages;
+    }
+
+    @Override
+    public PageDTO<MessageDTO> getChatMessages(Long chatId, Long userId, String before, Integer limit) {
+        int pageSize = Pagination.limit(limit);
+        KeysetCursor position = Pagination.decode(before);
+
+        // Проверка участия - одно обращение к первичному ключу chat_participants
+        Boolean participant = (Boolean) entityManager.createNativeQuery(
+                "SELECT EXISTS (SELECT 1 FROM chat_participants WHERE chat_id = :chatId AND user_id = :userId)")
+                .setParameter("chatId", chatId)
+                .setParameter("userId", userId)
+                .getSingleResult();
+        if (!participant) {
+            log.error("Error: пользователь {} не является участником чата {}", userId, chatId);
+            throw new SecurityException("Только участник может читать сообщения чата");
+        }
+
+        // Keyset по (sent_at, id) от новых к старым: страница - один проход по idx_messages_chat_sent_at_id
+        TypedQuery<MessageDTO> query;
+        if (position == null) {
+            query = entityManager.createQuery(MESSAGE_DTO_SELECT + " WHERE m.chat.id = :chatId ORDER BY m.sentAt DESC, m.id DESC", MessageDTO.class);
+        } else {
+            query = entityManager.createQuery(MESSAGE_DTO_SELECT + " WHERE m.chat.id = :chatId AND (m.sentAt, m.id) < (:sentAt, :id) ORDER BY m.sentAt DESC, m.id DESC", MessageDTO.class)
+                    .setParameter("sentAt", position.getTimestamp())
+                    .setParameter("id", position.getId());
         }
 
-        List<Message> messages = entityManager.createQuery("SELECT m FROM Message m WHERE m.chat.id IN :chatIds ORDER BY m.sentAt ASC", Message.class)
-                .setParameter("chatIds", chatIds)
+        List<MessageDTO> messages = query.setParameter("chatId", chatId)
+                .setMaxResults(pageSize + 1)
                 .getResultList();
 
-        log.info("Info: найдено {} сообщения пользователя {}", messages.size(), userId);
+        PageDTO<MessageDTO> result = Pagination.page(messages, pageSize, Function.identity(),
+                dto -> Pagination.encode(dto.getSentAt(), dto.getId()));
 
-        return messages.stream()
-                .map(messageMapper::toDTO)
-                .toList();
+        log.info("Info: найдено сообщений чата {} на странице: {}", chatId, result.getItems().size());
+        return result;
     }
 
     @Override
@@ -121,9 +164,80 @@ public class MessageServiceImpl implements MessageService {
         if (message != null) {
             log.info("Info: сообщение {} удалено", messageId);
             entityManager.remove(message);
+            appendEvent(message.getChat().getId(), messageId, MessageEventType.DELETED);
         }
         else {
             log.error("Error: сообщение с id {} не найдено и не может быть удалено", messageId);
         }
     }
+
+    @Override
+    public MessageSyncDTO syncMessages(Long userId, String since, Integer limit) {
+        int pageSize = Pagination.limit(limit);
+        EventCursor position = Pagination.decodeEvent(since);
+
+        // События всех чатов пользователя после водяного знака по idx_message_events_chat_xact_id
+        // и адресные события пользователя (удаление чата) по idx_message_events_user_xact_id.
+        // Отдаются только события транзакций старше xmin снимка: такие транзакции завершены, а любая
+        // еще идущая получит id не меньше xmin - водяной знак не обгонит событие, которое еще пишется.
+        // Порядок id событий с порядком коммитов не совпадает, поэтому сортировка по (xact_id, id)
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT e.id, e.type, e.chat_id, e.message_id, m.content, m.sender_id, m.sent_at, e.xact_id
+                FROM (
+                    SELECT e.id, e.type, e.chat_id, e.message_id, e.xact_id
+                    FROM message_events e
+                    JOIN chat_participants cp ON cp.chat_id = e.chat_id AND cp.user_id = :userId
+                    WHERE e.user_id IS NULL AND (e.xact_id, e.id) > (:sinceXact, :sinceId)
+                    UNION ALL
+                    SELECT e.id, e.type, e.chat_id, e.message_id, e.xact_id
+                    FROM message_events e
+                    WHERE e.user_id = :userId AND (e.xact_id, e.id) > (:sinceXact, :sinceId)
+                ) e
+                LEFT JOIN messages m ON m.id = e.message_id AND e.type = 'CREATED'
+                WHERE e.xact_id < CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text) AS bigint)
+                ORDER BY e.xact_id, e.id
+                """)
+                .setParameter("userId", userId)
+                .setParameter("sinceXact", position.getXactId())
+                .setParameter("sinceId", position.getId())
+                .setMaxResults(pageSize + 1)
+                .getResultList();
+
+        List<Object[]> page = rows.stream().limit(pageSize).toList();
+        List<MessageEventDTO> events = page.stream()
+                .map(this::toEventDTO)
+                .toList();
+        Object[] last = page.isEmpty() ? null : page.get(page.size() - 1);
+        String watermark = last == null
+                ? Pagination.encodeEvent(position.getXactId(), position.getId())
+                : Pagination.encodeEvent(((Number) last[7]).longValue(), ((Number) last[0]).longValue());
+
+        log.info("Info: синхронизация пользователя {}: {} событий", userId, events.size());
+        return new MessageSyncDTO(events, watermark, rows.size() > pageSize);
+    }
+
+    // xact_id заполняется по умолчанию id текущей транзакции - без общей блокировки,
+    // параллельные отправки не ждут коммитов друг друга
+    private void appendEvent(Long chatId, Long messageId, MessageEventType type) {
+        entityManager.createNativeQuery("INSERT INTO message_events (chat_id, message_id, type) VALUES (:chatId, :messageId, :type)")
+                .setParameter("chatId", chatId)
+                .setParameter("messageId", messageId)
+                .setParameter("type", type.name())
+                .executeUpdate();
+    }
+
+    private MessageEventDTO toEventDTO(Object[] row) {
+        MessageEventType type = MessageEventType.valueOf((String) row[1]);
+        Long chatId = ((Number) row[2]).longValue();
+        Long messageId = row[3] == null ? null : ((Number) row[3]).longValue();
+        MessageDTO message = row[4] == null ? null : MessageDTO.builder()
+                .id(messageId)
+                .content((String) row[4])
+                .chatId(chatId)
+                .senderId(((Number) row[5]).longValue())
+                .sentAt(row[6] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) row[6])
+                .build();
+        return new MessageEventDTO(((Number) row[0]).longValue(), type, chatId, messageId, message);
+    }
 }
@@ -1,21 +1,35 @@
 package org.example.service.impl;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.dto.PageDTO;
 import org.example.dto.PostDTO;
+import org.example.entity.Comment;
 import org.example.entity.Community;
 import org.example.entity.Post;
 import org.example.entity.User;
+import org.example.event.ContentChangedEvent;
+import org.example.event.PostCreatedEvent;
 import org.example.mapper.PostMapper;
+import org.example.pagination.KeysetCursor;
+import org.example.pagination.Pagination;
+import org.example.pagination.RankCursor;
+import org.example.search.ContentType;
 import org.example.service.PostService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -23,11 +37,19 @@ import java.util.Optional;
 @Transactional
 public class PostServiceImpl implements PostService {
 
+    // Проекция сразу в PostDTO: автор читается тем же запросом, без догрузки ленивых связей
+    static final String POST_DTO_SELECT = "SELECT new org.example.dto.PostDTO(p.id, p.content, a.id, a.username, p.community.id, p.createdAt) FROM Post p JOIN p.author a";
+
+    // Сколько самых новых совпадений ранжируется при поиске
+    static final int SEARCH_RANK_WINDOW = 10_000;
+
     @PersistenceContext
     private final EntityManager entityManager;
 
     private final PostMapper postMapper;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     @Override
     public PostDTO createPostUser(Long userId, PostDTO postDTO) {
         if (postDTO.getContent() == null) {
@@ -44,6 +66,8 @@ public class PostServiceImpl implements PostService {
         post.setAuthor(user);
         post.setCreatedAt(LocalDateTime.now());
         entityManager.persist(post);
+        eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), userId, null, post.getCreatedAt()));
+        eventPublisher.publishEvent(new ContentChangedEvent(ContentType.POST, post.getId(), null, post.getContent()));
         log.info("Info: создан пост с id {} для пользователя {}", post.getId(), userId);
         return postMapper.toDTO(post);
     }
@@ -64,6 +88,8 @@ public class PostServiceImpl implements PostService {
         post.setCommunity(community);
         post.setCreatedAt(LocalDateTime.now());
         entityManager.persist(post);
+        eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), postDTO.getAuthorId(), communityId, post.getCreatedAt()));
+        eventPublisher.publishEvent(new ContentChangedEvent(ContentType.POST, post.getId(), null, post.getContent()));
         log.info("Info: создан пост с id {} для сообщества {}", post.getId(), communityId);
         return postMapper.toDTO(post);
     }
@@ -81,76 +107,178 @@ public class PostServiceImpl implements PostService {
 
     @Override
     public List<PostDTO> getPostsByUserId(Long userId) {
-        User user = entityManager.find(User.class, userId);
-        if (user == null) {
+        List<PostDTO> result = entityManager.createQuery(POST_DTO_SELECT + " WHERE a.id = :userId", PostDTO.class)
+                .setParameter("userId", userId)
+                .getResultList();
+
+        // Пустой результат - проверяем, существует ли пользователь
+        if (result.isEmpty() && entityManager.find(User.class, userId) == null) {
             log.error("Error: пользователь с id {} не найден", userId);
             throw new IllegalArgumentException("Пользователь не найден");
         }
 
-        List<Post> posts = entityManager.createQuery("SELECT p FROM Post p WHERE p.author.id = :userId", Post.class).setParameter("userId", userId).getResultList();
-
-        List<PostDTO> result = posts.stream()
-                .map(postMapper::toDTO)
-                .toList();
-
         log.info("Info: найдено постов пользователя {}: {}", userId, result.size());
         return result;
     }
 
     @Override
     public List<PostDTO> getPostsByCommunityId(Long communityId) {
-        Community community = entityManager.find(Community.class, communityId);
-        if (community == null) {
+        List<PostDTO> result = entityManager.createQuery(POST_DTO_SELECT + " WHERE p.community.id = :communityId", PostDTO.class)
+                .setParameter("communityId", communityId)
+                .getResultList();
+
+        // Пустой результат - проверяем, существует ли сообщество
+        if (result.isEmpty() && entityManager.find(Community.class, communityId) == null) {
             log.error("Error: сообщество с id {} не найдено", communityId);
             throw new IllegalArgumentException("Сообщество не найдено");
         }
 
-        List<Post> posts = entityManager.createQuery("SELECT p FROM Post p WHERE p.community.id = :communityId", Post.class).setParameter("communityId", communityId).getResultList();
+        log.info("Info: найдено постов сообщества {}: {}", communityId, result.size());
+        return result;
+    }
+
+    @Override
+    public PageDTO<PostDTO> getPostsPage(String cursor, Integer limit) {
+        int pageSize = Pagination.limit(limit);
+        KeysetCursor position = Pagination.decode(cursor);
+
+        // Keyset по (created_at, id): каждая страница - один проход по индексу idx_posts_created_at_id
+        TypedQuery<PostDTO> query;
+        if (position == null) {
+            query = entityManager.createQuery(POST_DTO_SELECT + " ORDER BY p.createdAt DESC, p.id DESC", PostDTO.class);
+        } else {
+            query = entityManager.createQuery(POST_DTO_SELECT + " WHERE (p.createdAt, p.id) < (:createdAt, :id) ORDER BY p.createdAt DESC, p.id DESC", PostDTO.class)
+                    .setParameter("createdAt", position.getTimestamp())
+                    .setParameter("id", position.getId());
+        }
+
+        List<PostDTO> posts = query.setMaxResults(pageSize + 1).getResultList();
 
-        List<PostDTO> result = posts.stream()
-                .map(postMapper::toDTO)
-                .toList();
+        PageDTO<PostDTO> result = Pagination.page(posts, pageSize, Function.identity(),
+                dto -> Pagination.encode(dto.getCreateAt(), dto.getId()));
 
-        log.info("Info: найдено постов сообщества {}: {}", communityId, result.size());
+        log.info("Info: найдено постов на странице: {}", result.getItems().size());
         return result;
     }
 
     @Override
-    public List<PostDTO> getAllPosts() {
-        List<Post> posts = entityManager.createQuery("SELECT p FROM Post p", Post.class).getResultList();
+    public PageDTO<PostDTO> searchPosts(String query, Long communityId, Long authorId, String cursor, Integer limit) {
+        if (query == null || query.isBlank()) {
+            log.error("Error: пустой поисковый запрос");
+            throw new IllegalArgumentException("Поисковый запрос не может быть пустым");
+        }
+        int pageSize = Pagination.limit(limit);
+        RankCursor position = Pagination.decodeRank(cursor);
+
+        // Совпадения отбираются по GIN индексу idx_posts_search_vector, websearch_to_tsquery разбирает
+        // произвольный ввод без синтаксических ошибок. ts_rank считается только для SEARCH_RANK_WINDOW
+        // самых новых совпадений: у частых слов их сотни тысяч, и ранжирование всех стоит секунды
+        StringBuilder matches = new StringBuilder("""
+                SELECT p.id, p.content, p.author_id, p.community_id, p.created_at, p.search_vector
+                FROM posts p
+                WHERE p.search_vector @@ q.query
+                """);
+        if (communityId != null) {
+            matches.append(" AND p.community_id = :communityId");
+        }
+        if (authorId != null) {
+            matches.append(" AND p.author_id = :authorId");
+        }
+        matches.append(" ORDER BY p.id DESC LIMIT :window");
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT m.id, m.content, a.id AS author_id, a.username, m.community_id, m.created_at,
+                       CAST(ts_rank(m.search_vector, q.query) AS float8) AS rank
+                FROM websearch_to_tsquery('russian', :query) AS q(query)
+                CROSS JOIN LATERAL (%s) m
+                LEFT JOIN users a ON a.id = m.author_id
+                """.formatted(matches));
+        if (position != null) {
+            sql.append(" WHERE (CAST(ts_rank(m.search_vector, q.query) AS float8), m.id) < (:rank, :id)");
+        }
+        sql.append(" ORDER BY rank DESC, m.id DESC LIMIT :limit");
+
+        Query search = entityManager.createNativeQuery(sql.toString())
+                .setParameter("query", query)
+                .setParameter("window", SEARCH_RANK_WINDOW)
+                .setParameter("limit", pageSize + 1);
+        if (communityId != null) {
+            search.setParameter("communityId", communityId);
+        }
+        if (authorId != null) {
+            search.setParameter("authorId", authorId);
+        }
+        if (position != null) {
+            search.setParameter("rank", position.getRank())
+                    .setParameter("id", position.getId());
+        }
 
-        List<PostDTO> result = posts.stream()
-                .map(postMapper::toDTO)
-                .toList();
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = search.getResultList();
 
-        log.info("Info: найдено всего постов: {}", result.size());
+        // Релевантность последней строки нужна для курсора, в PostDTO ее нет
+        PageDTO<SearchHit> hits = Pagination.page(rows, pageSize, PostServiceImpl::toSearchHit,
+                hit -> Pagination.encodeRank(hit.rank(), hit.post().getId()));
+        PageDTO<PostDTO> result = new PageDTO<>(hits.getItems().stream().map(SearchHit::post).toList(), hits.getNextCursor());
+
+        log.info("Info: по запросу найдено постов на странице: {}", result.getItems().size());
         return result;
     }
 
     @Override
     public PostDTO updatePost(Long postId, PostDTO updatedPost) {
-        Post post = entityManager.find(Post.class, postId);
+        // Блокировка строки: параллельные правки идут по очереди, и oldContent каждой - текст предыдущей
+        Post post = entityManager.find(Post.class, postId, LockModeType.PESSIMISTIC_WRITE);
         if(post == null) {
             log.error("Error: пост не найден с id {}", postId);
             throw new IllegalArgumentException("пост не найден с id: " + postId);
         }
 
+        String oldContent = post.getContent();
         post.setContent(updatedPost.getContent());
+        post.setContentVersion(post.getContentVersion() + 1);
 
         entityManager.merge(post);
+        eventPublisher.publishEvent(new ContentChangedEvent(ContentType.POST, post.getId(), oldContent, post.getContent()));
         log.info("Info: пост с id {} обновлен", post.getId());
         return postMapper.toDTO(post);
     }
 
     @Override
     public void deletePost(Long postId) {
-        Post post = entityManager.find(Post.class, postId);
+        // Удаляемый текст - последняя правка: правка, ждущая блокировку, после удаления не найдет пост
+        Post post = entityManager.find(Post.class, postId, LockModeType.PESSIMISTIC_WRITE);
         if (post != null) {
             log.info("Info: пост удален: id {}", post.getId());
+            // Комментарии все равно загружаются для каскадного удаления, поэтому их обход не добавляет запросов
+            if (post.getComments() != null) {
+                for (Comment comment : post.getComments()) {
+                    eventPublisher.publishEvent(new ContentChangedEvent(ContentType.COMMENT, comment.getId(), comment.getContent(), null));
+                }
+            }
+            eventPublisher.publishEvent(new ContentChangedEvent(ContentType.POST, post.getId(), post.getContent(), null));
             entityManager.remove(post);
         }
         else {
             log.error("Error: пост с id {} не найден и не может быть удалён", postId);
         }
     }
+
+    private static SearchHit toSearchHit(Object[] row) {
+        PostDTO post = new PostDTO(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                row[2] != null ? ((Number) row[2]).longValue() : null,
+                (String) row[3],
+                row[4] != null ? ((Number) row[4]).longValue() : null,
+                toLocalDateTime(row[5]));
+        return new SearchHit(post, ((Number) row[6]).doubleValue());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private record SearchHit(PostDTO post, double rank) {
+    }
 }
@@ -0,0 +1,82 @@
+package org.example.service.impl;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Ограниченный LRU-кэш рекомендаций: id пользователя -> ранжированные кандидаты.
+// Поколения ведутся по пользователям: инвалидация увеличивает поколение только затронутых id,
+// и результат, посчитанный до нее, в кэш не попадает. Поколения хранятся в фиксированном числе полос
+// по хешу id - память не растет с числом пользователей, а совпадение полосы дает лишь лишний пересчет
+class SuggestionCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    SuggestionCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > SuggestionCache.this.maxSize;
+            }
+        };
+    }
+
+    // Кандидаты из кэша или null, если записи нет или она устарела
+    List<SuggestionServiceImpl.ScoredCandidate> get(Long userId, long nowMillis) {
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAtMillis() <= nowMillis) {
+                entries.remove(userId);
+                return null;
+            }
+            return entry.candidates();
+        }
+    }
+
+    long generation(Long userId) {
+        return generations.get(stripe(userId));
+    }
+
+    // Сохраняет результат, только если с начала его подсчета пользователь не инвалидировался
+    void put(Long userId, List<SuggestionServiceImpl.ScoredCandidate> candidates, long computedAtGeneration, long nowMillis) {
+        synchronized (entries) {
+            if (generations.get(stripe(userId)) == computedAtGeneration) {
+                entries.put(userId, new Entry(candidates, nowMillis + ttlMillis));
+            }
+        }
+    }
+
+    void invalidate(Collection<Long> userIds) {
+        synchronized (entries) {
+            for (Long userId : userIds) {
+                generations.incrementAndGet(stripe(userId));
+                entries.remove(userId);
+            }
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static int stripe(Long userId) {
+        return Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (GENERATION_STRIPES - 1);
+    }
+
+    private record Entry(List<SuggestionServiceImpl.ScoredCandidate> candidates, long expiresAtMillis) {
+    }
+}
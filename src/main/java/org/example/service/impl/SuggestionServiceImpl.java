@@ -0,0 +1,173 @@
+package org.example.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.SuggestionDTO;
+import org.example.dto.UserDTO;
+import org.example.entity.User;
+import org.example.event.FriendRequestSentEvent;
+import org.example.event.FriendshipChangedEvent;
+import org.example.graph.Candidates;
+import org.example.graph.FriendGraph;
+import org.example.mapper.UserMapper;
+import org.example.pagination.Pagination;
+import org.example.service.SuggestionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@Transactional
+public class SuggestionServiceImpl implements SuggestionService {
+
+    // Сколько кандидатов с наибольшим числом общих друзей добирают баллы за общие сообщества
+    static final int SHORTLIST_SIZE = 2 * Pagination.MAX_LIMIT;
+
+    private static final Comparator<ScoredCandidate> BEST_FIRST = Comparator
+            .comparingInt(ScoredCandidate::score).reversed()
+            .thenComparingLong(ScoredCandidate::userId);
+
+    private final EntityManager entityManager;
+    private final FriendGraph friendGraph;
+    private final UserMapper userMapper;
+    private final ForkJoinPool pool;
+    // Сверх этого числа друзья пользователя при обходе второго круга не учитываются
+    private final int maxFriendsScanned;
+    private final SuggestionCache cache;
+
+    public SuggestionServiceImpl(EntityManager entityManager,
+                                 FriendGraph friendGraph,
+                                 UserMapper userMapper,
+                                 @Value("${suggestions.parallelism:4}") int parallelism,
+                                 @Value("${suggestions.max-friends-scanned:1000}") int maxFriendsScanned,
+                                 @Value("${suggestions.cache-size:10000}") int cacheSize,
+                                 @Value("${suggestions.cache-ttl-ms:600000}") long cacheTtlMillis) {
+        this.entityManager = entityManager;
+        this.friendGraph = friendGraph;
+        this.userMapper = userMapper;
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxFriendsScanned = maxFriendsScanned;
+        this.cache = new SuggestionCache(cacheSize, cacheTtlMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public List<SuggestionDTO> getSuggestions(Long userId, Integer limit) {
+        int pageSize = Pagination.limit(limit);
+
+        List<ScoredCandidate> ranked = cache.get(userId, System.currentTimeMillis());
+        if (ranked == null) {
+            long generation = cache.generation(userId);
+            ranked = rank(userId);
+            cache.put(userId, ranked, generation, System.currentTimeMillis());
+        }
+
+        List<ScoredCandidate> page = ranked.subList(0, Math.min(pageSize, ranked.size()));
+        if (page.isEmpty()) {
+            log.info("Info: рекомендаций для пользователя {} нет", userId);
+            return List.of();
+        }
+
+        Map<Long, User> users = entityManager.createQuery(
+                "SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id IN :ids", User.class)
+                .setParameter("ids", page.stream().map(ScoredCandidate::userId).toList())
+                .getResultList()
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        log.info("Info: найдено {} рекомендаций для пользователя {}", page.size(), userId);
+        // Кандидат мог быть удален после подсчета - пропускаем его
+        return page.stream()
+                .filter(candidate -> users.containsKey(candidate.userId()))
+                .map(candidate -> {
+                    UserDTO user = userMapper.toDTO(users.get(candidate.userId()));
+                    return new SuggestionDTO(user, candidate.mutualFriends(), candidate.sharedCommunities());
+                })
+                .toList();
+    }
+
+    // Инвалидация: запрос в друзья меняет исключения двух пользователей,
+    // новая или удаленная дружба - еще и второй круг их друзей
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFriendRequestSent(FriendRequestSentEvent event) {
+        cache.invalidate(List.of(event.getRequesterId(), event.getReceiverId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        Set<Long> affected = new HashSet<>();
+        affected.add(event.getUserId1());
+        affected.add(event.getUserId2());
+        for (long friendId : friendGraph.friendIds(event.getUserId1())) {
+            affected.add(friendId);
+        }
+        for (long friendId : friendGraph.friendIds(event.getUserId2())) {
+            affected.add(friendId);
+        }
+        cache.invalidate(affected);
+    }
+
+    private List<ScoredCandidate> rank(Long userId) {
+        // Исключаются все, с кем уже есть запрос в любую сторону или отклоненный запрос
+        @SuppressWarnings("unchecked")
+        List<Number> related = entityManager.createNativeQuery("""
+                SELECT CASE WHEN requester_id = :userId THEN receiver_id ELSE requester_id END
+                FROM friendships
+                WHERE requester_id = :userId OR receiver_id = :userId
+                """)
+                .setParameter("userId", userId)
+                .getResultList();
+        long[] excluded = related.stream().mapToLong(Number::longValue).sorted().toArray();
+
+        Candidates shortlist = friendGraph.secondDegree(userId, excluded, maxFriendsScanned, SHORTLIST_SIZE, pool);
+        if (shortlist.size() == 0) {
+            return List.of();
+        }
+
+        List<Long> candidateIds = Arrays.stream(shortlist.userIds()).boxed().toList();
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT cm.user_id, COUNT(*)
+                FROM community_members mine
+                JOIN community_members cm ON cm.community_id = mine.community_id
+                WHERE mine.user_id = :userId AND cm.user_id IN (:candidateIds)
+                GROUP BY cm.user_id
+                """)
+                .setParameter("userId", userId)
+                .setParameter("candidateIds", candidateIds)
+                .getResultList();
+        Map<Long, Integer> sharedCommunities = new HashMap<>();
+        for (Object[] row : rows) {
+            sharedCommunities.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+
+        List<ScoredCandidate> ranked = new ArrayList<>(shortlist.size());
+        for (int i = 0; i < shortlist.size(); i++) {
+            long candidateId = shortlist.userIds()[i];
+            ranked.add(new ScoredCandidate(candidateId, shortlist.mutualCounts()[i],
+                    sharedCommunities.getOrDefault(candidateId, 0)));
+        }
+        ranked.sort(BEST_FIRST);
+        return List.copyOf(ranked.subList(0, Math.min(Pagination.MAX_LIMIT, ranked.size())));
+    }
+
+    record ScoredCandidate(long userId, int mutualFriends, int sharedCommunities) {
+
+        int score() {
+            return mutualFriends * MUTUAL_FRIEND_WEIGHT + sharedCommunities * SHARED_COMMUNITY_WEIGHT;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.example.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+import org.example.entity.enums.FriendshipStatus;
+import org.example.event.PostCreatedEvent;
+import org.example.membership.CommunityMembershipIndex;
+import org.example.pagination.KeysetCursor;
+import org.example.pagination.Pagination;
+import org.example.service.TimelineService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@Transactional
+public class TimelineServiceImpl implements TimelineService {
+
+    static final String SOURCE_AUTHOR = "AUTHOR";
+    static final String SOURCE_COMMUNITY = "COMMUNITY";
+
+    private static final Comparator<FeedItem> NEWEST_FIRST = Comparator
+            .comparing(FeedItem::createdAt)
+            .thenComparing(FeedItem::postId)
+            .reversed();
+
+    private final EntityManager entityManager;
+    private final CommunityMembershipIndex membershipIndex;
+    // Аудитория, выше которой пост не раскладывается по лентам, а дочитывается при запросе
+    private final long fanOutThreshold;
+
+    public TimelineServiceImpl(EntityManager entityManager,
+                               CommunityMembershipIndex membershipIndex,
+                               @Value("${feed.fanout-threshold:1000}") long fanOutThreshold) {
+        this.entityManager = entityManager;
+        this.membershipIndex = membershipIndex;
+        this.fanOutThreshold = fanOutThreshold;
+    }
+
+    @Override
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void fanOut(PostCreatedEvent event) {
+        if (event.getAuthorId() != null) {
+            entityManager.createNativeQuery("""
+                    INSERT INTO timeline_entries (user_id, post_id, created_at)
+                    VALUES (:userId, :postId, :createdAt)
+                    ON CONFLICT DO NOTHING
+                    """)
+                    .setParameter("userId", event.getAuthorId())
+                    .setParameter("postId", event.getPostId())
+                    .setParameter("createdAt", event.getCreatedAt())
+                    .executeUpdate();
+        }
+
+        if (event.getCommunityId() != null) {
+            fanOutToCommunity(event);
+        } else if (event.getAuthorId() != null) {
+            fanOutToFriends(event);
+        }
+    }
+
+    private void fanOutToCommunity(PostCreatedEvent event) {
+        // Размер аудитории берется из индекса участников, без запроса к БД
+        long audience = membershipIndex.memberCount(event.getCommunityId());
+
+        if (audience > fanOutThreshold) {
+            registerPullSource(SOURCE_COMMUNITY, event.getCommunityId());
+            log.info("Info: пост {} не разложен по лентам, в сообществе {} участников: {}", event.getPostId(), event.getCommunityId(), audience);
+            return;
+        }
+
+        int inserted = entityManager.createNativeQuery("""
+                INSERT INTO timeline_entries (user_id, post_id, created_at)
+                SELECT cm.user_id, :postId, :createdAt
+                FROM community_members cm
+                WHERE cm.community_id = :communityId
+                ON CONFLICT DO NOTHING
+                """)
+                .setParameter("postId", event.getPostId())
+                .setParameter("createdAt", event.getCreatedAt())
+                .setParameter("communityId", event.getCommunityId())
+                .executeUpdate();
+
+        log.info("Info: пост {} разложен по лентам участников сообщества {}: {}", event.getPostId(), event.getCommunityId(), inserted);
+    }
+
+    private void fanOutToFriends(PostCreatedEvent event) {
+        long audience = ((Number) entityManager.createNativeQuery("""
+                        SELECT COUNT(*) FROM friendships f
+                        WHERE (f.requester_id = :authorId OR f.receiver_id = :authorId) AND f.status = :status
+                        """)
+                .setParameter("authorId", event.getAuthorId())
+                .setParameter("status", FriendshipStatus.ACCEPTED.name())
+                .getSingleResult()).longValue();
+
+        if (audience > fanOutThreshold) {
+            registerPullSource(SOURCE_AUTHOR, event.getAuthorId());
+            log.info("Info: пост {} не разложен по лентам, у автора {} друзей: {}", event.getPostId(), event.getAuthorId(), audience);
+            return;
+        }
+
+        int inserted = entityManager.createNativeQuery("""
+                INSERT INTO timeline_entries (user_id, post_id, created_at)
+                SELECT CASE WHEN f.requester_id = :authorId THEN f.receiver_id ELSE f.requester_id END, :postId, :createdAt
+                FROM friendships f
+                WHERE (f.requester_id = :authorId OR f.receiver_id = :authorId) AND f.status = :status
+                ON CONFLICT DO NOTHING
+                """)
+                .setParameter("authorId", event.getAuthorId())
+                .setParameter("postId", event.getPostId())
+                .setParameter("createdAt", event.getCreatedAt())
+                .setParameter("status", FriendshipStatus.ACCEPTED.name())
+                .executeUpdate();
+
+        log.info("Info: пост {} разложен по лентам друзей автора {}: {}", event.getPostId(), event.getAuthorId(), inserted);
+    }
+
+    private void registerPullSource(String sourceType, Long sourceId) {
+        entityManager.createNativeQuery("""
+                INSERT INTO timeline_pull_sources (source_type, source_id)
+                VALUES (:sourceType, :sourceId)
+                ON CONFLICT DO NOTHING
+                """)
+                .setParameter("sourceType", sourceType)
+                .setParameter("sourceId", sourceId)
+                .executeUpdate();
+    }
+
+    @Override
+    public PageDTO<PostDTO> getFeed(Long userId, String cursor, Integer limit) {
+        int pageSize = Pagination.limit(limit);
+        KeysetCursor position = Pagination.decode(cursor);
+
+        // Материализованная часть ленты
+        List<FeedItem> candidates = new ArrayList<>(selectFeedItems("""
+                SELECT te.post_id, te.created_at FROM timeline_entries te
+                WHERE te.user_id = :userId %s
+                ORDER BY te.created_at DESC, te.post_id DESC
+                """, "te.created_at", "te.post_id", position, pageSize, Map.of("userId", userId)));
+
+        // Дочитываем посты источников, которые не раскладываются по лентам
+        Map<String, List<Long>> pullSources = findPullSources(userId);
+        List<Long> authorIds = pullSources.getOrDefault(SOURCE_AUTHOR, List.of());
+        List<Long> communityIds = pullSources.getOrDefault(SOURCE_COMMUNITY, List.of());
+
+        if (!authorIds.isEmpty()) {
+            candidates.addAll(selectFeedItems("""
+                    SELECT p.id, p.created_at FROM posts p
+                    WHERE p.author_id IN (:authorIds) AND p.community_id IS NULL %s
+                    ORDER BY p.created_at DESC, p.id DESC
+                    """, "p.created_at", "p.id", position, pageSize, Map.of("authorIds", authorIds)));
+        }
+        if (!communityIds.isEmpty()) {
+            candidates.addAll(selectFeedItems("""
+                    SELECT p.id, p.created_at FROM posts p
+                    WHERE p.community_id IN (:communityIds) %s
+                    ORDER BY p.created_at DESC, p.id DESC
+                    """, "p.created_at", "p.id", position, pageSize, Map.of("communityIds", communityIds)));
+        }
+
+        List<FeedItem> merged = candidates.stream()
+                .collect(Collectors.toMap(FeedItem::postId, Function.identity(), (a, b) -> a))
+                .values().stream()
+                .sorted(NEWEST_FIRST)
+                .limit(pageSize + 1L)
+                .toList();
+
+        Map<Long, PostDTO> posts = loadPosts(merged);
+        List<PostDTO> ordered = merged.stream()
+                .map(item -> posts.get(item.postId()))
+                .filter(Objects::nonNull)
+                .toList();
+
+        PageDTO<PostDTO> result = Pagination.page(ordered, pageSize, Function.identity(),
+                dto -> Pagination.encode(dto.getCreateAt(), dto.getId()));
+
+        log.info("Info: лента пользователя {}: {} постов, источников без раскладки {}", userId, result.getItems().size(), authorIds.size() + communityIds.size());
+        return result;
+    }
+
+    // Страница (post_id, created_at) в порядке убывания, keyset-условие подставляется вместо %s
+    @SuppressWarnings("unchecked")
+    private List<FeedItem> selectFeedItems(String sql, String createdAtColumn, String idColumn,
+                                           KeysetCursor position, int pageSize, Map<String, Object> parameters) {
+        String keyset = position == null
+                ? ""
+                : "AND (" + createdAtColumn + ", " + idColumn + ") < (:cursorCreatedAt, :cursorId)";
+        Query query = entityManager.createNativeQuery(sql.formatted(keyset) + " LIMIT :limit")
+                .setParameter("limit", pageSize + 1);
+        if (position != null) {
+            query.setParameter("cursorCreatedAt", position.getTimestamp())
+                    .setParameter("cursorId", position.getId());
+        }
+        parameters.forEach(query::setParameter);
+
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(row -> new FeedItem(((Number) row[0]).longValue(), toLocalDateTime(row[1])))
+                .toList();
+    }
+
+    private Map<String, List<Long>> findPullSources(Long userId) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT ps.source_type, ps.source_id FROM timeline_pull_sources ps
+                WHERE (ps.source_type = :author AND EXISTS (
+                        SELECT 1 FROM friendships f
+                        WHERE f.user_low = LEAST(:userId, ps.source_id)
+                          AND f.user_high = GREATEST(:userId, ps.source_id)
+                          AND f.status = :status))
+                   OR (ps.source_type = :community AND EXISTS (
+                        SELECT 1 FROM community_members cm
+                        WHERE cm.community_id = ps.source_id AND cm.user_id = :userId))
+                """)
+                .setParameter("author", SOURCE_AUTHOR)
+                .setParameter("community", SOURCE_COMMUNITY)
+                .setParameter("status", FriendshipStatus.ACCEPTED.name())
+                .setParameter("userId", userId)
+                .getResultList();
+
+        return rows.stream().collect(Collectors.groupingBy(
+                row -> (String) row[0],
+                Collectors.mapping(row -> ((Number) row[1]).longValue(), Collectors.toList())));
+    }
+
+    private Map<Long, PostDTO> loadPosts(List<FeedItem> items) {
+        if (items.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = items.stream().map(FeedItem::postId).toList();
+        return entityManager.createQuery(PostServiceImpl.POST_DTO_SELECT + " WHERE p.id IN :ids", PostDTO.class)
+                .setParameter("ids", ids)
+                .getResultList().stream()
+                .collect(Collectors.toMap(PostDTO::getId, Function.identity()));
+    }
+
+    private record FeedItem(Long postId, LocalDateTime createdAt) {
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+}
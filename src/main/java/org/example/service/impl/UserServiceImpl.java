@@ -3,19 +3,27 @@ package org.example.service.impl;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
+import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.dto.PageDTO;
 import org.example.dto.UserDTO;
 import org.example.entity.User;
+import org.example.entity.enums.Gender;
+import org.example.event.UserRegisteredEvent;
 import org.example.mapper.UserMapper;
+import org.example.pagination.Pagination;
 import org.example.service.UserService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +36,17 @@ public class UserServiceImpl implements UserService {
 
     private final UserMapper userMapper;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Фильтры поиска пользователей: набор заданных фильтров - ключ кэша SQL
+    private static final int SEARCH_FIRST_NAME = 1;
+    private static final int SEARCH_LAST_NAME = 1 << 1;
+    private static final int SEARCH_AGE = 1 << 2;
+    private static final int SEARCH_GENDER = 1 << 3;
+    private static final int SEARCH_FUZZY = 1 << 4;
+
+    private static final Map<Integer, String> SEARCH_SQL = new ConcurrentHashMap<>();
+
     @Override
     public UserDTO registerUser(UserDTO userDTO) {
         if (userDTO.getFirstName() == null) {
@@ -37,6 +56,7 @@ public class UserServiceImpl implements UserService {
         User user = userMapper.fromDTO(userDTO);
         user.setCreatedAt(LocalDateTime.now());
         entityManager.persist(user);
+        eventPublisher.publishEvent(new UserRegisteredEvent(user.getId(), user.getUsername()));
         log.info("Info: пользователь зарегистрирован с id {}: {}", user.getId(), user.getFirstName());
         return userMapper.toDTO(user);
     }
@@ -81,38 +101,92 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public List<UserDTO> searchUsers(String firstName, String lastName, Integer age, String gender) {
-        log.info("Info: Поиск пользователей по параметрам: firstName={}, lastName={}, age={}, gender={}", firstName, lastName, age, gender);
-        StringBuilder sb = new StringBuilder("SELECT u FROM User u WHERE 1=1");
-        List<Object> params = new ArrayList<>();
-
-        if (firstName != null) {
-            sb.append(" AND u.firstName = ?" + (params.size() + 1));
-            params.add(firstName);
+    public PageDTO<UserDTO> searchUsers(String firstName, String lastName, Integer age, String gender, boolean fuzzy, String cursor, Integer limit) {
+        log.info("Info: Поиск пользователей по параметрам: firstName={}, lastName={}, age={}, gender={}, fuzzy={}", firstName, lastName, age, gender, fuzzy);
+        int pageSize = Pagination.limit(limit);
+        long after = Pagination.decodeId(cursor);
+        String first = firstName == null || firstName.isBlank() ? null : firstName.trim();
+        String last = lastName == null || lastName.isBlank() ? null : lastName.trim();
+        Gender genderValue = parseGender(gender);
+
+        int shape = (first != null ? SEARCH_FIRST_NAME : 0)
+                | (last != null ? SEARCH_LAST_NAME : 0)
+                | (age != null ? SEARCH_AGE : 0)
+                | (genderValue != null ? SEARCH_GENDER : 0)
+                | (fuzzy ? SEARCH_FUZZY : 0);
+
+        Query query = entityManager.createNativeQuery(SEARCH_SQL.computeIfAbsent(shape, UserServiceImpl::searchSql))
+                .setParameter("after", after)
+                .setParameter("limit", pageSize + 1);
+        if (first != null) {
+            query.setParameter("firstName", fuzzy ? first : escapeLike(first));
         }
-        if (lastName != null) {
-            sb.append(" AND u.lastName =?" + (params.size() + 1));
-            params.add(lastName);
+        if (last != null) {
+            query.setParameter("lastName", fuzzy ? last : escapeLike(last));
         }
         if (age != null) {
-            sb.append(" AND u.age = ?" + (params.size() + 1));
-            params.add(age);
+            query.setParameter("age", age);
         }
-        if (gender != null) {
-            sb.append(" AND u.gender = ?" + (params.size() + 1));
-            params.add(gender);
+        if (genderValue != null) {
+            query.setParameter("gender", genderValue.name());
         }
 
-        TypedQuery<User> query = entityManager.createQuery(sb.toString(), User.class);
-        for (int i = 0; i < params.size(); i++) {
-            query.setParameter(i + 1, params.get(i));
+        List<Long> ids = ((List<?>) query.getResultList()).stream()
+                .map(id -> ((Number) id).longValue())
+                .toList();
+        PageDTO<Long> page = Pagination.page(ids, pageSize, Function.identity(), Pagination::encodeId);
+        if (page.getItems().isEmpty()) {
+            log.info("Info: Найдено пользователей: 0");
+            return new PageDTO<>(List.of(), null);
         }
 
-        List<UserDTO> result = query.getResultList().stream()
+        // Пользователи страницы вместе с ролями одним запросом
+        List<UserDTO> result = entityManager.createQuery(
+                        "SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id IN :ids ORDER BY u.id", User.class)
+                .setParameter("ids", page.getItems())
+                .getResultList().stream()
                 .map(userMapper::toDTO)
                 .toList();
 
-        log.info("Info: Найдено пользователей: {}", result.size());
-        return result;
+        log.info("Info: Найдено пользователей на странице: {}", result.size());
+        return new PageDTO<>(result, page.getNextCursor());
+    }
+
+    // SQL поиска для набора заданных фильтров. Строка собирается один раз на набор, поэтому Hibernate
+    // и драйвер переиспользуют разбор запроса и подготовленный план, а не получают новый текст на каждый вызов.
+    // Имена сравниваются через lower() - так их покрывают триграммные индексы idx_users_*_name_trgm
+    private static String searchSql(int shape) {
+        boolean fuzzy = (shape & SEARCH_FUZZY) != 0;
+        StringBuilder sql = new StringBuilder("SELECT u.id FROM users u WHERE u.id > :after");
+        if ((shape & SEARCH_FIRST_NAME) != 0) {
+            sql.append(fuzzy ? " AND lower(u.first_name) % lower(:firstName)" : " AND lower(u.first_name) LIKE lower(:firstName) || '%'");
+        }
+        if ((shape & SEARCH_LAST_NAME) != 0) {
+            sql.append(fuzzy ? " AND lower(u.last_name) % lower(:lastName)" : " AND lower(u.last_name) LIKE lower(:lastName) || '%'");
+        }
+        if ((shape & SEARCH_AGE) != 0) {
+            sql.append(" AND u.age = :age");
+        }
+        if ((shape & SEARCH_GENDER) != 0) {
+            sql.append(" AND u.gender = :gender");
+        }
+        return sql.append(" ORDER BY u.id LIMIT :limit").toString();
+    }
+
+    // Символы шаблона LIKE во введенном имени ищутся буквально
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Gender parseGender(String gender) {
+        if (gender == null || gender.isBlank()) {
+            return null;
+        }
+        try {
+            return Gender.valueOf(gender.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.error("Error: некорректный пол в поиске: {}", gender);
+            throw new IllegalArgumentException("Некорректный пол: " + gender);
+        }
     }
 }
@@ -0,0 +1,132 @@
+package org.example.username;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.example.event.UserRegisteredEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Занятые логины в памяти процесса: фильтр Блума строится при старте из users
+// и пополняется после коммита регистрации. Ответ "не занят" точный и обходится без БД,
+// "возможно занят" нужно перепроверить запросом к users
+@Slf4j
+@Component
+public class UsernameFilter {
+
+    static final double FALSE_POSITIVE_RATE = 0.01;
+    // Запас емкости: фильтр не перестраивается, пока пользователей меньше вдвое большего числа
+    static final long MIN_CAPACITY = 100_000;
+
+    private static final int LOAD_BATCH = 50_000;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    // Перестроение идет в своем потоке: регистрация, заполнившая фильтр, его не ждет
+    private final ExecutorService rebuildExecutor;
+    private volatile BloomFilter filter;
+    // Логины, зарегистрированные во время перестроения, null - перестроения нет. Под монитором фильтра
+    private List<String> addedDuringRebuild;
+
+    @Autowired
+    public UsernameFilter(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this(entityManager, transactionManager, Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "username-filter-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    UsernameFilter(EntityManager entityManager, PlatformTransactionManager transactionManager, ExecutorService rebuildExecutor) {
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    @PostConstruct
+    public void load() {
+        filter = build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private BloomFilter build() {
+        long users = ((Number) entityManager.createNativeQuery("SELECT count(*) FROM users")
+                .getSingleResult()).longValue();
+        BloomFilter built = new BloomFilter(Math.max(MIN_CAPACITY, users * 2), FALSE_POSITIVE_RATE);
+
+        // Логины читаются порциями по id, чтобы не держать в памяти весь список
+        long after = 0;
+        List<?> rows;
+        do {
+            rows = entityManager.createNativeQuery(
+                            "SELECT id, username FROM users WHERE id > :after AND username IS NOT NULL ORDER BY id LIMIT :limit")
+                    .setParameter("after", after)
+                    .setParameter("limit", LOAD_BATCH)
+                    .getResultList();
+            for (Object row : rows) {
+                Object[] columns = (Object[]) row;
+                after = ((Number) columns[0]).longValue();
+                built.add((String) columns[1]);
+            }
+        } while (rows.size() == LOAD_BATCH);
+
+        log.info("Info: фильтр логинов загружен: {} логинов, {} КБ, {} хешей",
+                built.insertions(), built.bitCount() >>> 13, built.hashCount());
+        return built;
+    }
+
+    // false - логин точно свободен, true - возможно занят
+    public boolean mightBeTaken(String username) {
+        return filter.mightContain(username);
+    }
+
+    // Пока новый фильтр строится, логины добавляются в текущий и запоминаются: чтение users
+    // могло их не застать, поэтому перед заменой они добавляются и в новый
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public synchronized void onUserRegistered(UserRegisteredEvent event) {
+        if (event.getUsername() == null) {
+            return;
+        }
+        filter.add(event.getUsername());
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(event.getUsername());
+        } else if (filter.insertions() > filter.capacity()) {
+            log.info("Info: фильтр логинов заполнен ({} логинов), перестраивается", filter.insertions());
+            addedDuringRebuild = new ArrayList<>();
+            rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    // В потоке перестроения: users читаются в своей транзакции только на чтение
+    private void rebuild() {
+        try {
+            BloomFilter built = readOnlyTransaction.execute(status -> build());
+            synchronized (this) {
+                addedDuringRebuild.forEach(built::add);
+                filter = built;
+            }
+        } catch (RuntimeException e) {
+            // Остается текущий фильтр: он заполнен сверх емкости и чаще отвечает "возможно занят", но не ошибается
+            log.error("Error: фильтр логинов не перестроен: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                addedDuringRebuild = null;
+            }
+        }
+    }
+}
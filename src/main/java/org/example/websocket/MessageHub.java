@@ -0,0 +1,169 @@
+package org.example.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.event.MessageSentEvent;
+import org.example.security.JwtHandshakeInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Хаб доставки новых сообщений: открытые сессии пользователя получают MessageDTO сразу после коммита.
+// У каждой сессии своя ограниченная очередь; клиент, который не успевает читать
+// (очередь переполнена или отправка висит дольше лимита), отключается
+@Slf4j
+@Component
+public class MessageHub extends TextWebSocketHandler {
+
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final int queueCapacity;
+    private final long sendTimeLimitMs;
+
+    // userId -> (sessionId -> очередь сессии)
+    private final Map<Long, Map<String, SessionOutbox>> outboxes = new ConcurrentHashMap<>();
+
+    // Свой пул доставки: зависшая отправка держит поток до лимита времени, и медленные клиенты
+    // не должны занимать общий пул задач приложения. В очереди пула не больше одной задачи на сессию
+    @Autowired
+    public MessageHub(ObjectMapper objectMapper,
+                      @Value("${websocket.delivery-threads:8}") int deliveryThreads,
+                      @Value("${websocket.outbound-queue-capacity:256}") int queueCapacity,
+                      @Value("${websocket.send-time-limit-ms:10000}") long sendTimeLimitMs) {
+        this(objectMapper, deliveryPool(deliveryThreads), queueCapacity, sendTimeLimitMs);
+    }
+
+    MessageHub(ObjectMapper objectMapper, Executor executor, int queueCapacity, long sendTimeLimitMs) {
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.queueCapacity = queueCapacity;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService pool) {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        Long userId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.USER_ID_ATTRIBUTE);
+        SessionOutbox outbox = new SessionOutbox(userId, session, queueCapacity);
+        outboxes.compute(userId, (id, sessions) -> {
+            Map<String, SessionOutbox> result = sessions != null ? sessions : new ConcurrentHashMap<>();
+            result.put(session.getId(), outbox);
+            return result;
+        });
+        log.info("Info: WebSocket-сессия {} пользователя {} открыта", session.getId(), userId);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Long userId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.USER_ID_ATTRIBUTE);
+        unregister(userId, session.getId());
+        log.info("Info: WebSocket-сессия {} пользователя {} закрыта ({})", session.getId(), userId, status);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMessageSent(MessageSentEvent event) {
+        TextMessage payload;
+        try {
+            payload = new TextMessage(objectMapper.writeValueAsString(event.getMessage()));
+        } catch (JsonProcessingException e) {
+            log.error("Error: не удалось сериализовать сообщение {}: {}", event.getMessage().getId(), e.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (Long userId : event.getRecipientIds()) {
+            Map<String, SessionOutbox> sessions = outboxes.get(userId);
+            if (sessions == null) {
+                continue;
+            }
+            for (SessionOutbox outbox : sessions.values()) {
+                push(outbox, payload, now);
+            }
+        }
+    }
+
+    int sessionCount(Long userId) {
+        Map<String, SessionOutbox> sessions = outboxes.get(userId);
+        return sessions != null ? sessions.size() : 0;
+    }
+
+    private void push(SessionOutbox outbox, TextMessage payload, long now) {
+        if (outbox.isStuck(now, sendTimeLimitMs) || !outbox.getQueue().offer(payload)) {
+            evict(outbox, "клиент не успевает читать сообщения");
+            return;
+        }
+        if (outbox.getDraining().compareAndSet(false, true)) {
+            executor.execute(() -> drain(outbox));
+        }
+    }
+
+    // Выполняется одним потоком на сессию, пока очередь не опустеет
+    private void drain(SessionOutbox outbox) {
+        do {
+            TextMessage message;
+            while ((message = outbox.getQueue().poll()) != null) {
+                outbox.getSendStartedAt().set(System.currentTimeMillis());
+                try {
+                    outbox.getSession().sendMessage(message);
+                } catch (IOException | IllegalStateException e) {
+                    evict(outbox, e.getMessage());
+                    return;
+                } finally {
+                    outbox.getSendStartedAt().set(0);
+                }
+            }
+            outbox.getDraining().set(false);
+            // Сообщение могло прийти между poll и сбросом флага
+        } while (!outbox.getQueue().isEmpty() && outbox.getDraining().compareAndSet(false, true));
+    }
+
+    private void evict(SessionOutbox outbox, String reason) {
+        WebSocketSession session = outbox.getSession();
+        unregister(outbox.getUserId(), session.getId());
+        outbox.getQueue().clear();
+        log.warn("WebSocket-сессия {} пользователя {} отключена: {}", session.getId(), outbox.getUserId(), reason);
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.error("Error: не удалось закрыть WebSocket-сессию {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private static ExecutorService deliveryPool(int threads) {
+        AtomicInteger number = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "ws-delivery-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void unregister(Long userId, String sessionId) {
+        outboxes.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.websocket;
+
+import lombok.Getter;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ограниченная очередь исходящих сообщений одной WebSocket-сессии.
+// Пишет в сокет не больше одного потока за раз, поэтому порядок сообщений сохраняется
+@Getter
+class SessionOutbox {
+
+    private final Long userId;
+    private final WebSocketSession session;
+    private final BlockingQueue<TextMessage> queue;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // Время начала текущей отправки в сокет, 0 - отправка не идет
+    private final AtomicLong sendStartedAt = new AtomicLong();
+
+    SessionOutbox(Long userId, WebSocketSession session, int capacity) {
+        this.userId = userId;
+        this.session = session;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    boolean isStuck(long now, long sendTimeLimitMs) {
+        long startedAt = sendStartedAt.get();
+        return startedAt != 0 && now - startedAt > sendTimeLimitMs;
+    }
+}
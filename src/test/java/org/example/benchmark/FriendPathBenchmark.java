@@ -0,0 +1,59 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.example.graph.FriendGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+// Двунаправленный BFS на случайном графе: users пользователей по 10 друзей, около 10M записей смежности.
+// Пары выбираются случайно, типичная цепочка - 5-6 связей
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FriendPathBenchmark {
+
+    private static final int FRIENDS_PER_USER = 10;
+    private static final int PAIRS = 1024;
+
+    @Param({"1000000"})
+    private int users;
+
+    private FriendGraph graph;
+    private long[] sources;
+    private long[] targets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        graph = new FriendGraph(mock(EntityManager.class));
+        Random random = new Random(42);
+        // Каждый пользователь добавляет 5 связей, в среднем у каждого 10 друзей
+        for (long userId = 1; userId <= users; userId++) {
+            for (int k = 0; k < FRIENDS_PER_USER / 2; k++) {
+                long friendId = 1 + random.nextInt(users);
+                if (friendId != userId) {
+                    graph.addFriendship(userId, friendId);
+                }
+            }
+        }
+        sources = new long[PAIRS];
+        targets = new long[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            sources[i] = 1 + random.nextInt(users);
+            targets[i] = 1 + random.nextInt(users);
+        }
+    }
+
+    @Benchmark
+    public long[] shortestPath() {
+        int i = next++ & (PAIRS - 1);
+        return graph.shortestPath(sources[i], targets[i], 6, 100_000);
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.benchmark;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Вставки сообщений в секунду: IDENTITY без батчей (как было) против последовательности pooled-lo
+// с hibernate.jdbc.batch_size и reWriteBatchedInserts. Нужна база PostgreSQL:
+// BENCHMARK_JDBC_URL (по умолчанию база из application.properties), BENCHMARK_DB_USER, BENCHMARK_DB_PASSWORD.
+// Бенчмарк создает и удаляет собственные таблицы benchmark_*
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(InsertThroughputBenchmark.ROWS_PER_TRANSACTION)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertThroughputBenchmark {
+
+    static final int ROWS_PER_TRANSACTION = 1000;
+
+    private static final String JDBC_URL = env("BENCHMARK_JDBC_URL", "jdbc:postgresql://localhost:5555/social_network");
+    private static final String USER = env("BENCHMARK_DB_USER", "postgres");
+    private static final String PASSWORD = env("BENCHMARK_DB_PASSWORD", "postgres");
+
+    @Param({"IDENTITY", "SEQUENCE_BATCHED"})
+    public String strategy;
+
+    private SessionFactory sessionFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        execute("""
+                DROP TABLE IF EXISTS benchmark_identity_messages, benchmark_sequence_messages;
+                DROP SEQUENCE IF EXISTS benchmark_sequence_messages_seq;
+                CREATE TABLE benchmark_identity_messages (
+                    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    content VARCHAR(500) NOT NULL, chat_id BIGINT NOT NULL, sender_id BIGINT NOT NULL, sent_at TIMESTAMP);
+                CREATE SEQUENCE benchmark_sequence_messages_seq INCREMENT BY 50;
+                CREATE TABLE benchmark_sequence_messages (
+                    id BIGINT PRIMARY KEY,
+                    content VARCHAR(500) NOT NULL, chat_id BIGINT NOT NULL, sender_id BIGINT NOT NULL, sent_at TIMESTAMP);
+                """);
+
+        boolean batched = strategy.equals("SEQUENCE_BATCHED");
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(batched ? SequenceMessage.class : IdentityMessage.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, batched ? withRewrite(JDBC_URL) : JDBC_URL)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, USER)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, PASSWORD)
+                .setProperty(AvailableSettings.POOL_SIZE, "1");
+        if (batched) {
+            configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                    .setProperty(AvailableSettings.ORDER_INSERTS, "true")
+                    .setProperty(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo");
+        }
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() throws SQLException {
+        execute("TRUNCATE benchmark_identity_messages, benchmark_sequence_messages");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        sessionFactory.close();
+        execute("""
+                DROP TABLE IF EXISTS benchmark_identity_messages, benchmark_sequence_messages;
+                DROP SEQUENCE IF EXISTS benchmark_sequence_messages_seq;
+                """);
+    }
+
+    // Пачка сообщений в одной транзакции, результат - вставок в секунду
+    @Benchmark
+    public void insertMessages() {
+        boolean batched = strategy.equals("SEQUENCE_BATCHED");
+        LocalDateTime now = LocalDateTime.now();
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+                long chatId = i % 10;
+                session.persist(batched
+                        ? new SequenceMessage("message " + i, chatId, i, now)
+                        : new IdentityMessage("message " + i, chatId, i, now));
+            }
+            session.getTransaction().commit();
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String withRewrite(String url) {
+        return url + (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null ? defaultValue : value;
+    }
+
+    @Entity
+    @Table(name = "benchmark_identity_messages")
+    public static class IdentityMessage {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+        private String content;
+        @Column(name = "chat_id")
+        private Long chatId;
+        @Column(name = "sender_id")
+        private Long senderId;
+        @Column(name = "sent_at")
+        private LocalDateTime sentAt;
+
+        protected IdentityMessage() {
+        }
+
+        IdentityMessage(String content, long chatId, long senderId, LocalDateTime sentAt) {
+            this.content = content;
+            this.chatId = chatId;
+            this.senderId = senderId;
+            this.sentAt = sentAt;
+        }
+    }
+
+    @Entity
+    @Table(name = "benchmark_sequence_messages")
+    public static class SequenceMessage {
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "benchmark_sequence_messages_seq")
+        @SequenceGenerator(name = "benchmark_sequence_messages_seq", sequenceName = "benchmark_sequence_messages_seq", allocationSize = 50)
+        private Long id;
+        private String content;
+        @Column(name = "chat_id")
+        private Long chatId;
+        @Column(name = "sender_id")
+        private Long senderId;
+        @Column(name = "sent_at")
+        private LocalDateTime sentAt;
+
+        protected SequenceMessage() {
+        }
+
+        SequenceMessage(String content, long chatId, long senderId, LocalDateTime sentAt) {
+            this.content = content;
+            this.chatId = chatId;
+            this.senderId = senderId;
+            this.sentAt = sentAt;
+        }
+    }
+}
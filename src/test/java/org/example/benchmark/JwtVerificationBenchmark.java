@@ -0,0 +1,67 @@
+package org.example.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.example.security.JwtTokenProvider;
+import org.example.security.JwtUserPrincipal;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость аутентификации одного запроса:
+// legacy - validateToken + getUsername, каждый собирает парсер и проверяет подпись заново;
+// verify - одна проверка подписи общим парсером;
+// verifyCached - повторный токен берется из LRU-кэша проверенных токенов
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "BenchmarkSecretKeyForJwtThatIsAtLeast32Chars";
+
+    private Key secretKey;
+    private JwtTokenProvider provider;
+    private JwtTokenProvider cachedProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        secretKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        provider = new JwtTokenProvider(SECRET, 3_600_000, -1, 0);
+        cachedProvider = new JwtTokenProvider(SECRET, 3_600_000, -1, 10_000);
+        token = provider.generateToken(42L, "benchmark_user", Set.of("ROLE_USER"));
+    }
+
+    @Benchmark
+    public String legacy() {
+        Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build()
+                .parseClaimsJws(token);
+        return Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getSubject();
+    }
+
+    @Benchmark
+    public JwtUserPrincipal verify() {
+        Claims claims = provider.getValidClaims(token);
+        return provider.getPrincipal(claims);
+    }
+
+    @Benchmark
+    public JwtUserPrincipal verifyCached() {
+        Claims claims = cachedProvider.getValidClaims(token);
+        return cachedProvider.getPrincipal(claims);
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.example.graph.FriendGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+// Общие друзья двух пользователей с friendCount друзьями каждый:
+// hashSetIntersection - прежний путь, два списка друзей и пересечение через HashSet;
+// mutualCount / mutualPage - пересечение отсортированных массивов из FriendGraph (слияние);
+// skewedMutualCount - у второго пользователя 50 друзей, пересечение галопом
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MutualFriendsBenchmark {
+
+    private static final long USER_1 = 1L;
+    private static final long USER_2 = 2L;
+    private static final long SMALL_USER = 3L;
+
+    @Param({"5000"})
+    private int friendCount;
+
+    private FriendGraph graph;
+    private List<Long> friends1;
+    private List<Long> friends2;
+
+    @Setup
+    public void setUp() {
+        graph = new FriendGraph(mock(EntityManager.class));
+        Random random = new Random(42);
+        // Друзья выбираются из 50 000 пользователей: около 10% пересечения
+        Set<Long> first = new HashSet<>();
+        Set<Long> second = new HashSet<>();
+        while (first.size() < friendCount) {
+            first.add(100L + random.nextInt(50_000));
+        }
+        while (second.size() < friendCount) {
+            second.add(100L + random.nextInt(50_000));
+        }
+        first.forEach(friendId -> graph.addFriendship(USER_1, friendId));
+        second.forEach(friendId -> graph.addFriendship(USER_2, friendId));
+        second.stream().limit(50).forEach(friendId -> graph.addFriendship(SMALL_USER, friendId));
+        friends1 = List.copyOf(first);
+        friends2 = List.copyOf(second);
+    }
+
+    @Benchmark
+    public int hashSetIntersection() {
+        Set<Long> mutual = new HashSet<>(friends1);
+        mutual.retainAll(new HashSet<>(friends2));
+        return mutual.size();
+    }
+
+    @Benchmark
+    public int mutualCount() {
+        return graph.mutualCount(USER_1, USER_2);
+    }
+
+    @Benchmark
+    public long[] mutualPage() {
+        return graph.mutualFriendIds(USER_1, USER_2, 0L, 21);
+    }
+
+    @Benchmark
+    public int skewedMutualCount() {
+        return graph.mutualCount(USER_1, SMALL_USER);
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+// Поиск по содержимому постов на корпусе из rows постов:
+// like - прежний отчетный запрос LIKE '%слово%', последовательное чтение таблицы;
+// fullTextRankAll - отбор по GIN индексу и ts_rank для всех совпадений;
+// fullText - запрос PostServiceImpl.searchPosts: ts_rank только для SEARCH_RANK_WINDOW самых новых совпадений.
+// Слова корпуса распределены неравномерно: FREQUENT встречается примерно в трети постов, RARE - в десятках.
+// Нужна база PostgreSQL: BENCHMARK_JDBC_URL (по умолчанию база из application.properties),
+// BENCHMARK_DB_USER, BENCHMARK_DB_PASSWORD. Бенчмарк создает и удаляет собственную таблицу benchmark_search_posts
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostSearchBenchmark {
+
+    private static final String JDBC_URL = env("BENCHMARK_JDBC_URL", "jdbc:postgresql://localhost:5555/social_network");
+    private static final String USER = env("BENCHMARK_DB_USER", "postgres");
+    private static final String PASSWORD = env("BENCHMARK_DB_PASSWORD", "postgres");
+
+    private static final int PAGE = 21;
+    private static final int VOCABULARY = 50_000;
+    // Как PostServiceImpl.SEARCH_RANK_WINDOW
+    private static final int RANK_WINDOW = 10_000;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"FREQUENT", "RARE"})
+    public String term;
+
+    private Connection connection;
+    private PreparedStatement like;
+    private PreparedStatement fullTextRankAll;
+    private PreparedStatement fullText;
+    private String word;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
+        try (Statement statement = connection.createStatement()) {
+            // Слово номер n - md5(n) из одних букв; номера слов смещены к нулю (r^3), как у живого текста
+            statement.execute("""
+                    DROP TABLE IF EXISTS benchmark_search_posts;
+                    CREATE TABLE benchmark_search_posts (
+                        id BIGINT PRIMARY KEY,
+                        content VARCHAR(500) NOT NULL,
+                        search_vector tsvector GENERATED ALWAYS AS (to_tsvector('russian', coalesce(content, ''))) STORED);
+                    """);
+            statement.execute("""
+                    INSERT INTO benchmark_search_posts (id, content)
+                    SELECT g, (SELECT string_agg(translate(md5(floor(power(random(), 3) * %d)::text), '0123456789', 'ghijklmnop'), ' ')
+                               FROM generate_series(1, 10 + g %% 5))
+                    FROM generate_series(1, %d) g
+                    """.formatted(VOCABULARY, rows));
+            statement.execute("CREATE INDEX benchmark_search_posts_vector ON benchmark_search_posts USING GIN (search_vector)");
+            statement.execute("ANALYZE benchmark_search_posts");
+        }
+
+        long wordNumber = term.equals("FREQUENT") ? 0 : VOCABULARY - 10;
+        try (PreparedStatement statement = connection.prepareStatement("SELECT translate(md5(?), '0123456789', 'ghijklmnop')")) {
+            statement.setString(1, Long.toString(wordNumber));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                word = resultSet.getString(1);
+            }
+        }
+
+        like = connection.prepareStatement("""
+                SELECT id FROM benchmark_search_posts
+                WHERE content LIKE '%' || ? || '%'
+                ORDER BY id DESC LIMIT ?
+                """);
+        fullTextRankAll = connection.prepareStatement("""
+                SELECT p.id, ts_rank(p.search_vector, q.query)::float8 AS rank
+                FROM benchmark_search_posts p
+                CROSS JOIN websearch_to_tsquery('russian', ?) AS q(query)
+                WHERE p.search_vector @@ q.query
+                ORDER BY rank DESC, p.id DESC LIMIT ?
+                """);
+        fullText = connection.prepareStatement("""
+                SELECT m.id, ts_rank(m.search_vector, q.query)::float8 AS rank
+                FROM websearch_to_tsquery('russian', ?) AS q(query)
+                CROSS JOIN LATERAL (
+                    SELECT p.id, p.search_vector FROM benchmark_search_posts p
+                    WHERE p.search_vector @@ q.query
+                    ORDER BY p.id DESC LIMIT %d
+                ) m
+                ORDER BY rank DESC, m.id DESC LIMIT ?
+                """.formatted(RANK_WINDOW));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS benchmark_search_posts");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public int like() throws SQLException {
+        return firstPage(like);
+    }
+
+    @Benchmark
+    public int fullTextRankAll() throws SQLException {
+        return firstPage(fullTextRankAll);
+    }
+
+    @Benchmark
+    public int fullText() throws SQLException {
+        return firstPage(fullText);
+    }
+
+    private int firstPage(PreparedStatement statement) throws SQLException {
+        statement.setString(1, word);
+        statement.setInt(2, PAGE);
+        int count = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null ? defaultValue : value;
+    }
+}
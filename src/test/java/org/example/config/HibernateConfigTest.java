@@ -0,0 +1,56 @@
+package org.example.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HibernateConfigTest {
+
+    private PersistenceProperties bind(Map<String, String> source) {
+        return new Binder(new MapConfigurationPropertySource(source))
+                .bindOrCreate("persistence", PersistenceProperties.class);
+    }
+
+    @Test
+    void hibernateProperties_defaultProfileIsOltp() {
+        Map<String, Object> properties = HibernateConfig.hibernateProperties(bind(Map.of()), new JpaProperties());
+
+        assertEquals(PersistenceProfile.OLTP.getJdbcBatchSize(), properties.get(AvailableSettings.STATEMENT_BATCH_SIZE));
+        assertEquals(PersistenceProfile.OLTP.getDefaultBatchFetchSize(), properties.get(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE));
+        assertEquals("pooled-lo", properties.get(AvailableSettings.PREFERRED_POOLED_OPTIMIZER));
+    }
+
+    @Test
+    void hibernateProperties_presetSelectedByName() {
+        PersistenceProperties persistenceProperties = bind(Map.of("persistence.profile", "bulk-load"));
+
+        Map<String, Object> properties = HibernateConfig.hibernateProperties(persistenceProperties, new JpaProperties());
+
+        assertEquals(PersistenceProfile.BULK_LOAD, persistenceProperties.getProfile());
+        assertEquals(500, properties.get(AvailableSettings.STATEMENT_BATCH_SIZE));
+        assertEquals(1000, properties.get(AvailableSettings.STATEMENT_FETCH_SIZE));
+    }
+
+    @Test
+    void hibernateProperties_overridesApplyOnTopOfProfile() {
+        PersistenceProperties persistenceProperties = bind(Map.of(
+                "persistence.profile", "reporting",
+                "persistence.jdbc-fetch-size", "250",
+                "persistence.generate-statistics", "false"));
+        JpaProperties jpaProperties = new JpaProperties();
+        jpaProperties.getProperties().put(AvailableSettings.QUERY_PLAN_CACHE_MAX_SIZE, "64");
+
+        Map<String, Object> properties = HibernateConfig.hibernateProperties(persistenceProperties, jpaProperties);
+
+        assertEquals(250, properties.get(AvailableSettings.STATEMENT_FETCH_SIZE));
+        assertEquals(false, properties.get(AvailableSettings.GENERATE_STATISTICS));
+        assertEquals("64", properties.get(AvailableSettings.QUERY_PLAN_CACHE_MAX_SIZE));
+        assertEquals(PersistenceProfile.REPORTING.getDefaultBatchFetchSize(), properties.get(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE));
+    }
+}
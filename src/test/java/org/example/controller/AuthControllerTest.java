@@ -0,0 +1,58 @@
+package org.example.controller;
+
+import org.example.GlobalExceptionHandler;
+import org.example.service.AuthService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private AuthService authService;
+
+    @InjectMocks
+    private AuthController authController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(authController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void usernameAvailable_success() throws Exception {
+        when(authService.isUsernameAvailable("anna")).thenReturn(true);
+        when(authService.isUsernameAvailable("ivan")).thenReturn(false);
+
+        mockMvc.perform(get("/auth/username-available").param("username", "anna"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("anna"))
+                .andExpect(jsonPath("$.available").value(true));
+
+        mockMvc.perform(get("/auth/username-available").param("username", "ivan"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available").value(false));
+    }
+
+    @Test
+    void usernameAvailable_blank_returnsBadRequest() throws Exception {
+        when(authService.isUsernameAvailable(" ")).thenThrow(new IllegalArgumentException("Логин не может быть пустым"));
+
+        mockMvc.perform(get("/auth/username-available").param("username", " "))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -1,9 +1,16 @@
 package org.example.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.GlobalExceptionHandler;
 import org.example.dto.ChatDTO;
+import org.example.dto.InboxChatDTO;
+import org.example.dto.MessageDTO;
+import org.example.dto.PageDTO;
+import org.example.entity.User;
 import org.example.entity.enums.ChatType;
+import org.example.security.CustomUserDetails;
 import org.example.service.ChatService;
+import org.example.service.MessageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,6 +18,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
@@ -29,6 +37,9 @@ public class ChatControllerTest {
     @Mock
     private ChatService chatService;
 
+    @Mock
+    private MessageService messageService;
+
     @InjectMocks
     private ChatController chatController;
 
@@ -36,7 +47,9 @@ public class ChatControllerTest {
 
     @BeforeEach
     void setUp() {
-        mockMvc = MockMvcBuilders.standaloneSetup(chatController).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(chatController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
     }
 
     @Test
@@ -99,4 +112,63 @@ public class ChatControllerTest {
 
         verify(chatService, times(1)).deleteChat(1L, 1L);
     }
+
+    @Test
+    void getChatMessages_success() throws Exception {
+        User user = User.builder().id(1L).username("ivan").build();
+        var authentication = new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+
+        MessageDTO message = MessageDTO.builder().id(7L).content("Привет").chatId(3L).build();
+        when(messageService.getChatMessages(3L, 1L, "abc", 10)).thenReturn(new PageDTO<>(List.of(message), "next"));
+
+        mockMvc.perform(get("/chat/{id}/messages", 3L).param("before", "abc").param("limit", "10").principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(7))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(messageService, times(1)).getChatMessages(3L, 1L, "abc", 10);
+    }
+
+    @Test
+    void getChatMessages_notParticipant_forbidden() throws Exception {
+        User user = User.builder().id(1L).username("ivan").build();
+        var authentication = new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+
+        when(messageService.getChatMessages(3L, 1L, null, null))
+                .thenThrow(new SecurityException("Только участник может читать сообщения чата"));
+
+        mockMvc.perform(get("/chat/{id}/messages", 3L).principal(authentication))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void getInbox_success() throws Exception {
+        User user = User.builder().id(1L).username("ivan").build();
+        var authentication = new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+
+        InboxChatDTO chat = InboxChatDTO.builder()
+                .chatId(3L)
+                .type(ChatType.PRIVATE)
+                .lastMessage(MessageDTO.builder().id(7L).content("Привет").build())
+                .unreadCount(2)
+                .build();
+        when(chatService.getInbox(1L)).thenReturn(List.of(chat));
+
+        mockMvc.perform(get("/chat/inbox").principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].chatId").value(3))
+                .andExpect(jsonPath("$[0].lastMessage.content").value("Привет"))
+                .andExpect(jsonPath("$[0].unreadCount").value(2));
+    }
+
+    @Test
+    void markRead_success() throws Exception {
+        User user = User.builder().id(1L).username("ivan").build();
+        var authentication = new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+
+        mockMvc.perform(put("/chat/{id}/read/{messageId}", 3L, 7L).principal(authentication))
+                .andExpect(status().isNoContent());
+
+        verify(chatService, times(1)).markRead(3L, 1L, 7L);
+    }
 }
@@ -2,7 +2,8 @@ package org.example.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.dto.CommunityDTO;
-import org.example.dto.UserDTO;
+import org.example.dto.CommunityMemberDTO;
+import org.example.dto.PageDTO;
 import org.example.service.CommunityService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -123,16 +124,29 @@ public class CommunityControllerTest {
 
     @Test
     void getCommunityMembers_success() throws Exception {
-        UserDTO user1 = UserDTO.builder().id(1L).firstName("Иван").build();
-        UserDTO user2 = UserDTO.builder().id(2L).firstName("Андрей").build();
+        CommunityMemberDTO user1 = CommunityMemberDTO.builder().id(1L).firstName("Иван").build();
+        CommunityMemberDTO user2 = CommunityMemberDTO.builder().id(2L).firstName("Андрей").build();
 
-        when(communityService.getCommunityMembers(1L)).thenReturn(List.of(user1, user2));
+        when(communityService.getCommunityMembers(1L, null, null)).thenReturn(new PageDTO<>(List.of(user1, user2), null));
 
         mockMvc.perform(get("/community/members/{communityId}", 1L))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2))
-                .andExpect(jsonPath("$[0].id").value(1))
-                .andExpect(jsonPath("$[1].id").value(2));
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[1].id").value(2))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void getCommunityMembers_afterCursor() throws Exception {
+        CommunityMemberDTO member = CommunityMemberDTO.builder().id(7L).username("ivan").build();
+
+        when(communityService.getCommunityMembers(1L, 5L, 1)).thenReturn(new PageDTO<>(List.of(member), "7"));
+
+        mockMvc.perform(get("/community/members/{communityId}", 1L).param("after", "5").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].username").value("ivan"))
+                .andExpect(jsonPath("$.nextCursor").value("7"));
     }
 
     @Test
@@ -0,0 +1,55 @@
+package org.example.controller;
+
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+import org.example.entity.User;
+import org.example.security.CustomUserDetails;
+import org.example.service.TimelineService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FeedControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private TimelineService timelineService;
+
+    @InjectMocks
+    private FeedController feedController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(feedController).build();
+    }
+
+    @Test
+    void getFeed_success() throws Exception {
+        User user = User.builder().id(1L).username("ivan").build();
+        var authentication = new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+
+        PostDTO post = PostDTO.builder().id(5L).content("Пост друга").build();
+        when(timelineService.getFeed(1L, "abc", 10)).thenReturn(new PageDTO<>(List.of(post), null));
+
+        mockMvc.perform(get("/feed").param("cursor", "abc").param("limit", "10").principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(5))
+                .andExpect(jsonPath("$.items[0].content").value("Пост друга"));
+
+        verify(timelineService, times(1)).getFeed(1L, "abc", 10);
+    }
+}
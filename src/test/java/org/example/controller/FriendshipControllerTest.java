@@ -1,10 +1,17 @@
 package org.example.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.FriendPathDTO;
 import org.example.dto.FriendshipDTO;
+import org.example.dto.MutualFriendsDTO;
+import org.example.dto.SuggestionDTO;
 import org.example.dto.UserDTO;
+import org.example.entity.User;
 import org.example.entity.enums.FriendshipStatus;
+import org.example.security.CustomUserDetails;
+import org.example.service.FriendPathService;
 import org.example.service.FriendshipService;
+import org.example.service.SuggestionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,6 +19,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
@@ -29,6 +37,12 @@ public class FriendshipControllerTest {
     @Mock
     private FriendshipService friendshipService;
 
+    @Mock
+    private SuggestionService suggestionService;
+
+    @Mock
+    private FriendPathService friendPathService;
+
     @InjectMocks
     private FriendshipController friendshipController;
 
@@ -106,4 +120,56 @@ public class FriendshipControllerTest {
 
         verify(friendshipService, times(1)).getPendingRequests(1L);
     }
+
+    @Test
+    void getMutualFriends_success() throws Exception {
+        User user = User.builder().id(1L).username("ivan").build();
+        var authentication = new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+
+        UserDTO friend = UserDTO.builder().id(3L).firstName("Настя").build();
+        when(friendshipService.getMutualFriends(1L, 2L, "abc", 10))
+                .thenReturn(new MutualFriendsDTO(5, List.of(friend), "next"));
+
+        mockMvc.perform(get("/friendships/mutual/{otherUserId}", 2L).param("cursor", "abc").param("limit", "10").principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(5))
+                .andExpect(jsonPath("$.items[0].id").value(3))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(friendshipService, times(1)).getMutualFriends(1L, 2L, "abc", 10);
+    }
+
+    @Test
+    void getSuggestions_success() throws Exception {
+        User user = User.builder().id(1L).username("ivan").build();
+        var authentication = new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+
+        UserDTO candidate = UserDTO.builder().id(7L).firstName("Настя").build();
+        when(suggestionService.getSuggestions(1L, 5)).thenReturn(List.of(new SuggestionDTO(candidate, 3, 1)));
+
+        mockMvc.perform(get("/friendships/suggestions").param("limit", "5").principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].user.id").value(7))
+                .andExpect(jsonPath("$[0].mutualFriends").value(3))
+                .andExpect(jsonPath("$[0].sharedCommunities").value(1));
+
+        verify(suggestionService, times(1)).getSuggestions(1L, 5);
+    }
+
+    @Test
+    void getPath_success() throws Exception {
+        User user = User.builder().id(1L).username("ivan").build();
+        var authentication = new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+
+        List<UserDTO> path = List.of(UserDTO.builder().id(1L).build(), UserDTO.builder().id(4L).build(), UserDTO.builder().id(9L).build());
+        when(friendPathService.findPath(1L, 9L)).thenReturn(new FriendPathDTO(true, 2, path));
+
+        mockMvc.perform(get("/friendships/path/{userId}", 9L).principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found").value(true))
+                .andExpect(jsonPath("$.degree").value(2))
+                .andExpect(jsonPath("$.path[1].id").value(4));
+
+        verify(friendPathService, times(1)).findPath(1L, 9L);
+    }
 }
@@ -2,6 +2,11 @@ package org.example.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.dto.MessageDTO;
+import org.example.dto.MessageEventDTO;
+import org.example.dto.MessageSyncDTO;
+import org.example.entity.User;
+import org.example.entity.enums.MessageEventType;
+import org.example.security.CustomUserDetails;
 import org.example.service.MessageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +15,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
@@ -109,4 +115,22 @@ public class MessageControllerTest {
 
         verify(messageService, times(1)).deleteMessage(1L);
     }
+
+    @Test
+    void syncMessages_success() throws Exception {
+        User user = User.builder().id(1L).username("ivan").build();
+        var authentication = new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+
+        MessageEventDTO deleted = MessageEventDTO.builder().eventId(8L).type(MessageEventType.DELETED).chatId(2L).messageId(4L).build();
+        when(messageService.syncMessages(1L, "w7", null)).thenReturn(new MessageSyncDTO(List.of(deleted), "w8", false));
+
+        mockMvc.perform(get("/messages/sync").param("since", "w7").principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events[0].type").value("DELETED"))
+                .andExpect(jsonPath("$.events[0].messageId").value(4))
+                .andExpect(jsonPath("$.watermark").value("w8"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        verify(messageService, times(1)).syncMessages(1L, "w7", null);
+    }
 }
@@ -1,6 +1,7 @@
 package org.example.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.PageDTO;
 import org.example.dto.PostDTO;
 import org.example.service.PostService;
 import org.junit.jupiter.api.BeforeEach;
@@ -120,18 +121,33 @@ public class PostControllerTest {
 
     @Test
     void getAllPosts_success() throws Exception {
-        PostDTO post1 = PostDTO.builder().id(1L).content("Первый пост!").build();
-        PostDTO post2 = PostDTO.builder().id(2L).content("Второй пост!").build();
+        PostDTO post1 = PostDTO.builder().id(2L).content("Второй пост!").build();
+        PostDTO post2 = PostDTO.builder().id(1L).content("Первый пост!").build();
 
-        when(postService.getAllPosts()).thenReturn(List.of(post1, post2));
+        when(postService.getPostsPage(null, 2)).thenReturn(new PageDTO<>(List.of(post1, post2), "next"));
 
-        mockMvc.perform(get("/posts/all"))
+        mockMvc.perform(get("/posts/all").param("limit", "2"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2))
-                .andExpect(jsonPath("$[0].id").value(1))
-                .andExpect(jsonPath("$[1].id").value(2));
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(2))
+                .andExpect(jsonPath("$.items[1].id").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(postService, times(1)).getPostsPage(null, 2);
+    }
+
+    @Test
+    void searchPosts_success() throws Exception {
+        PostDTO post = PostDTO.builder().id(5L).content("Поход в горы").build();
+
+        when(postService.searchPosts("горы", 3L, null, null, 10)).thenReturn(new PageDTO<>(List.of(post), "next"));
+
+        mockMvc.perform(get("/posts/search").param("q", "горы").param("communityId", "3").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(5))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
 
-        verify(postService, times(1)).getAllPosts();
+        verify(postService, times(1)).searchPosts("горы", 3L, null, null, 10);
     }
 
     @Test
@@ -0,0 +1,63 @@
+package org.example.controller;
+
+import org.example.dto.CommentDTO;
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+import org.example.service.ContentSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SearchControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private ContentSearchService contentSearchService;
+
+    @InjectMocks
+    private SearchController searchController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(searchController).build();
+    }
+
+    @Test
+    void searchPosts_success() throws Exception {
+        PostDTO post = PostDTO.builder().id(5L).content("Поход в горы").build();
+        when(contentSearchService.searchPosts("гор*", "abc", 10)).thenReturn(new PageDTO<>(List.of(post), "next"));
+
+        mockMvc.perform(get("/search/posts").param("q", "гор*").param("cursor", "abc").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(5))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(contentSearchService).searchPosts("гор*", "abc", 10);
+    }
+
+    @Test
+    void searchComments_success() throws Exception {
+        CommentDTO comment = CommentDTO.builder().id(7L).content("Отличный поход").build();
+        when(contentSearchService.searchComments("поход", null, null)).thenReturn(new PageDTO<>(List.of(comment), null));
+
+        mockMvc.perform(get("/search/comments").param("q", "поход"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(7))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(contentSearchService).searchComments("поход", null, null);
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.PageDTO;
 import org.example.dto.UserDTO;
 import org.example.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -82,18 +83,29 @@ public class UserControllerTest {
         UserDTO user1 = UserDTO.builder().id(1L).firstName("Иван").build();
         UserDTO user2 = UserDTO.builder().id(2L).firstName("Андрей").build();
 
-        when(userService.searchUsers("Иван", null, null, null))
-                .thenReturn(List.of(user1));
-        when(userService.searchUsers(null, null, null, null))
-                .thenReturn(List.of(user1, user2));
+        when(userService.searchUsers("Иван", null, null, null, false, null, null))
+                .thenReturn(new PageDTO<>(List.of(user1), null));
+        when(userService.searchUsers(null, null, null, null, false, null, null))
+                .thenReturn(new PageDTO<>(List.of(user1, user2), null));
+        when(userService.searchUsers(null, "Петорв", null, null, true, "c1", 10))
+                .thenReturn(new PageDTO<>(List.of(user2), "c2"));
 
         mockMvc.perform(get("/users/search")
                 .param("firstName", "Иван"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].firstName").value("Иван"));
+                .andExpect(jsonPath("$.items[0].firstName").value("Иван"));
 
         mockMvc.perform(get("/users/search"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2));
+                .andExpect(jsonPath("$.items.length()").value(2));
+
+        mockMvc.perform(get("/users/search")
+                .param("lastName", "Петорв")
+                .param("fuzzy", "true")
+                .param("cursor", "c1")
+                .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(2))
+                .andExpect(jsonPath("$.nextCursor").value("c2"));
     }
 }
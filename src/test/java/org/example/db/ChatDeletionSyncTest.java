@@ -0,0 +1,63 @@
+package org.example.db;
+
+import org.example.dto.MessageEventDTO;
+import org.example.dto.MessageSyncDTO;
+import org.example.entity.enums.MessageEventType;
+import org.example.service.ChatService;
+import org.example.service.MessageService;
+import org.example.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Удаление чата доходит до клиентов, синхронизирующихся по водяному знаку: после удаления
+// участников и сообщений журнал сохраняется, а каждый бывший участник получает CHAT_DELETED
+@EnabledIf(PostgresIntegrationTest.DATABASE_AVAILABLE)
+public class ChatDeletionSyncTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private MessageService messageService;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute(TRUNCATE_ALL);
+        jdbcTemplate.execute("""
+                INSERT INTO users (id, username, password, first_name, last_name, created_at)
+                SELECT g, 'user_' || g, 'x', 'first', 'last', now() FROM generate_series(1, 3) g
+                """);
+        jdbcTemplate.execute("INSERT INTO chats (id, type, min_user_id, max_user_id) VALUES (1, 'GROUP', NULL, NULL)");
+        jdbcTemplate.execute("INSERT INTO chat_participants (chat_id, user_id) VALUES (1, 1), (1, 2)");
+        jdbcTemplate.execute("""
+                INSERT INTO messages (id, content, chat_id, sender_id, sent_at)
+                SELECT g, 'message ' || g, 1, 1, now() FROM generate_series(1, 3) g
+                """);
+        jdbcTemplate.execute("INSERT INTO message_events (chat_id, message_id, type) SELECT chat_id, id, 'CREATED' FROM messages");
+    }
+
+    @Test
+    void deleteChat_formerParticipantsReceiveChatDeleted() {
+        MessageSyncDTO before = messageService.syncMessages(2L, null, 20);
+        assertEquals(3, before.getEvents().size());
+
+        chatService.deleteChat(1L, 1L);
+
+        for (long userId : new long[]{1L, 2L}) {
+            MessageSyncDTO after = messageService.syncMessages(userId, before.getWatermark(), 20);
+            assertEquals(1, after.getEvents().size());
+            MessageEventDTO event = after.getEvents().get(0);
+            assertEquals(MessageEventType.CHAT_DELETED, event.getType());
+            assertEquals(1L, event.getChatId());
+            assertNull(event.getMessageId());
+        }
+        assertTrue(messageService.syncMessages(3L, null, 20).getEvents().isEmpty());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM messages WHERE chat_id = 1", Integer.class));
+    }
+}
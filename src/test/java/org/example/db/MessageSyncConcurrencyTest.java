@@ -0,0 +1,92 @@
+package org.example.db;
+
+import org.example.dto.MessageDTO;
+import org.example.dto.MessageEventDTO;
+import org.example.dto.MessageSyncDTO;
+import org.example.service.MessageService;
+import org.example.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Параллельные отправки не ждут друг друга, а синхронизация не отдает событие,
+// пока не завершена более старая транзакция, - иначе водяной знак проскочил бы ее событие
+@EnabledIf(PostgresIntegrationTest.DATABASE_AVAILABLE)
+public class MessageSyncConcurrencyTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute(TRUNCATE_ALL);
+        jdbcTemplate.execute("""
+                INSERT INTO users (id, username, password, first_name, last_name, created_at)
+                SELECT g, 'user_' || g, 'x', 'first', 'last', now() FROM generate_series(1, 2) g
+                """);
+        jdbcTemplate.execute("INSERT INTO chats (id, type, min_user_id, max_user_id) VALUES (1, 'PRIVATE', 1, 2)");
+        jdbcTemplate.execute("INSERT INTO chat_participants (chat_id, user_id) VALUES (1, 1), (1, 2)");
+    }
+
+    @AfterAll
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void overlappingSenders_watermarkWaitsForOlderTransaction() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch firstWritten = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        // Первый отправитель записал сообщение и событие, но транзакция еще открыта
+        Future<MessageDTO> first = executor.submit(() -> transaction.execute(status -> {
+            MessageDTO sent = messageService.sendMessage(1L, 1L, MessageDTO.builder().content("first").build());
+            firstWritten.countDown();
+            try {
+                assertTrue(releaseFirst.await(30, SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return sent;
+        }));
+        assertTrue(firstWritten.await(30, SECONDS));
+
+        // Второй отправитель коммитится, не дожидаясь первого
+        Future<MessageDTO> second = executor.submit(() ->
+                messageService.sendMessage(1L, 2L, MessageDTO.builder().content("second").build()));
+        MessageDTO secondSent = second.get(10, SECONDS);
+
+        MessageSyncDTO during = messageService.syncMessages(2L, null, 20);
+        assertTrue(during.getEvents().isEmpty());
+
+        releaseFirst.countDown();
+        MessageDTO firstSent = first.get(30, SECONDS);
+
+        MessageSyncDTO after = messageService.syncMessages(2L, during.getWatermark(), 20);
+        List<Long> messageIds = after.getEvents().stream().map(MessageEventDTO::getMessageId).toList();
+        assertEquals(List.of(firstSent.getId(), secondSent.getId()), messageIds);
+
+        assertTrue(messageService.syncMessages(2L, after.getWatermark(), 20).getEvents().isEmpty());
+    }
+}
@@ -0,0 +1,264 @@
+package org.example.db;
+
+import org.example.pagination.Pagination;
+import org.example.service.ChatService;
+import org.example.service.CommentService;
+import org.example.service.CommunityService;
+import org.example.service.FriendshipService;
+import org.example.service.MessageService;
+import org.example.service.PostService;
+import org.example.service.TimelineService;
+import org.example.service.UserService;
+import org.example.support.PostgresIntegrationTest;
+import org.example.support.SqlStatementRecorder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Каждый запрос сервисов прогоняется через EXPLAIN на заполненной базе:
+// полный просмотр большой таблицы (Seq Scan) означает, что для запроса нет подходящего индекса
+@EnabledIf(PostgresIntegrationTest.DATABASE_AVAILABLE)
+public class QueryPlanTest extends PostgresIntegrationTest {
+
+    // Маленькие по определению таблицы, их полный просмотр дешевле индекса
+    private static final Set<String> SEQ_SCAN_ALLOWED = Set.of("roles", "timeline_pull_sources");
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+    private static final Pattern PARAMETER = Pattern.compile("\\?");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SqlStatementRecorder recorder;
+
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private CommentService commentService;
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private FriendshipService friendshipService;
+    @Autowired
+    private CommunityService communityService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private TimelineService timelineService;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute(TRUNCATE_ALL);
+        jdbcTemplate.execute("INSERT INTO roles (id, name) VALUES (1, 'ROLE_USER')");
+        jdbcTemplate.execute("""
+                INSERT INTO users (id, username, password, first_name, last_name, age, gender, created_at)
+                SELECT g, 'user_' || g, 'x', 'first_' || (g % 500), 'last_' || (g % 2000), 18 + g % 50,
+                       (ARRAY['MALE', 'FEMALE', 'OTHER'])[1 + g % 3], now() - g * interval '1 minute'
+                FROM generate_series(1, 20000) g
+                """);
+        jdbcTemplate.execute("INSERT INTO user_roles (user_id, role_id) SELECT id, 1 FROM users");
+        jdbcTemplate.execute("""
+                INSERT INTO communities (id, name, description, admin_id, created_at)
+                SELECT g, 'community_' || g, NULL, g, now() FROM generate_series(1, 5000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO community_members (community_id, user_id)
+                SELECT 1 + (g / 10) % 5000, 1 + g % 20000 FROM generate_series(0, 49999) g
+                ON CONFLICT DO NOTHING
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO posts (id, content, author_id, community_id, created_at)
+                SELECT g, 'post ' || g, 1 + (g * 7) % 20000, CASE WHEN g % 5 = 0 THEN 1 + g % 5000 END,
+                       now() - g * interval '1 second'
+                FROM generate_series(1, 100000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO comments (id, content, author_id, post_id, created_at)
+                SELECT g, 'comment ' || g, 1 + (g * 11) % 20000, 1 + (g * 13) % 100000, now()
+                FROM generate_series(1, 100000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO chats (id, type, min_user_id, max_user_id)
+                SELECT g, 'PRIVATE', 1 + (2 * g) % 20000, 2 + (2 * g) % 20000 FROM generate_series(1, 5000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO chat_participants (chat_id, user_id)
+                SELECT g, 1 + (2 * g) % 20000 FROM generate_series(1, 5000) g
+                UNION ALL
+                SELECT g, 2 + (2 * g) % 20000 FROM generate_series(1, 5000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO messages (id, content, chat_id, sender_id, sent_at)
+                SELECT g, 'message ' || g, 1 + g % 5000, 1 + (2 * (1 + g % 5000)) % 20000,
+                       now() - g * interval '1 second'
+                FROM generate_series(1, 100000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO message_events (chat_id, message_id, type, created_at)
+                SELECT chat_id, id, CASE WHEN id % 10 = 0 THEN 'DELETED' ELSE 'CREATED' END, sent_at
+                FROM messages ORDER BY id
+                """);
+        jdbcTemplate.execute("""
+                UPDATE chat_participants cp SET last_read_message_id = m.id, last_read_at = m.sent_at
+                FROM messages m WHERE m.id = cp.chat_id + 50000
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO friendships (id, requester_id, receiver_id, status, created_at, user_low, user_high)
+                SELECT g, 1 + g % 20000, 1 + (g * 31 + 7) % 20000,
+                       CASE WHEN g % 4 = 0 THEN 'PENDING' ELSE 'ACCEPTED' END, now(),
+                       1 + LEAST(g % 20000, (g * 31 + 7) % 20000), 1 + GREATEST(g % 20000, (g * 31 + 7) % 20000)
+                FROM generate_series(1, 50000) g
+                WHERE g % 20000 <> (g * 31 + 7) % 20000
+                ON CONFLICT (user_low, user_high) DO NOTHING
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO timeline_entries (user_id, post_id, created_at)
+                SELECT 1 + g % 20000, g, now() - g * interval '1 second' FROM generate_series(1, 100000) g
+                """);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @BeforeEach
+    void clearRecorder() {
+        recorder.clear();
+    }
+
+    @Test
+    void postQueries_useIndexes() {
+        postService.getPostsByUserId(8L);
+        postService.getPostsByCommunityId(6L);
+        String cursor = postService.getPostsPage(null, 20).getNextCursor();
+        postService.getPostsPage(cursor, 20);
+        String searchCursor = postService.searchPosts("post", null, null, null, 20).getNextCursor();
+        postService.searchPosts("post", 6L, 8L, searchCursor, 20);
+
+        assertNoSeqScans();
+    }
+
+    @Test
+    void commentQueries_useIndexes() {
+        commentService.getCommentsByPostId(14L);
+
+        assertNoSeqScans();
+    }
+
+    @Test
+    void messageQueries_useIndexes() {
+        messageService.getMessageBetweenUsers(3L, 4L);
+        messageService.getAllMessagesForUser(3L);
+        String before = messageService.getChatMessages(1L, 3L, null, 5).getNextCursor();
+        messageService.getChatMessages(1L, 3L, before, 5);
+        Long xactId = jdbcTemplate.queryForObject("SELECT xact_id FROM message_events WHERE id = 90000", Long.class);
+        messageService.syncMessages(3L, Pagination.encodeEvent(xactId, 90_000L), 100);
+
+        assertNoSeqScans();
+    }
+
+    @Test
+    void chatQueries_useIndexes() {
+        chatService.getUserChats(3L);
+        chatService.getInbox(3L);
+        chatService.createChat(3L, 4L);
+
+        assertNoSeqScans();
+    }
+
+    @Test
+    void friendshipQueries_useIndexes() {
+        friendshipService.getFriends(5L);
+        friendshipService.getPendingRequests(5L);
+        // Пара 2-39 есть в данных (g = 1), удаление по ключу пары в обратном порядке
+        friendshipService.removeFriend(39L, 2L);
+
+        assertNoSeqScans();
+    }
+
+    @Test
+    void communityQueries_useIndexes() {
+        communityService.getUserCommunities(5L);
+        String cursor = communityService.getCommunityMembers(6L, null, 5).getNextCursor();
+        communityService.getCommunityMembers(6L, Long.valueOf(cursor), 5);
+
+        assertNoSeqScans();
+    }
+
+    @Test
+    void userQueries_useIndexes() {
+        userService.searchUsers("first_5", null, null, null, false, null, 20);
+        userService.searchUsers(null, "last_5", null, null, false, null, 20);
+        userService.searchUsers("firts_5", null, null, null, true, null, 20);
+
+        assertNoSeqScans();
+    }
+
+    @Test
+    void feedQueries_useIndexes() {
+        String cursor = timelineService.getFeed(5L, null, 20).getNextCursor();
+        timelineService.getFeed(5L, cursor, 20);
+
+        assertNoSeqScans();
+    }
+
+    private void assertNoSeqScans() {
+        List<String> selects = recorder.getSelects().stream().distinct().toList();
+        assertFalse(selects.isEmpty(), "Запросы не перехвачены");
+
+        List<String> failures = new ArrayList<>();
+        for (String sql : selects) {
+            String plan = explain(sql);
+            Matcher matcher = SEQ_SCAN.matcher(plan);
+            while (matcher.find()) {
+                if (!SEQ_SCAN_ALLOWED.contains(matcher.group(1).toLowerCase())) {
+                    failures.add(sql + "\n" + plan);
+                    break;
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(), "Seq Scan в планах:\n\n" + String.join("\n\n", failures));
+    }
+
+    // Общий (generic) план без значений параметров: ? заменяются на $1, $2, ..., запрос готовится через PREPARE
+    private String explain(String sql) {
+        Matcher matcher = PARAMETER.matcher(sql);
+        StringBuilder prepared = new StringBuilder();
+        int parameters = 0;
+        while (matcher.find()) {
+            matcher.appendReplacement(prepared, "\\$" + (++parameters));
+        }
+        matcher.appendTail(prepared);
+        String arguments = parameters == 0 ? "" : "(" + String.join(", ", Collections.nCopies(parameters, "NULL")) + ")";
+
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET plan_cache_mode = force_generic_plan");
+                statement.execute("PREPARE plan_check AS " + prepared);
+                try (ResultSet rows = statement.executeQuery("EXPLAIN EXECUTE plan_check" + arguments)) {
+                    StringBuilder plan = new StringBuilder();
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                    return plan.toString();
+                } finally {
+                    statement.execute("DEALLOCATE plan_check");
+                    statement.execute("RESET plan_cache_mode");
+                }
+            }
+        });
+    }
+}
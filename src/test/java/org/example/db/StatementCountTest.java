@@ -0,0 +1,168 @@
+package org.example.db;
+
+import org.example.service.ChatService;
+import org.example.service.CommentService;
+import org.example.service.CommunityService;
+import org.example.service.MessageService;
+import org.example.service.PostService;
+import org.example.support.PostgresIntegrationTest;
+import org.example.support.SqlStatementRecorder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Списочные методы сервисов читают данные одним запросом, без догрузки связей на каждую строку (N+1)
+@EnabledIf(PostgresIntegrationTest.DATABASE_AVAILABLE)
+public class StatementCountTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SqlStatementRecorder recorder;
+
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private CommentService commentService;
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private CommunityService communityService;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute(TRUNCATE_ALL);
+        jdbcTemplate.execute("INSERT INTO roles (id, name) VALUES (1, 'ROLE_USER'), (2, 'ROLE_ADMIN')");
+        jdbcTemplate.execute("""
+                INSERT INTO users (id, username, password, first_name, last_name, created_at)
+                SELECT g, 'user_' || g, 'x', 'first', 'last', now() FROM generate_series(1, 5) g
+                """);
+        jdbcTemplate.execute("INSERT INTO user_roles (user_id, role_id) SELECT id, 1 FROM users UNION ALL SELECT id, 2 FROM users");
+        jdbcTemplate.execute("INSERT INTO communities (id, name, admin_id, created_at) VALUES (1, 'community', 1, now())");
+        // 10 постов пяти разных авторов, половина в сообществе
+        jdbcTemplate.execute("""
+                INSERT INTO posts (id, content, author_id, community_id, created_at)
+                SELECT g, 'post ' || g, 1 + g % 5, CASE WHEN g % 2 = 0 THEN 1 END, now() - g * interval '1 minute'
+                FROM generate_series(1, 10) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO comments (id, content, author_id, post_id, created_at)
+                SELECT g, 'comment ' || g, 1 + g % 5, 1, now() FROM generate_series(1, 5) g
+                """);
+        jdbcTemplate.execute("INSERT INTO chats (id, type, min_user_id, max_user_id) VALUES (1, 'PRIVATE', 1, 2), (2, 'GROUP', NULL, NULL)");
+        jdbcTemplate.execute("INSERT INTO chat_participants (chat_id, user_id) VALUES (1, 1), (1, 2), (2, 1), (2, 3), (2, 4)");
+        jdbcTemplate.execute("""
+                INSERT INTO messages (id, content, chat_id, sender_id, sent_at)
+                SELECT g, 'message ' || g, 1 + g % 2, 1, now() - g * interval '1 second' FROM generate_series(1, 10) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO message_events (chat_id, message_id, type)
+                SELECT chat_id, id, 'CREATED' FROM messages ORDER BY id
+                """);
+    }
+
+    @BeforeEach
+    void clearRecorder() {
+        recorder.clear();
+    }
+
+    @Test
+    void getPostsByUserId_oneStatement() {
+        assertSingleStatement(() -> postService.getPostsByUserId(2L), 2);
+    }
+
+    @Test
+    void getPostsByCommunityId_oneStatement() {
+        assertSingleStatement(() -> postService.getPostsByCommunityId(1L), 5);
+    }
+
+    @Test
+    void getPostsPage_oneStatement() {
+        assertSingleStatement(() -> postService.getPostsPage(null, 5).getItems(), 5);
+    }
+
+    @Test
+    void getCommentsByPostId_oneStatement() {
+        assertSingleStatement(() -> commentService.getCommentsByPostId(1L), 5);
+    }
+
+    @Test
+    void getMessageBetweenUsers_oneStatement() {
+        assertSingleStatement(() -> messageService.getMessageBetweenUsers(1L, 2L), 5);
+    }
+
+    @Test
+    void getAllMessagesForUser_oneStatement() {
+        assertSingleStatement(() -> messageService.getAllMessagesForUser(1L), 10);
+    }
+
+    @Test
+    void getUserChats_oneStatement() {
+        assertSingleStatement(() -> chatService.getUserChats(1L), 2);
+    }
+
+    @Test
+    void getChatMessages_participantCheckAndOnePagePerCall() {
+        List<?> page = messageService.getChatMessages(2L, 3L, null, 3).getItems();
+
+        assertEquals(3, page.size());
+        // Проверка участия и сама страница
+        assertEquals(2, recorder.getStatements().size(), () -> "Ожидалось два запроса: " + recorder.getStatements());
+    }
+
+    @Test
+    void syncMessages_oneStatement() {
+        assertSingleStatement(() -> messageService.syncMessages(3L, null, 20).getEvents(), 5);
+    }
+
+    @Test
+    void getInbox_oneStatement() {
+        assertSingleStatement(() -> chatService.getInbox(1L), 2);
+    }
+
+    @Test
+    void joinAndLeaveCommunity_doNotLoadMembers() {
+        jdbcTemplate.execute("INSERT INTO community_members (community_id, user_id) VALUES (1, 1), (1, 2) ON CONFLICT DO NOTHING");
+        jdbcTemplate.execute("UPDATE communities SET member_count = 2 WHERE id = 1");
+        recorder.clear();
+
+        // Повторное вступление и повторный выход не меняют счетчик
+        communityService.joinCommunity(1L, 3L);
+        communityService.joinCommunity(1L, 3L);
+        assertEquals(3L, memberCount(1L));
+        communityService.leaveCommunity(1L, 3L);
+        communityService.leaveCommunity(1L, 3L);
+        assertEquals(2L, memberCount(1L));
+
+        // После коммита вступления и выхода индекс участников проверяет одну пару по первичному ключу
+        assertEquals(2, recorder.getStatements().stream()
+                .filter(sql -> sql.equals("SELECT 1 FROM community_members WHERE community_id = ? AND user_id = ?"))
+                .count());
+        assertTrue(recorder.getStatements().stream()
+                        .map(String::toLowerCase)
+                        .filter(sql -> !sql.contains("community_id = ? and user_id = ?"))
+                        .noneMatch(sql -> sql.startsWith("select") && sql.contains("community_members")),
+                () -> "Коллекция участников не должна загружаться: " + recorder.getStatements());
+    }
+
+    private long memberCount(long communityId) {
+        return jdbcTemplate.queryForObject("SELECT member_count FROM communities WHERE id = ?", Long.class, communityId);
+    }
+
+    private void assertSingleStatement(Supplier<List<?>> call, int expectedRows) {
+        List<?> result = call.get();
+
+        assertEquals(expectedRows, result.size());
+        assertEquals(1, recorder.getStatements().size(), () -> "Ожидался один запрос: " + recorder.getStatements());
+    }
+}
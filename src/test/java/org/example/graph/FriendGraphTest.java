@@ -0,0 +1,271 @@
+package org.example.graph;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.example.event.FriendshipChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+public class FriendGraphTest {
+
+    // rows - пары (requester_id, receiver_id), id дружбы присваиваются по порядку
+    private static FriendGraph loadedGraph(List<Object[]> rows) {
+        EntityManager entityManager = mock(EntityManager.class);
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        List<Object[]> friendships = new ArrayList<>();
+        for (Object[] row : rows) {
+            friendships.add(new Object[]{(long) friendships.size() + 1, row[0], row[1]});
+        }
+        when(query.getResultList()).thenReturn(friendships);
+        FriendGraph graph = new FriendGraph(entityManager);
+        graph.load();
+        return graph;
+    }
+
+    @Test
+    void load_readsFriendshipsInKeysetBatches() {
+        EntityManager entityManager = mock(EntityManager.class);
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        // Полная порция - читается следующая после последнего id, неполная - последняя
+        List<Object[]> firstBatch = new ArrayList<>();
+        for (long id = 1; id <= 50_000; id++) {
+            firstBatch.add(new Object[]{id, 1L, id + 1});
+        }
+        when(query.getResultList()).thenReturn(firstBatch).thenReturn(List.<Object[]>of(new Object[]{50_007L, 2L, 3L}));
+        FriendGraph graph = new FriendGraph(entityManager);
+
+        graph.load();
+
+        verify(query).setParameter("after", 0L);
+        verify(query).setParameter("after", 50_000L);
+        verify(query, times(2)).getResultList();
+        assertEquals(50_000, graph.friendCount(1L));
+        assertTrue(graph.areFriends(2L, 3L));
+    }
+
+    @Test
+    void load_buildsSortedDistinctAdjacency() {
+        // Пара 1-3 встречается дважды (в обе стороны) - в графе одна связь
+        FriendGraph graph = loadedGraph(List.of(
+                new Object[]{1L, 5L},
+                new Object[]{3L, 1L},
+                new Object[]{1L, 3L},
+                new Object[]{2L, 5L}));
+
+        assertArrayEquals(new long[]{3L, 5L}, graph.friendIds(1L));
+        assertArrayEquals(new long[]{1L, 2L}, graph.friendIds(5L));
+        assertEquals(1, graph.friendCount(3L));
+        assertTrue(graph.areFriends(5L, 2L));
+        assertFalse(graph.areFriends(1L, 2L));
+        assertEquals(0, graph.friendIds(42L).length);
+    }
+
+    @Test
+    void addAndRemoveFriendship_keepBothSidesSorted() {
+        FriendGraph graph = loadedGraph(List.of());
+
+        graph.addFriendship(10L, 30L);
+        graph.addFriendship(10L, 20L);
+        graph.addFriendship(20L, 10L);
+
+        assertArrayEquals(new long[]{20L, 30L}, graph.friendIds(10L));
+        assertArrayEquals(new long[]{10L}, graph.friendIds(20L));
+
+        graph.removeFriendship(20L, 10L);
+        graph.removeFriendship(20L, 99L);
+
+        assertArrayEquals(new long[]{30L}, graph.friendIds(10L));
+        assertEquals(0, graph.friendCount(20L));
+    }
+
+    @Test
+    void addFriendship_growsTableBeyondInitialCapacity() {
+        FriendGraph graph = loadedGraph(List.of());
+
+        for (long userId = 2; userId <= 5_000; userId++) {
+            graph.addFriendship(1L, userId);
+        }
+
+        assertEquals(4_999, graph.friendCount(1L));
+        for (long userId = 2; userId <= 5_000; userId++) {
+            assertTrue(graph.areFriends(userId, 1L));
+        }
+    }
+
+    // Граф без связей; pairQuery отвечает на проверку статуса пары в friendships
+    private static FriendGraph graphWithPairQuery(Query pairQuery) {
+        EntityManager entityManager = mock(EntityManager.class);
+        Query loadQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("SELECT id, requester_id"))).thenReturn(loadQuery);
+        when(entityManager.createNativeQuery(startsWith("SELECT 1 FROM friendships"))).thenReturn(pairQuery);
+        when(loadQuery.getResultList()).thenReturn(List.of());
+        FriendGraph graph = new FriendGraph(entityManager);
+        graph.load();
+        return graph;
+    }
+
+    @Test
+    void onFriendshipChanged_appliesCommittedPairStatus() {
+        Query pairQuery = mock(Query.class, RETURNS_SELF);
+        when(pairQuery.getResultList()).thenReturn(List.of(1)).thenReturn(List.of());
+        FriendGraph graph = graphWithPairQuery(pairQuery);
+
+        graph.onFriendshipChanged(new FriendshipChangedEvent(2L, 1L, true));
+        assertTrue(graph.areFriends(2L, 1L));
+        verify(pairQuery).setParameter("low", 1L);
+        verify(pairQuery).setParameter("high", 2L);
+
+        graph.onFriendshipChanged(new FriendshipChangedEvent(2L, 1L, false));
+        assertFalse(graph.areFriends(1L, 2L));
+    }
+
+    @Test
+    void onFriendshipChanged_acceptAppliedAfterLaterRemove_keepsPairRemoved() {
+        // Принятие и удаление закоммичены по очереди, слушатель удаления выполнился первым:
+        // оба видят, что дружбы в БД уже нет
+        Query pairQuery = mock(Query.class, RETURNS_SELF);
+        when(pairQuery.getResultList()).thenReturn(List.of());
+        FriendGraph graph = graphWithPairQuery(pairQuery);
+
+        graph.onFriendshipChanged(new FriendshipChangedEvent(1L, 2L, false));
+        graph.onFriendshipChanged(new FriendshipChangedEvent(1L, 2L, true));
+
+        assertFalse(graph.areFriends(1L, 2L));
+        assertEquals(0, graph.friendCount(1L));
+    }
+
+    @Test
+    void mutualFriends_mergeIntersection() {
+        FriendGraph graph = loadedGraph(List.of());
+        for (long friendId : new long[]{3, 4, 7, 9, 12}) {
+            graph.addFriendship(1L, friendId);
+        }
+        for (long friendId : new long[]{4, 5, 9, 12, 20}) {
+            graph.addFriendship(2L, friendId);
+        }
+
+        assertEquals(3, graph.mutualCount(1L, 2L));
+        assertArrayEquals(new long[]{4L, 9L, 12L}, graph.mutualFriendIds(1L, 2L, 0L, 10));
+        // Страница после курсора и с ограничением размера
+        assertArrayEquals(new long[]{9L}, graph.mutualFriendIds(2L, 1L, 4L, 1));
+        assertEquals(0, graph.mutualFriendIds(1L, 2L, 12L, 10).length);
+    }
+
+    @Test
+    void mutualFriends_gallopingIntersection() {
+        FriendGraph graph = loadedGraph(List.of());
+        // У пользователя 1 много друзей, у пользователя 2 - несколько: поиск галопом по большому списку
+        for (long friendId = 10; friendId < 10_000; friendId += 3) {
+            graph.addFriendship(1L, friendId);
+        }
+        for (long friendId : new long[]{10, 11, 5_002, 9_997, 20_000}) {
+            graph.addFriendship(2L, friendId);
+        }
+
+        assertEquals(3, graph.mutualCount(2L, 1L));
+        assertArrayEquals(new long[]{10L, 5_002L, 9_997L}, graph.mutualFriendIds(1L, 2L, 0L, 10));
+        assertArrayEquals(new long[]{5_002L}, graph.mutualFriendIds(1L, 2L, 10L, 1));
+        assertEquals(0, graph.mutualCount(1L, 3L));
+    }
+
+    @Test
+    void secondDegree_ranksByMutualFriendsAndSkipsFriendsAndExcluded() {
+        FriendGraph graph = loadedGraph(List.of());
+        // Друзья пользователя 1: 2, 3, 4. Кандидат 10 - через троих, 11 - через двоих, 12 и 13 - через одного
+        graph.addFriendship(1L, 2L);
+        graph.addFriendship(1L, 3L);
+        graph.addFriendship(1L, 4L);
+        for (long friendId : new long[]{2L, 3L, 4L}) {
+            graph.addFriendship(friendId, 10L);
+        }
+        graph.addFriendship(2L, 11L);
+        graph.addFriendship(3L, 11L);
+        graph.addFriendship(2L, 13L);
+        graph.addFriendship(4L, 12L);
+        graph.addFriendship(4L, 14L);
+        // Друзья пользователя тоже друзья друг друга - не кандидаты
+        graph.addFriendship(2L, 3L);
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Candidates candidates = graph.secondDegree(1L, new long[]{14L}, 1000, 3, pool);
+
+            assertArrayEquals(new long[]{10L, 11L, 12L}, candidates.userIds());
+            assertArrayEquals(new int[]{3, 2, 1}, candidates.mutualCounts());
+            assertEquals(0, graph.secondDegree(99L, new long[0], 1000, 3, pool).size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void secondDegree_parallelCountMatchesLargeGraph() {
+        FriendGraph graph = loadedGraph(List.of());
+        // 200 друзей по 200 связей - больше порога листа, подсчет делится между задачами
+        for (long friendId = 2; friendId <= 201; friendId++) {
+            graph.addFriendship(1L, friendId);
+            for (long candidate = 1_000; candidate < 1_200; candidate++) {
+                if (candidate % 2 == 0 || friendId % 2 == 0) {
+                    graph.addFriendship(friendId, candidate);
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Candidates candidates = graph.secondDegree(1L, new long[0], 1000, 200, pool);
+
+            assertEquals(200, candidates.size());
+            // Четные кандидаты связаны со всеми 200 друзьями, нечетные - только с четными друзьями
+            assertEquals(1_000L, candidates.userIds()[0]);
+            assertEquals(200, candidates.mutualCounts()[0]);
+            assertEquals(1_001L, candidates.userIds()[100]);
+            assertEquals(100, candidates.mutualCounts()[100]);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shortestPath_findsShortestChain() {
+        FriendGraph graph = loadedGraph(List.of());
+        // Длинная цепочка 1-2-3-4-5 и короткая 1-6-5
+        graph.addFriendship(1L, 2L);
+        graph.addFriendship(2L, 3L);
+        graph.addFriendship(3L, 4L);
+        graph.addFriendship(4L, 5L);
+        graph.addFriendship(1L, 6L);
+        graph.addFriendship(6L, 5L);
+
+        assertArrayEquals(new long[]{1L, 6L, 5L}, graph.shortestPath(1L, 5L, 6, 1000));
+        assertArrayEquals(new long[]{4L, 3L, 2L}, graph.shortestPath(4L, 2L, 6, 1000));
+        assertArrayEquals(new long[]{1L, 2L}, graph.shortestPath(1L, 2L, 6, 1000));
+        assertArrayEquals(new long[]{3L}, graph.shortestPath(3L, 3L, 6, 1000));
+    }
+
+    @Test
+    void shortestPath_respectsDepthAndVisitedLimits() {
+        FriendGraph graph = loadedGraph(List.of());
+        for (long userId = 1; userId < 10; userId++) {
+            graph.addFriendship(userId, userId + 1);
+        }
+        graph.addFriendship(20L, 21L);
+
+        assertEquals(10, graph.shortestPath(1L, 10L, 9, 1000).length);
+        assertNull(graph.shortestPath(1L, 10L, 8, 1000));
+        assertNull(graph.shortestPath(1L, 10L, 9, 5));
+        // Разные компоненты связности
+        assertNull(graph.shortestPath(1L, 20L, 20, 1000));
+        assertNull(graph.shortestPath(1L, 99L, 20, 1000));
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.membership;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.example.event.CommunityDeletedEvent;
+import org.example.event.CommunityMembershipChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CommunityMembershipIndexTest {
+
+    // rows - пары (community_id, user_id) в любом порядке, база отдает их по первичному ключу
+    private static CommunityMembershipIndex loadedIndex(List<Object[]> rows) {
+        EntityManager entityManager = mock(EntityManager.class);
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.getResultList()).thenReturn(rows.stream()
+                .sorted(Comparator.<Object[]>comparingLong(row -> (Long) row[0]).thenComparingLong(row -> (Long) row[1]))
+                .toList());
+        CommunityMembershipIndex index = new CommunityMembershipIndex(entityManager);
+        index.load();
+        return index;
+    }
+
+    @Test
+    void load_groupsMembersByCommunity() {
+        CommunityMembershipIndex index = loadedIndex(List.of(
+                new Object[]{1L, 10L},
+                new Object[]{2L, 10L},
+                new Object[]{1L, 30L},
+                new Object[]{1L, 20L}));
+
+        assertArrayEquals(new long[]{10L, 20L, 30L}, index.members(1L).toArray());
+        assertEquals(1, index.memberCount(2L));
+        assertTrue(index.isMember(2L, 10L));
+        assertFalse(index.isMember(2L, 20L));
+        assertEquals(0, index.memberCount(42L));
+    }
+
+    @Test
+    void load_readsMembersInKeysetBatches() {
+        EntityManager entityManager = mock(EntityManager.class);
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        // Сообщество 1 разрезано границей порции - его участники собираются из обеих
+        List<Object[]> firstBatch = new ArrayList<>();
+        for (long userId = 1; userId <= 50_000; userId++) {
+            firstBatch.add(new Object[]{1L, userId});
+        }
+        when(query.getResultList()).thenReturn(firstBatch)
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 50_001L}, new Object[]{2L, 7L}));
+        CommunityMembershipIndex index = new CommunityMembershipIndex(entityManager);
+
+        index.load();
+
+        verify(query).setParameter("afterCommunity", 1L);
+        verify(query).setParameter("afterUser", 50_000L);
+        verify(query, times(2)).getResultList();
+        assertEquals(50_001, index.memberCount(1L));
+        assertArrayEquals(new long[]{7L}, index.members(2L).toArray());
+    }
+
+    @Test
+    void setOperations_workAcrossCommunities() {
+        CommunityMembershipIndex index = loadedIndex(List.of(
+                new Object[]{1L, 10L},
+                new Object[]{1L, 20L},
+                new Object[]{1L, 30L},
+                new Object[]{2L, 20L},
+                new Object[]{2L, 30L},
+                new Object[]{3L, 30L},
+                new Object[]{3L, 40L}));
+
+        assertArrayEquals(new long[]{30L}, index.intersection(1L, 2L, 3L).toArray());
+        assertArrayEquals(new long[]{10L, 20L, 30L, 40L}, index.union(1L, 3L).toArray());
+        assertTrue(index.intersection(1L, 42L).isEmpty());
+        assertTrue(index.intersection().isEmpty());
+        assertArrayEquals(new long[]{40L, 30L}, index.filterMembers(3L, new long[]{40L, 10L, 30L}));
+    }
+
+    // Индекс над изменяемой таблицей table: проверка пары в слушателе читает текущее содержимое
+    private static CommunityMembershipIndex indexOverTable(List<long[]> table) {
+        EntityManager entityManager = mock(EntityManager.class);
+        Query loadQuery = mock(Query.class, RETURNS_SELF);
+        Query pairQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("ORDER BY community_id, user_id"))).thenReturn(loadQuery);
+        when(entityManager.createNativeQuery(startsWith("SELECT 1 FROM community_members"))).thenReturn(pairQuery);
+        when(loadQuery.getResultList()).thenAnswer(invocation -> table.stream()
+                .sorted(Comparator.<long[]>comparingLong(row -> row[0]).thenComparingLong(row -> row[1]))
+                .map(row -> new Object[]{row[0], row[1]})
+                .toList());
+        long[] pair = new long[2];
+        when(pairQuery.setParameter(eq("communityId"), any())).thenAnswer(invocation -> {
+            pair[0] = invocation.getArgument(1);
+            return pairQuery;
+        });
+        when(pairQuery.setParameter(eq("userId"), any())).thenAnswer(invocation -> {
+            pair[1] = invocation.getArgument(1);
+            return pairQuery;
+        });
+        when(pairQuery.getResultList()).thenAnswer(invocation -> table.stream()
+                .filter(row -> row[0] == pair[0] && row[1] == pair[1])
+                .map(row -> 1)
+                .toList());
+        CommunityMembershipIndex index = new CommunityMembershipIndex(entityManager);
+        index.load();
+        return index;
+    }
+
+    @Test
+    void events_updateMembersAfterCommit() {
+        List<long[]> table = new ArrayList<>(List.of(new long[]{1L, 10L}));
+        CommunityMembershipIndex index = indexOverTable(table);
+
+        table.add(new long[]{1L, 20L});
+        table.add(new long[]{2L, 20L});
+        table.removeIf(row -> row[0] == 1L && row[1] == 10L);
+        index.onMembershipChanged(new CommunityMembershipChangedEvent(1L, 20L, true));
+        index.onMembershipChanged(new CommunityMembershipChangedEvent(2L, 20L, true));
+        index.onMembershipChanged(new CommunityMembershipChangedEvent(1L, 10L, false));
+
+        assertArrayEquals(new long[]{20L}, index.members(1L).toArray());
+        assertTrue(index.isMember(2L, 20L));
+
+        table.removeIf(row -> row[0] == 2L);
+        index.onCommunityDeleted(new CommunityDeletedEvent(2L));
+
+        assertFalse(index.isMember(2L, 20L));
+        assertEquals(0, index.memberCount(2L));
+    }
+
+    @Test
+    void events_joinAppliedBeforeEarlierLeave_keepsMember() {
+        List<long[]> table = new ArrayList<>(List.of(new long[]{1L, 10L}));
+        CommunityMembershipIndex index = indexOverTable(table);
+
+        // Выход и повторное вступление закоммичены по очереди, слушатель вступления выполнился первым:
+        // оба видят, что пользователь снова участник
+        table.removeIf(row -> row[1] == 10L);
+        table.add(new long[]{1L, 10L});
+        index.onMembershipChanged(new CommunityMembershipChangedEvent(1L, 10L, true));
+        index.onMembershipChanged(new CommunityMembershipChangedEvent(1L, 10L, false));
+
+        assertTrue(index.isMember(1L, 10L));
+        assertEquals(1, index.memberCount(1L));
+    }
+}
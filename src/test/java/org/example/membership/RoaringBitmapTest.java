@@ -0,0 +1,101 @@
+package org.example.membership;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoaringBitmapTest {
+
+    @Test
+    void of_sortsAndDeduplicates() {
+        RoaringBitmap bitmap = RoaringBitmap.of(70_000L, 3L, 1L, 3L, 65_536L);
+
+        assertEquals(4, bitmap.cardinality());
+        assertArrayEquals(new long[]{1L, 3L, 65_536L, 70_000L}, bitmap.toArray());
+        assertTrue(bitmap.contains(65_536L));
+        assertFalse(bitmap.contains(2L));
+        assertFalse(bitmap.contains(-1L));
+    }
+
+    @Test
+    void withAndWithout_leaveOriginalUnchanged() {
+        RoaringBitmap original = RoaringBitmap.of(1L, 2L);
+
+        RoaringBitmap added = original.with(100_000L);
+        RoaringBitmap removed = added.without(1L).without(100_000L);
+
+        assertArrayEquals(new long[]{1L, 2L}, original.toArray());
+        assertArrayEquals(new long[]{1L, 2L, 100_000L}, added.toArray());
+        assertArrayEquals(new long[]{2L}, removed.toArray());
+        assertSame(added, added.with(2L));
+        assertSame(original, original.without(5L));
+        assertTrue(removed.without(2L).isEmpty());
+    }
+
+    @Test
+    void denseContainer_switchesBetweenArrayAndBitmap() {
+        RoaringBitmap bitmap = RoaringBitmap.EMPTY;
+        for (long value = 1; value <= 5_000; value++) {
+            bitmap = bitmap.with(value);
+        }
+        assertEquals(5_000, bitmap.cardinality());
+        assertTrue(bitmap.contains(4_097L));
+
+        for (long value = 1; value <= 4_990; value++) {
+            bitmap = bitmap.without(value);
+        }
+        assertArrayEquals(LongStream.rangeClosed(4_991, 5_000).toArray(), bitmap.toArray());
+    }
+
+    @Test
+    void andAndOr_matchSetOperations() {
+        Random random = new Random(42);
+        TreeSet<Long> left = new TreeSet<>();
+        TreeSet<Long> right = new TreeSet<>();
+        // Плотные и разреженные участки, чтобы задеть все сочетания контейнеров
+        for (int i = 0; i < 20_000; i++) {
+            left.add(1L + random.nextInt(30_000));
+            right.add(1L + random.nextInt(300_000));
+        }
+        RoaringBitmap a = RoaringBitmap.of(left.stream().mapToLong(Long::longValue).toArray());
+        RoaringBitmap b = RoaringBitmap.of(right.stream().mapToLong(Long::longValue).toArray());
+
+        TreeSet<Long> expectedAnd = new TreeSet<>(left);
+        expectedAnd.retainAll(right);
+        TreeSet<Long> expectedOr = new TreeSet<>(left);
+        expectedOr.addAll(right);
+
+        assertArrayEquals(expectedAnd.stream().mapToLong(Long::longValue).toArray(), a.and(b).toArray());
+        assertEquals(expectedAnd.size(), a.and(b).cardinality());
+        assertArrayEquals(expectedOr.stream().mapToLong(Long::longValue).toArray(), a.or(b).toArray());
+        assertEquals(expectedOr.size(), b.or(a).cardinality());
+    }
+
+    @Test
+    void descending_returnsLargestValuesBelowBound() {
+        Random random = new Random(7);
+        TreeSet<Long> values = new TreeSet<>();
+        for (int i = 0; i < 30_000; i++) {
+            values.add(1L + random.nextInt(200_000));
+        }
+        RoaringBitmap bitmap = RoaringBitmap.of(values.stream().mapToLong(Long::longValue).toArray());
+
+        for (long before : new long[]{Long.MAX_VALUE, 200_001L, 131_072L, 65_600L, 65_536L, 64L, 2L, 1L}) {
+            long[] expected = values.headSet(before, false).descendingSet().stream()
+                    .limit(50).mapToLong(Long::longValue).toArray();
+            assertArrayEquals(expected, bitmap.descending(before, 50), "before = " + before);
+        }
+        assertEquals(values.size(), bitmap.descending(Long.MAX_VALUE, Integer.MAX_VALUE).length);
+        assertEquals(0, RoaringBitmap.EMPTY.descending(10L, 5).length);
+    }
+
+    @Test
+    void outOfRangeValue_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> RoaringBitmap.of(0L));
+        assertThrows(IllegalArgumentException.class, () -> RoaringBitmap.EMPTY.with(1L << 32));
+    }
+}
@@ -0,0 +1,236 @@
+package org.example.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.example.event.ContentChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ContentSearchIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private static long[] search(ContentSearchIndex index, ContentType type, String query) {
+        return index.search(type, SearchQuery.parse(query), Long.MAX_VALUE, 10);
+    }
+
+    // Таблицы posts и comments, строки - (id, текст) или (id, текст, номер правки); stats - ответ на проверку
+    // снимка (всего строк, строк после снимка, отредактированных строк до него, сумма их номеров правок).
+    // addedPosts - строки posts, добавленные после снимка
+    private static EntityManager database(List<Object[]> posts, List<Object[]> comments, Object[] stats, List<Object[]> addedPosts) {
+        EntityManager entityManager = mock(EntityManager.class);
+        // Без добавленных строк список posts не копируется: тест может менять строки после загрузки
+        List<Object[]> allPosts = posts;
+        if (!addedPosts.isEmpty()) {
+            allPosts = new ArrayList<>(posts);
+            allPosts.addAll(addedPosts);
+        }
+        Query postsQuery = table(allPosts);
+        Query commentsQuery = table(comments);
+        Query postRow = row(allPosts);
+        Query commentRow = row(comments);
+        Query statsQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("SELECT id, content, content_version FROM posts WHERE id > :after"))).thenReturn(postsQuery);
+        when(entityManager.createNativeQuery(startsWith("SELECT id, content, content_version FROM comments WHERE id > :after"))).thenReturn(commentsQuery);
+        when(entityManager.createNativeQuery(startsWith("SELECT content, content_version FROM posts WHERE id = :id"))).thenReturn(postRow);
+        when(entityManager.createNativeQuery(startsWith("SELECT content, content_version FROM comments WHERE id = :id"))).thenReturn(commentRow);
+        when(entityManager.createNativeQuery(startsWith("SELECT COUNT(*)"))).thenReturn(statsQuery);
+        when(statsQuery.getSingleResult()).thenReturn(stats);
+        return entityManager;
+    }
+
+    private static Object[] withVersion(Object[] row) {
+        return row.length > 2 ? row : new Object[]{row[0], row[1], 0};
+    }
+
+    // Запрос строки по :id: (текст, номер правки) или пустой список
+    private static Query row(List<Object[]> rows) {
+        Query query = mock(Query.class, RETURNS_SELF);
+        long[] id = new long[1];
+        when(query.setParameter(eq("id"), any())).thenAnswer(invocation -> {
+            id[0] = ((Number) invocation.getArgument(1)).longValue();
+            return query;
+        });
+        when(query.getResultList()).thenAnswer(invocation -> rows.stream()
+                .filter(row -> ((Number) row[0]).longValue() == id[0])
+                .map(row -> new Object[]{row[1], withVersion(row)[2]})
+                .toList());
+        return query;
+    }
+
+    // Запрос к таблице, отвечающий строками с id больше :after не более :limit штук
+    private static Query table(List<Object[]> rows) {
+        Query query = mock(Query.class, RETURNS_SELF);
+        long[] after = new long[1];
+        int[] limit = {Integer.MAX_VALUE};
+        when(query.setParameter(eq("after"), any())).thenAnswer(invocation -> {
+            after[0] = ((Number) invocation.getArgument(1)).longValue();
+            return query;
+        });
+        when(query.setParameter(eq("limit"), any())).thenAnswer(invocation -> {
+            limit[0] = invocation.getArgument(1);
+            return query;
+        });
+        when(query.getResultList()).thenAnswer(invocation -> rows.stream()
+                .filter(row -> ((Number) row[0]).longValue() > after[0])
+                .limit(limit[0])
+                .map(ContentSearchIndexTest::withVersion)
+                .toList());
+        return query;
+    }
+
+    @Test
+    void load_withoutSnapshot_buildsFromTables() {
+        Path snapshot = directory.resolve("index.snapshot");
+        ContentSearchIndex index = new ContentSearchIndex(database(
+                List.<Object[]>of(new Object[]{1L, "Поход в горы"}),
+                List.<Object[]>of(new Object[]{1L, "Красивые горы"}),
+                null, List.of()), snapshot.toString());
+
+        index.load();
+
+        assertArrayEquals(new long[]{1L}, search(index, ContentType.POST, "поход"));
+        assertArrayEquals(new long[]{1L}, search(index, ContentType.COMMENT, "красив*"));
+        assertEquals(0, search(index, ContentType.COMMENT, "поход").length);
+    }
+
+    @Test
+    void snapshot_restoresIndexAndIndexesAppendedRows() throws Exception {
+        Path snapshot = directory.resolve("index.snapshot");
+        List<Object[]> posts = new ArrayList<>(List.<Object[]>of(new Object[]{1L, "Поход в горы"}, new Object[]{2L, "Море"}));
+        List<Object[]> comments = new ArrayList<>();
+        ContentSearchIndex first = new ContentSearchIndex(database(posts, comments, null, List.of()), snapshot.toString());
+        first.load();
+        posts.set(1, new Object[]{2L, "Теплое море", 1});
+        first.onContentChanged(new ContentChangedEvent(ContentType.POST, 2L, "Море", "Теплое море"));
+        comments.add(new Object[]{7L, "Отличный поход"});
+        first.onContentChanged(new ContentChangedEvent(ContentType.COMMENT, 7L, null, "Отличный поход"));
+        first.saveSnapshot();
+        assertTrue(Files.exists(snapshot));
+
+        // Для POST после снимка добавлен пост 3, пост 2 с тех пор не правился; для COMMENT изменений нет
+        EntityManager entityManager = database(List.of(), List.of(), null,
+                List.<Object[]>of(new Object[]{3L, "Теплые горы"}));
+        Query statsQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("SELECT COUNT(*)"))).thenReturn(statsQuery);
+        when(statsQuery.getSingleResult()).thenReturn(new Object[]{3L, 1L, 1L, 1L}).thenReturn(new Object[]{1L, 0L, 0L, 0L});
+
+        ContentSearchIndex second = new ContentSearchIndex(entityManager, snapshot.toString());
+        second.load();
+
+        assertArrayEquals(new long[]{3L, 1L}, search(second, ContentType.POST, "горы"));
+        assertArrayEquals(new long[]{2L}, search(second, ContentType.POST, "теплое"));
+        assertArrayEquals(new long[]{7L}, search(second, ContentType.COMMENT, "поход"));
+        // Таблицы целиком не перечитывались: posts дочитаны после id 2 из снимка, comments не читались
+        verify(entityManager, times(1)).createNativeQuery(startsWith("SELECT id, content, content_version FROM posts"));
+        verify(entityManager, never()).createNativeQuery(startsWith("SELECT id, content, content_version FROM comments"));
+        // Снимок удален до следующей остановки
+        assertFalse(Files.exists(snapshot));
+    }
+
+    @Test
+    void snapshot_staleAfterDeletes_isRebuilt() {
+        Path snapshot = directory.resolve("index.snapshot");
+        ContentSearchIndex first = new ContentSearchIndex(database(
+                List.<Object[]>of(new Object[]{1L, "Поход"}, new Object[]{2L, "Море"}),
+                List.of(), null, List.of()), snapshot.toString());
+        first.load();
+        first.saveSnapshot();
+
+        // В posts осталась одна строка из двух - снимок не подходит
+        ContentSearchIndex second = new ContentSearchIndex(database(
+                List.<Object[]>of(new Object[]{2L, "Море"}),
+                List.of(), new Object[]{1L, 0L, 0L, 0L}, List.of()), snapshot.toString());
+        second.load();
+
+        assertEquals(0, search(second, ContentType.POST, "поход").length);
+        assertArrayEquals(new long[]{2L}, search(second, ContentType.POST, "море"));
+    }
+
+    @Test
+    void snapshot_staleAfterEdit_isRebuilt() {
+        Path snapshot = directory.resolve("index.snapshot");
+        ContentSearchIndex first = new ContentSearchIndex(database(
+                List.<Object[]>of(new Object[]{1L, "Поход"}, new Object[]{2L, "Море"}),
+                List.of(), null, List.of()), snapshot.toString());
+        first.load();
+        first.saveSnapshot();
+
+        // Строк столько же, но пост 1 отредактирован после снимка - снимок не подходит
+        ContentSearchIndex second = new ContentSearchIndex(database(
+                List.<Object[]>of(new Object[]{1L, "Восхождение", 1}, new Object[]{2L, "Море"}),
+                List.of(), new Object[]{2L, 0L, 1L, 1L}, List.of()), snapshot.toString());
+        second.load();
+
+        assertEquals(0, search(second, ContentType.POST, "поход").length);
+        assertArrayEquals(new long[]{1L}, search(second, ContentType.POST, "восхождение"));
+    }
+
+    @Test
+    void onContentChanged_editsAppliedOutOfCommitOrder_indexLatestText() {
+        List<Object[]> posts = new ArrayList<>(List.<Object[]>of(new Object[]{1L, "Поход в горы"}));
+        ContentSearchIndex index = new ContentSearchIndex(database(posts, List.of(), null, List.of()),
+                directory.resolve("index.snapshot").toString());
+        index.load();
+
+        // Правки X -> Y и Y -> Z закоммичены по очереди, а слушатели выполнились в обратном порядке
+        posts.set(0, new Object[]{1L, "Прогулка у моря", 2});
+        index.onContentChanged(new ContentChangedEvent(ContentType.POST, 1L, "Поездка на озеро", "Прогулка у моря"));
+        index.onContentChanged(new ContentChangedEvent(ContentType.POST, 1L, "Поход в горы", "Поездка на озеро"));
+
+        assertArrayEquals(new long[]{1L}, search(index, ContentType.POST, "прогулка"));
+        assertEquals(0, search(index, ContentType.POST, "поход").length);
+        assertEquals(0, search(index, ContentType.POST, "озеро").length);
+    }
+
+    @Test
+    void onContentChanged_creationAppliedAfterDeletion_leavesNothing() {
+        ContentSearchIndex index = new ContentSearchIndex(database(List.of(), List.of(), null, List.of()),
+                directory.resolve("index.snapshot").toString());
+        index.load();
+
+        // Пост создан и удален, слушатель удаления выполнился первым: строки уже нет
+        index.onContentChanged(new ContentChangedEvent(ContentType.POST, 1L, "Поход", null));
+        index.onContentChanged(new ContentChangedEvent(ContentType.POST, 1L, null, "Поход"));
+
+        assertEquals(0, search(index, ContentType.POST, "поход").length);
+    }
+
+    @Test
+    void load_readsTablesInBatches() {
+        List<Object[]> posts = new ArrayList<>();
+        for (long id = 1; id <= 25_000; id++) {
+            posts.add(new Object[]{id, id == 25_000 ? "последний пост" : "пост " + id});
+        }
+        EntityManager entityManager = database(posts, List.of(), null, List.of());
+        ContentSearchIndex index = new ContentSearchIndex(entityManager, directory.resolve("index.snapshot").toString());
+
+        index.load();
+
+        assertArrayEquals(new long[]{25_000L}, search(index, ContentType.POST, "последний"));
+        // 10 000 + 10 000 + 5 000 строк - три запроса, а не одна выборка всей таблицы
+        verify(entityManager, times(3)).createNativeQuery(startsWith("SELECT id, content, content_version FROM posts"));
+    }
+
+    @Test
+    void corruptedSnapshot_isIgnored() throws Exception {
+        Path snapshot = directory.resolve("index.snapshot");
+        Files.write(snapshot, new byte[]{1, 2, 3});
+        ContentSearchIndex index = new ContentSearchIndex(database(
+                List.<Object[]>of(new Object[]{1L, "Поход"}), List.of(), null, List.of()), snapshot.toString());
+
+        index.load();
+
+        assertArrayEquals(new long[]{1L}, search(index, ContentType.POST, "поход"));
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvertedIndexTest {
+
+    private static InvertedIndex index() {
+        return InvertedIndex.build(List.of(
+                new Object[]{1L, "Поход в горы"},
+                new Object[]{2L, "Горный велосипед, новый!"},
+                new Object[]{3L, "Ёлка и горы зимой"},
+                new Object[]{4L, "Новый велосипед"},
+                new Object[]{5L, null}));
+    }
+
+    private static long[] search(InvertedIndex index, String query) {
+        return index.search(SearchQuery.parse(query), Long.MAX_VALUE, 10);
+    }
+
+    @Test
+    void tokens_lowercaseAndSplitOnPunctuation() {
+        assertEquals(Set.of("горный", "велосипед", "новый", "елка", "42"), Tokenizer.tokens("Горный велосипед, НОВЫЙ! Ёлка 42 и"));
+        assertTrue(Tokenizer.tokens(null).isEmpty());
+    }
+
+    @Test
+    void search_andOrAndPrefix_newestFirst() {
+        InvertedIndex index = index();
+
+        assertArrayEquals(new long[]{3L, 1L}, search(index, "горы"));
+        assertArrayEquals(new long[]{4L, 2L}, search(index, "новый ВЕЛОСИПЕД"));
+        assertArrayEquals(new long[]{3L, 2L, 1L}, search(index, "гор*"));
+        assertArrayEquals(new long[]{4L, 3L, 2L}, search(index, "елка OR новый велосипед"));
+        assertArrayEquals(new long[]{2L}, search(index, "горный OR самолет"));
+        assertEquals(0, search(index, "самолет").length);
+    }
+
+    @Test
+    void search_pagesByIdBound() {
+        InvertedIndex index = index();
+
+        assertArrayEquals(new long[]{3L}, index.search(SearchQuery.parse("гор*"), Long.MAX_VALUE, 1));
+        assertArrayEquals(new long[]{2L, 1L}, index.search(SearchQuery.parse("гор*"), 3L, 5));
+    }
+
+    @Test
+    void update_replacesOnlyChangedTokens() {
+        InvertedIndex index = index();
+
+        index.update(1L, "Поход в горы", "Поход на море");
+        index.update(6L, null, "Море и горы");
+        index.update(4L, "Новый велосипед", null);
+
+        assertArrayEquals(new long[]{6L, 3L}, search(index, "горы"));
+        assertArrayEquals(new long[]{6L, 1L}, search(index, "море"));
+        assertArrayEquals(new long[]{2L}, search(index, "велосипед"));
+        assertFalse(index.postings().containsKey("в"));
+        assertFalse(index.postings().get("поход").contains(6L));
+        assertTrue(index.documents().contains(5L));
+        assertFalse(index.documents().contains(4L));
+    }
+
+    @Test
+    void parse_blankQuery_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.parse("  "));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.parse("OR ! *"));
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.security;
+
+import org.example.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "TestSecretKeyForJwtThatIsAtLeast32Chars!";
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletResponse doFilter(JwtAuthenticationFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/posts/all");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void tokenWithClaims_authenticatesWithoutDatabase() throws Exception {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, -1, 0);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(provider, userDetailsService);
+
+        MockHttpServletResponse response = doFilter(filter, provider.generateToken(3L, "ivan", Set.of("ROLE_USER")));
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals(200, response.getStatus());
+        assertEquals(3L, ((UserPrincipal) authentication.getPrincipal()).getId());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void staleToken_revalidatedAgainstDatabase() throws Exception {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, 0, 0);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(provider, userDetailsService);
+        User user = User.builder().id(3L).username("ivan").roles(Set.of()).build();
+        when(userDetailsService.loadUserByUsername("ivan")).thenReturn(new CustomUserDetails(user));
+
+        doFilter(filter, provider.generateToken(3L, "ivan", Set.of("ROLE_USER")));
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertInstanceOf(CustomUserDetails.class, authentication.getPrincipal());
+        verify(userDetailsService).loadUserByUsername("ivan");
+    }
+
+    @Test
+    void invalidToken_unauthorized() throws Exception {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, -1, 0);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(provider, userDetailsService);
+
+        MockHttpServletResponse response = doFilter(filter, "not-a-token");
+
+        assertEquals(401, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
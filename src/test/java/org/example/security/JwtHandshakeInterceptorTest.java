@@ -0,0 +1,107 @@
+package org.example.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.socket.WebSocketHandler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class JwtHandshakeInterceptorTest {
+
+    private static final String SECRET = "TestSecretKeyForJwtThatIsAtLeast32Chars!";
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    private JwtTokenProvider provider;
+    private JwtHandshakeInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        provider = new JwtTokenProvider(SECRET, 60_000, -1, 0);
+        interceptor = new JwtHandshakeInterceptor(provider, userDetailsService);
+    }
+
+    @Test
+    void tokenInQueryParameter_putsUserIdIntoAttributes() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/messages");
+        request.setQueryString("token=" + provider.generateToken(5L, "alice", List.of("ROLE_USER")));
+        Map<String, Object> attributes = new HashMap<>();
+
+        boolean accepted = interceptor.beforeHandshake(new ServletServerHttpRequest(request),
+                new ServletServerHttpResponse(new MockHttpServletResponse()), mock(WebSocketHandler.class), attributes);
+
+        assertTrue(accepted);
+        assertEquals(5L, attributes.get(JwtHandshakeInterceptor.USER_ID_ATTRIBUTE));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void tokenInHeader_isAccepted() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/messages");
+        request.addHeader("Authorization", "Bearer " + provider.generateToken(5L, "alice", List.of("ROLE_USER")));
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertTrue(interceptor.beforeHandshake(new ServletServerHttpRequest(request),
+                new ServletServerHttpResponse(new MockHttpServletResponse()), mock(WebSocketHandler.class), attributes));
+        assertEquals(5L, attributes.get(JwtHandshakeInterceptor.USER_ID_ATTRIBUTE));
+    }
+
+    @Test
+    void invalidToken_rejectsHandshake() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/messages");
+        request.setQueryString("token=garbage");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
+
+        boolean accepted = interceptor.beforeHandshake(new ServletServerHttpRequest(request),
+                response, mock(WebSocketHandler.class), new HashMap<>());
+        response.flush();
+
+        assertFalse(accepted);
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), servletResponse.getStatus());
+    }
+
+    @Test
+    void deletedUser_rejectsHandshake() throws Exception {
+        // Перепроверка по БД для любого токена: пользователь удален после выдачи токена
+        provider = new JwtTokenProvider(SECRET, 60_000, 0, 0);
+        interceptor = new JwtHandshakeInterceptor(provider, userDetailsService);
+        when(userDetailsService.loadUserByUsername("alice")).thenThrow(new UsernameNotFoundException("Пользователь не найден: alice"));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/messages");
+        request.setQueryString("token=" + provider.generateToken(5L, "alice", List.of("ROLE_USER")));
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
+        Map<String, Object> attributes = new HashMap<>();
+
+        boolean accepted = interceptor.beforeHandshake(new ServletServerHttpRequest(request),
+                response, mock(WebSocketHandler.class), attributes);
+        response.flush();
+
+        assertFalse(accepted);
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), servletResponse.getStatus());
+        assertTrue(attributes.isEmpty());
+    }
+
+    @Test
+    void missingToken_rejectsHandshake() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/messages");
+
+        assertFalse(interceptor.beforeHandshake(new ServletServerHttpRequest(request),
+                new ServletServerHttpResponse(new MockHttpServletResponse()), mock(WebSocketHandler.class), new HashMap<>()));
+    }
+}
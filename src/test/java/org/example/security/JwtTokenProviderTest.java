@@ -0,0 +1,73 @@
+package org.example.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtTokenProviderTest {
+
+    private static final String SECRET = "TestSecretKeyForJwtThatIsAtLeast32Chars!";
+
+    @Test
+    void generateToken_principalRestoredFromClaims() {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, -1, 0);
+
+        String token = provider.generateToken(7L, "ivan", Set.of("ROLE_USER", "ROLE_ADMIN"));
+        JwtUserPrincipal principal = provider.getPrincipal(token);
+
+        assertTrue(provider.validateToken(token));
+        assertEquals(7L, principal.getId());
+        assertEquals("ivan", principal.getUsername());
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), principal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet()));
+        assertFalse(provider.requiresDbCheck(principal));
+    }
+
+    @Test
+    void requiresDbCheck_tokenOlderThanLimit() {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, 0, 0);
+
+        JwtUserPrincipal principal = provider.getPrincipal(provider.generateToken(7L, "ivan", Set.of()));
+
+        assertTrue(provider.requiresDbCheck(principal));
+    }
+
+    @Test
+    void validateToken_foreignSignature_rejected() {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, -1, 0);
+        JwtTokenProvider other = new JwtTokenProvider("AnotherSecretKeyForJwtThatIsAtLeast32Chars", 60_000, -1, 0);
+
+        assertFalse(provider.validateToken(other.generateToken(7L, "ivan", Set.of())));
+    }
+
+    @Test
+    void verify_cacheEnabled_tokenParsedOnce() {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, -1, 16);
+        String token = provider.generateToken(7L, "ivan", Set.of("ROLE_USER"));
+
+        Claims first = provider.verify(token);
+        Claims second = provider.verify(token);
+
+        assertSame(first, second);
+        assertEquals("ivan", provider.getUsername(token));
+    }
+
+    @Test
+    void verify_cacheEnabled_tamperedTokenRejected() {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, -1, 16);
+        String token = provider.generateToken(7L, "ivan", Set.of("ROLE_USER"));
+        provider.verify(token);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(provider.getValidClaims(tampered));
+        assertThrows(JwtException.class, () -> provider.verify(tampered));
+    }
+}
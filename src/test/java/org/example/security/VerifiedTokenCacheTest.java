@@ -0,0 +1,51 @@
+package org.example.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VerifiedTokenCacheTest {
+
+    private Claims claimsExpiringAt(long expiresAtMillis) {
+        return Jwts.claims().setSubject("ivan").setExpiration(new Date(expiresAtMillis));
+    }
+
+    @Test
+    void get_afterExpiration_entryEvicted() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(4);
+        Claims claims = claimsExpiringAt(10_000);
+        cache.put("token", claims);
+
+        assertSame(claims, cache.get("token", 9_999));
+        assertNull(cache.get("token", 10_000));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_overCapacity_leastRecentlyUsedEvicted() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        cache.put("a", claimsExpiringAt(10_000));
+        cache.put("b", claimsExpiringAt(10_000));
+        cache.get("a", 0);
+
+        cache.put("c", claimsExpiringAt(10_000));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a", 0));
+        assertNull(cache.get("b", 0));
+        assertNotNull(cache.get("c", 0));
+    }
+
+    @Test
+    void put_withoutExpiration_notCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+
+        cache.put("token", Jwts.claims().setSubject("ivan"));
+
+        assertNull(cache.get("token", 0));
+    }
+}
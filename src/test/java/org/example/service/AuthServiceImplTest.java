@@ -0,0 +1,54 @@
+package org.example.service;
+
+import org.example.repository.UserRepository;
+import org.example.service.impl.AuthServiceImpl;
+import org.example.username.UsernameFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UsernameFilter usernameFilter;
+
+    @InjectMocks
+    private AuthServiceImpl authService;
+
+    @Test
+    void isUsernameAvailable_notInFilter_skipsDatabase() {
+        when(usernameFilter.mightBeTaken("anna")).thenReturn(false);
+
+        assertTrue(authService.isUsernameAvailable("anna"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void isUsernameAvailable_maybeTaken_checksDatabase() {
+        when(usernameFilter.mightBeTaken("ivan")).thenReturn(true);
+        when(userRepository.existsByUsername("ivan")).thenReturn(true);
+        when(usernameFilter.mightBeTaken("petr")).thenReturn(true);
+        when(userRepository.existsByUsername("petr")).thenReturn(false);
+
+        assertFalse(authService.isUsernameAvailable("ivan"));
+        // Ложное срабатывание фильтра исправляется запросом к БД
+        assertTrue(authService.isUsernameAvailable("petr"));
+    }
+
+    @Test
+    void isUsernameAvailable_blank_throwsException() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> authService.isUsernameAvailable(" "));
+        assertTrue(ex.getMessage().contains("Логин не может быть пустым"));
+        verifyNoInteractions(usernameFilter, userRepository);
+    }
+}
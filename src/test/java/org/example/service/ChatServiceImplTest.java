@@ -2,22 +2,29 @@ package org.example.service;
 
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import org.example.dto.ChatDTO;
+import org.example.dto.InboxChatDTO;
 import org.example.entity.Chat;
 import org.example.entity.User;
 import org.example.entity.enums.ChatType;
 import org.example.mapper.ChatMapper;
+import org.example.service.ChatService;
 import org.example.service.impl.ChatServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -41,31 +48,86 @@ public class ChatServiceImplTest {
 
     @Test
     void createChat_success() {
-        User user1 = new User();
-        user1.setId(1L);
+        // Пара не найдена по ключу
+        TypedQuery<Long> pairQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(startsWith("SELECT c.id FROM Chat c"), eq(Long.class))).thenReturn(pairQuery);
+        when(pairQuery.getResultStream()).thenReturn(Stream.empty());
+
+        TypedQuery<Long> usersQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(startsWith("SELECT COUNT(u)"), eq(Long.class))).thenReturn(usersQuery);
+        when(usersQuery.getSingleResult()).thenReturn(2L);
+
+        Query insertChat = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("INSERT INTO chats"))).thenReturn(insertChat);
+        when(insertChat.getResultList()).thenReturn(List.of(10L));
+        Query insertParticipants = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("INSERT INTO chat_participants"))).thenReturn(insertParticipants);
+
+        ChatDTO result = chatService.createChat(2L, 1L);
+
+        assertEquals(10L, result.getId());
+        assertEquals(ChatType.PRIVATE, result.getType());
+        assertEquals(Set.of(1L, 2L), result.getParticipantsIds());
+        // Ключ пары канонический: меньший id первым, независимо от порядка аргументов
+        verify(insertChat).setParameter("low", 1L);
+        verify(insertChat).setParameter("high", 2L);
+        verify(insertParticipants).setParameter("chatId", 10L);
+        verify(insertParticipants).executeUpdate();
+        verifyNoInteractions(chatMapper);
+    }
 
-        User user2 = new User();
-        user2.setId(2L);
+    @Test
+    void createChat_existingPair_returnsExisting() {
+        TypedQuery<Long> pairQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(startsWith("SELECT c.id FROM Chat c"), eq(Long.class))).thenReturn(pairQuery);
+        when(pairQuery.getResultStream()).thenReturn(Stream.of(5L));
 
-        ChatDTO expectedDto = ChatDTO.builder().id(1L).type(ChatType.PRIVATE).participantsIds(Set.of(1L, 2L)).build();
+        ChatDTO result = chatService.createChat(1L, 2L);
 
-        // Мокаем createQuery для поиска существующих чатов
-        TypedQuery<Chat> query = mock(TypedQuery.class);
-        when(entityManager.createQuery(anyString(), eq(Chat.class))).thenReturn(query);
-        when(query.setParameter(anyString(), any())).thenReturn(query);
-        when(query.getResultList()).thenReturn(new ArrayList<>()); // Пустой список = чат не найден
+        assertEquals(5L, result.getId());
+        assertEquals(Set.of(1L, 2L), result.getParticipantsIds());
+        verify(entityManager, never()).createNativeQuery(anyString());
+    }
 
-        when(entityManager.find(User.class, 1L)).thenReturn(user1);
-        when(entityManager.find(User.class, 2L)).thenReturn(user2);
-        when(chatMapper.toDTO(any(Chat.class))).thenReturn(expectedDto);
+    @Test
+    void createChat_concurrentCreate_returnsWinner() {
+        TypedQuery<Long> pairQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(startsWith("SELECT c.id FROM Chat c"), eq(Long.class))).thenReturn(pairQuery);
+        // Первый поиск - чата нет, после конфликта вставки - чат параллельного запроса
+        when(pairQuery.getResultStream()).thenReturn(Stream.empty(), Stream.of(7L));
+
+        TypedQuery<Long> usersQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(startsWith("SELECT COUNT(u)"), eq(Long.class))).thenReturn(usersQuery);
+        when(usersQuery.getSingleResult()).thenReturn(2L);
+
+        Query insertChat = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("INSERT INTO chats"))).thenReturn(insertChat);
+        when(insertChat.getResultList()).thenReturn(List.of());
 
         ChatDTO result = chatService.createChat(1L, 2L);
 
-        assertEquals(expectedDto.getId(), result.getId());
-        assertEquals(expectedDto.getType(), result.getType());
-        assertEquals(expectedDto.getParticipantsIds(), result.getParticipantsIds());
-        verify(entityManager).persist(any(Chat.class));
-        verify(chatMapper).toDTO(any(Chat.class));
+        assertEquals(7L, result.getId());
+        verify(entityManager, never()).createNativeQuery(startsWith("INSERT INTO chat_participants"));
+    }
+
+    @Test
+    void createChat_userNotFound_throwsException() {
+        TypedQuery<Long> pairQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(startsWith("SELECT c.id FROM Chat c"), eq(Long.class))).thenReturn(pairQuery);
+        when(pairQuery.getResultStream()).thenReturn(Stream.empty());
+
+        TypedQuery<Long> usersQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(startsWith("SELECT COUNT(u)"), eq(Long.class))).thenReturn(usersQuery);
+        when(usersQuery.getSingleResult()).thenReturn(1L);
+
+        assertThrows(IllegalArgumentException.class, () -> chatService.createChat(1L, 99L));
+        verify(entityManager, never()).createNativeQuery(anyString());
+    }
+
+    @Test
+    void createChat_withSelf_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> chatService.createChat(1L, 1L));
+        verifyNoInteractions(entityManager);
     }
 
     @Test
@@ -97,38 +159,29 @@ public class ChatServiceImplTest {
 
     @Test
     void getUserChats_success() {
-        User user = new User();
-        user.setId(1L);
-        user.setFirstName("Иван");
-
-        Chat chat1 = new Chat();
-        chat1.setId(1L);
-        chat1.setType(ChatType.PRIVATE);
-        chat1.getParticipants().add(user);
-
-        Chat chat2 = new Chat();
-        chat2.setId(2L);
-        chat2.setType(ChatType.GROUP);
-        chat2.getParticipants().add(user);
-
-        List<Chat> chats = List.of(chat1, chat2);
-
-        TypedQuery<Chat> query = mock(TypedQuery.class);
-        when(entityManager.createQuery(anyString(), eq(Chat.class))).thenReturn(query);
+        TypedQuery<Object[]> query = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(Object[].class))).thenReturn(query);
         when(query.setParameter(eq("userId"), eq(1L))).thenReturn(query);
-        when(query.getResultList()).thenReturn(chats);
-        when(chatMapper.toDTO(chat1)).thenReturn(ChatDTO.builder().id(1L).type(ChatType.PRIVATE).build());
-        when(chatMapper.toDTO(chat2)).thenReturn(ChatDTO.builder().id(2L).type(ChatType.GROUP).build());
+        when(query.getResultList()).thenReturn(List.of(
+                new Object[]{1L, ChatType.PRIVATE, 1L},
+                new Object[]{1L, ChatType.PRIVATE, 2L},
+                new Object[]{2L, ChatType.GROUP, 1L},
+                new Object[]{2L, ChatType.GROUP, 3L},
+                new Object[]{2L, ChatType.GROUP, 4L}));
 
         List<ChatDTO> result = chatService.getUserChats(1L);
 
         assertEquals(2, result.size());
-        verify(chatMapper).toDTO(chat1);
-        verify(chatMapper).toDTO(chat2);
-        verify(entityManager).createQuery(anyString(), eq(Chat.class));
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(ChatType.PRIVATE, result.get(0).getType());
+        assertEquals(Set.of(1L, 2L), result.get(0).getParticipantsIds());
+        assertEquals(2L, result.get(1).getId());
+        assertEquals(Set.of(1L, 3L, 4L), result.get(1).getParticipantsIds());
         verify(query).setParameter(eq("userId"), eq(1L));
+        verifyNoInteractions(chatMapper);
     }
 
+
     @Test
     void deleteChat_success() {
         Chat chat = new Chat();
@@ -140,10 +193,78 @@ public class ChatServiceImplTest {
         chat.setParticipants(Set.of(user));
 
         when(entityManager.find(Chat.class, 1L)).thenReturn(chat);
+        Query eventInsert = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("INSERT INTO message_events"))).thenReturn(eventInsert);
 
         chatService.deleteChat(1L, 1L);
 
         verify(entityManager).find(Chat.class, 1L);
-        verify(entityManager).remove(chat);
+        // События удаления пишутся до удаления чата, пока участники еще известны
+        InOrder order = inOrder(eventInsert, entityManager);
+        order.verify(eventInsert).executeUpdate();
+        order.verify(entityManager).remove(chat);
+        verify(eventInsert).setParameter("chatId", 1L);
+        verify(eventInsert).setParameter("type", "CHAT_DELETED");
+    }
+
+    @Test
+    void getInbox_mapsLastMessageAndUnreadCount() {
+        LocalDateTime sentAt = LocalDateTime.of(2025, 10, 20, 12, 0);
+        Query inboxQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("LEFT JOIN LATERAL"))).thenReturn(inboxQuery);
+        when(inboxQuery.getResultList()).thenReturn(List.of(
+                new Object[]{1L, "PRIVATE", 7L, "Привет", 2L, Timestamp.valueOf(sentAt), 3L},
+                new Object[]{2L, "GROUP", null, null, null, null, 0L}));
+
+        List<InboxChatDTO> inbox = chatService.getInbox(1L);
+
+        assertEquals(2, inbox.size());
+        InboxChatDTO first = inbox.get(0);
+        assertEquals(1L, first.getChatId());
+        assertEquals(ChatType.PRIVATE, first.getType());
+        assertEquals("Привет", first.getLastMessage().getContent());
+        assertEquals(2L, first.getLastMessage().getSenderId());
+        assertEquals(sentAt, first.getLastActivityAt());
+        assertEquals(3L, first.getUnreadCount());
+        assertNull(inbox.get(1).getLastMessage());
+        assertNull(inbox.get(1).getLastActivityAt());
+        verify(inboxQuery).setParameter("userId", 1L);
+        verify(inboxQuery).setParameter("unreadCap", ChatService.UNREAD_COUNT_CAP);
+    }
+
+    @Test
+    void markRead_movesMarker() {
+        Query update = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("UPDATE chat_participants"))).thenReturn(update);
+        when(update.executeUpdate()).thenReturn(1);
+
+        chatService.markRead(1L, 2L, 7L);
+
+        verify(update).setParameter("messageId", 7L);
+        verify(entityManager, never()).createNativeQuery(startsWith("SELECT EXISTS"));
+    }
+
+    @Test
+    void markRead_olderMessage_keepsMarker() {
+        Query update = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("UPDATE chat_participants"))).thenReturn(update);
+        when(update.executeUpdate()).thenReturn(0);
+        Query exists = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("SELECT EXISTS"))).thenReturn(exists);
+        when(exists.getSingleResult()).thenReturn(true);
+
+        assertDoesNotThrow(() -> chatService.markRead(1L, 2L, 5L));
+    }
+
+    @Test
+    void markRead_notParticipant_throwsException() {
+        Query update = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("UPDATE chat_participants"))).thenReturn(update);
+        when(update.executeUpdate()).thenReturn(0);
+        Query exists = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("SELECT EXISTS"))).thenReturn(exists);
+        when(exists.getSingleResult()).thenReturn(false);
+
+        assertThrows(SecurityException.class, () -> chatService.markRead(1L, 9L, 5L));
     }
 }
@@ -6,13 +6,16 @@ import org.example.dto.CommentDTO;
 import org.example.entity.Comment;
 import org.example.entity.Post;
 import org.example.entity.User;
+import org.example.event.ContentChangedEvent;
 import org.example.mapper.CommentMapper;
+import org.example.search.ContentType;
 import org.example.service.impl.CommentServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 
@@ -30,13 +33,16 @@ public class CommentServiceImplTest {
     @Mock
     private TypedQuery<Comment> query;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private CommentServiceImpl commentService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
         // Создаем сервис с EntityManager и маппером
-        commentService = new CommentServiceImpl(entityManager, commentMapper);
+        commentService = new CommentServiceImpl(entityManager, commentMapper, eventPublisher);
     }
 
     @Test
@@ -69,7 +75,9 @@ public class CommentServiceImplTest {
         assertEquals(expectedDto.getAuthorId(), result.getAuthorId());
         verify(entityManager).persist(any(Comment.class));
         verify(commentMapper).toDTO(any(Comment.class));
-
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ContentChangedEvent changed
+                && changed.getType() == ContentType.COMMENT && changed.getId() == 1L
+                && changed.getOldContent() == null && "Комментарий".equals(changed.getNewContent())));
     }
 
     @Test
@@ -87,26 +95,21 @@ public class CommentServiceImplTest {
 
         verify(entityManager).find(Comment.class, 1L);
         verify(entityManager).remove(comment);
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ContentChangedEvent changed
+                && changed.getType() == ContentType.COMMENT && changed.getId() == 1L
+                && "Комментарий".equals(changed.getOldContent()) && changed.getNewContent() == null));
     }
 
     @Test
     void getCommentsByPostId_success() {
-        Comment comment1 = new Comment();
-        comment1.setId(1L);
-        comment1.setContent("Комментарий1");
-
-        Comment comment2 = new Comment();
-        comment2.setId(1L);
-        comment2.setContent("Комментарий2");
-
-        List<Comment> comments = List.of(comment1, comment2);
-
-        when(entityManager.createQuery(anyString(), eq(Comment.class))).thenReturn(query);
-        when(query.setParameter(eq("postId"), eq(1L))).thenReturn(query);
-        when(query.getResultList()).thenReturn(comments);
+        List<CommentDTO> comments = List.of(
+                CommentDTO.builder().id(1L).content("Комментарий1").postId(1L).build(),
+                CommentDTO.builder().id(2L).content("Комментарий2").postId(1L).build());
 
-        when(commentMapper.toDTO(comment1)).thenReturn(CommentDTO.builder().id(1L).content("Комментарий1").build());
-        when(commentMapper.toDTO(comment2)).thenReturn(CommentDTO.builder().id(2L).content("Комментарий2").build());
+        TypedQuery<CommentDTO> dtoQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery(startsWith("SELECT new org.example.dto.CommentDTO"), eq(CommentDTO.class))).thenReturn(dtoQuery);
+        when(dtoQuery.setParameter(eq("postId"), eq(1L))).thenReturn(dtoQuery);
+        when(dtoQuery.getResultList()).thenReturn(comments);
 
         List<CommentDTO> result = commentService.getCommentsByPostId(1L);
 
@@ -118,5 +121,6 @@ public class CommentServiceImplTest {
 
         assertEquals(2L, result.get(1).getId());
         assertEquals("Комментарий2", result.get(1).getContent());
+        verifyNoInteractions(commentMapper);
     }
 }
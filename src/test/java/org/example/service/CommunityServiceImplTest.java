@@ -1,22 +1,32 @@
 package org.example.service;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import org.example.dto.CommunityDTO;
-import org.example.dto.UserDTO;
+import org.example.dto.CommunityMemberDTO;
+import org.example.dto.PageDTO;
+import org.example.entity.Comment;
 import org.example.entity.Community;
 import org.example.entity.Post;
 import org.example.entity.User;
+import org.example.event.CommunityDeletedEvent;
+import org.example.event.CommunityMembershipChangedEvent;
+import org.example.event.ContentChangedEvent;
+import org.example.event.PostCreatedEvent;
 import org.example.mapper.CommunityMapper;
-import org.example.mapper.UserMapper;
+import org.example.search.ContentType;
 import org.example.service.impl.CommunityServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -32,7 +42,7 @@ public class CommunityServiceImplTest {
     private CommunityMapper communityMapper;
 
     @Mock
-    private UserMapper userMapper;
+    private ApplicationEventPublisher eventPublisher;
 
     private CommunityServiceImpl communityService;
 
@@ -40,7 +50,7 @@ public class CommunityServiceImplTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         // Создаем сервис с мапперами (EntityManager не в конструкторе)
-        communityService = new CommunityServiceImpl(communityMapper, userMapper);
+        communityService = new CommunityServiceImpl(communityMapper, eventPublisher);
         
         // Устанавливаем EntityManager через рефлексию
         try {
@@ -100,11 +110,56 @@ public class CommunityServiceImplTest {
         community.setAdmin(admin);
 
         when(entityManager.find(Community.class, 1L)).thenReturn(community);
+        when(entityManager.createNativeQuery(contains("FOR UPDATE"))).thenReturn(mock(Query.class, RETURNS_SELF));
 
         communityService.deleteCommunity(1L, 1L);
 
         verify(entityManager).find(Community.class, 1L);
         verify(entityManager).remove(community);
+        verify(eventPublisher).publishEvent(any(CommunityDeletedEvent.class));
+    }
+
+    @Test
+    void deleteCommunity_removesPostsAndCommentsFromSearchIndex() {
+        User admin = new User();
+        admin.setId(1L);
+        Community community = new Community();
+        community.setId(1L);
+        community.setAdmin(admin);
+
+        Post post = new Post();
+        post.setId(10L);
+        post.setContent("пост сообщества");
+        Comment comment = new Comment();
+        comment.setId(20L);
+        comment.setContent("комментарий");
+        post.setComments(new ArrayList<>(List.of(comment)));
+        Post emptyPost = new Post();
+        emptyPost.setId(11L);
+        emptyPost.setContent("пост без комментариев");
+        community.setPosts(new ArrayList<>(List.of(post, emptyPost)));
+
+        when(entityManager.find(Community.class, 1L)).thenReturn(community);
+        Query lock = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery("SELECT id FROM posts WHERE community_id = :communityId FOR UPDATE")).thenReturn(lock);
+
+        communityService.deleteCommunity(1L, 1L);
+
+        // Посты заблокированы до чтения их текстов: параллельная правка не останется в индексе
+        InOrder order = inOrder(lock, eventPublisher, entityManager);
+        order.verify(lock).getResultList();
+        order.verify(eventPublisher, atLeastOnce()).publishEvent(any(ContentChangedEvent.class));
+        order.verify(entityManager).remove(community);
+        verify(lock).setParameter("communityId", 1L);
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ContentChangedEvent changed
+                && changed.getType() == ContentType.COMMENT && changed.getId() == 20L
+                && "комментарий".equals(changed.getOldContent()) && changed.getNewContent() == null));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ContentChangedEvent changed
+                && changed.getType() == ContentType.POST && changed.getId() == 10L && changed.getNewContent() == null));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ContentChangedEvent changed
+                && changed.getType() == ContentType.POST && changed.getId() == 11L
+                && "пост без комментариев".equals(changed.getOldContent())));
+        verify(eventPublisher, times(4)).publishEvent(any(Object.class));
     }
 
     @Test
@@ -118,13 +173,38 @@ public class CommunityServiceImplTest {
 
         when(entityManager.find(User.class, 2L)).thenReturn(user);
         when(entityManager.find(Community.class, 1L)).thenReturn(community);
-        when(communityMapper.toDTO(community)).thenReturn(CommunityDTO.builder().id(1L).name("Сообщество").build());
+        Query insert = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("INSERT INTO community_members"))).thenReturn(insert);
+        when(insert.executeUpdate()).thenReturn(1);
 
         communityService.joinCommunity(1L, 2L);
 
-        assertEquals(Set.of(user), community.getMembers());
-        assertTrue(community.getMembers().contains(user));
-        verify(entityManager).merge(community);
+        // Связь и счетчик пишутся одним запросом, коллекция участников не загружается
+        verify(insert).setParameter("communityId", 1L);
+        verify(insert).setParameter("userId", 2L);
+        verify(insert).executeUpdate();
+        verify(entityManager, never()).merge(any());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof CommunityMembershipChangedEvent changed
+                && changed.getCommunityId() == 1L && changed.getUserId() == 2L && changed.isMember()));
+    }
+
+    @Test
+    void joinCommunity_alreadyMember_doesNotPublishEvent() {
+        Community community = new Community();
+        community.setId(1L);
+
+        User user = new User();
+        user.setId(2L);
+
+        when(entityManager.find(User.class, 2L)).thenReturn(user);
+        when(entityManager.find(Community.class, 1L)).thenReturn(community);
+        Query insert = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("INSERT INTO community_members"))).thenReturn(insert);
+        when(insert.executeUpdate()).thenReturn(0);
+
+        communityService.joinCommunity(1L, 2L);
+
+        verify(eventPublisher, never()).publishEvent(any(CommunityMembershipChangedEvent.class));
     }
 
     @Test
@@ -135,16 +215,30 @@ public class CommunityServiceImplTest {
 
         User user = new User();
         user.setId(2L);
-        community.getMembers().add(user);
 
         when(entityManager.find(User.class, 2L)).thenReturn(user);
         when(entityManager.find(Community.class, 1L)).thenReturn(community);
-        when(communityMapper.toDTO(community)).thenReturn(CommunityDTO.builder().id(1L).name("Сообщество").build());
+        Query delete = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("DELETE FROM community_members"))).thenReturn(delete);
+        when(delete.executeUpdate()).thenReturn(1);
 
         communityService.leaveCommunity(1L, 2L);
 
-        assertTrue(community.getMembers().isEmpty());
-        verify(entityManager).merge(community);
+        verify(delete).setParameter("communityId", 1L);
+        verify(delete).setParameter("userId", 2L);
+        verify(delete).executeUpdate();
+        verify(entityManager, never()).merge(any());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof CommunityMembershipChangedEvent changed
+                && changed.getCommunityId() == 1L && changed.getUserId() == 2L && !changed.isMember()));
+    }
+
+    @Test
+    void joinCommunity_communityNotFound_throwsException() {
+        when(entityManager.find(User.class, 2L)).thenReturn(new User());
+        when(entityManager.find(Community.class, 1L)).thenReturn(null);
+
+        assertThrows(IllegalArgumentException.class, () -> communityService.joinCommunity(1L, 2L));
+        verify(entityManager, never()).createNativeQuery(anyString());
     }
 
     @Test
@@ -205,29 +299,33 @@ public class CommunityServiceImplTest {
     }
 
     @Test
-    void getCommunityMembers_success() {
-        User user1 = new User();
-        user1.setId(1L);
-        user1.setFirstName("Иван");
-
-        User user2 = new User();
-        user2.setId(2L);
-        user2.setFirstName("Алина");
-
-        Community community = new Community();
-        community.setId(1L);
-        community.setName("Сообщество");
-        community.setMembers(Set.of(user1, user2));
-
-        when(entityManager.find(Community.class, 1L)).thenReturn(community);
-        when(userMapper.toDTO(user1)).thenReturn(UserDTO.builder().id(1L).firstName("Иван").build());
-        when(userMapper.toDTO(user2)).thenReturn(UserDTO.builder().id(2L).firstName("Алина").build());
+    void getCommunityMembers_returnsPageAfterCursor() {
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("FROM community_members cm"))).thenReturn(query);
+        // limit + 1 строк - есть следующая страница
+        when(query.getResultList()).thenReturn(List.<Object[]>of(
+                new Object[]{5L, "ivan", "Иван", "Иванов"},
+                new Object[]{8L, "alina", "Алина", "Петрова"},
+                new Object[]{9L, "oleg", "Олег", "Сидоров"}));
+
+        PageDTO<CommunityMemberDTO> result = communityService.getCommunityMembers(1L, 4L, 2);
+
+        assertEquals(List.of(5L, 8L), result.getItems().stream().map(CommunityMemberDTO::getId).toList());
+        assertEquals("Алина", result.getItems().get(1).getFirstName());
+        assertEquals("8", result.getNextCursor());
+        verify(query).setParameter("after", 4L);
+        verify(query).setParameter("limit", 3);
+        verify(entityManager, never()).find(eq(Community.class), any());
+    }
 
-        List<UserDTO> result = communityService.getCommunityMembers(1L);
+    @Test
+    void getCommunityMembers_communityNotFound_throwsException() {
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("FROM community_members cm"))).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of());
+        when(entityManager.find(Community.class, 1L)).thenReturn(null);
 
-        assertEquals(2, result.size());
-        verify(userMapper).toDTO(user1);
-        verify(userMapper).toDTO(user2);
+        assertThrows(IllegalArgumentException.class, () -> communityService.getCommunityMembers(1L, null, null));
     }
 
     @Test
@@ -257,6 +355,8 @@ public class CommunityServiceImplTest {
         assertEquals(user, community.getPosts().get(0).getAuthor());
         verify(entityManager).merge(community);
         verify(entityManager).persist(any(Post.class));
+        verify(eventPublisher).publishEvent(argThat((PostCreatedEvent event) ->
+                event.getAuthorId().equals(2L) && event.getCommunityId().equals(1L)));
 
     }
 
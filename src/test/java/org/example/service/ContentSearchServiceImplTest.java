@@ -0,0 +1,87 @@
+package org.example.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.example.dto.CommentDTO;
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+import org.example.pagination.Pagination;
+import org.example.search.ContentSearchIndex;
+import org.example.search.ContentType;
+import org.example.search.SearchQuery;
+import org.example.service.impl.ContentSearchServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ContentSearchServiceImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ContentSearchIndex searchIndex;
+
+    private ContentSearchServiceImpl contentSearchService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        contentSearchService = new ContentSearchServiceImpl(entityManager, searchIndex);
+    }
+
+    @Test
+    void searchPosts_keepsIndexOrderAndEncodesCursor() {
+        when(searchIndex.search(eq(ContentType.POST), any(SearchQuery.class), eq(Long.MAX_VALUE), eq(3)))
+                .thenReturn(new long[]{9L, 5L, 2L});
+        TypedQuery<PostDTO> query = mock(TypedQuery.class);
+        when(entityManager.createQuery(contains("WHERE p.id IN :ids"), eq(PostDTO.class))).thenReturn(query);
+        when(query.setParameter(eq("ids"), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(
+                PostDTO.builder().id(5L).build(),
+                PostDTO.builder().id(9L).build()));
+
+        PageDTO<PostDTO> result = contentSearchService.searchPosts("гор*", null, 2);
+
+        assertEquals(List.of(9L, 5L), result.getItems().stream().map(PostDTO::getId).toList());
+        assertEquals(Pagination.encodeId(5L), result.getNextCursor());
+        verify(query).setParameter("ids", List.of(9L, 5L));
+    }
+
+    @Test
+    void searchComments_withCursor_skipsRowsDeletedBeforeIndexUpdate() {
+        when(searchIndex.search(eq(ContentType.COMMENT), any(SearchQuery.class), eq(5L), eq(Pagination.DEFAULT_LIMIT + 1)))
+                .thenReturn(new long[]{4L, 3L});
+        TypedQuery<CommentDTO> query = mock(TypedQuery.class);
+        when(entityManager.createQuery(contains("WHERE c.id IN :ids"), eq(CommentDTO.class))).thenReturn(query);
+        when(query.setParameter(eq("ids"), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(CommentDTO.builder().id(3L).build()));
+
+        PageDTO<CommentDTO> result = contentSearchService.searchComments("поход", Pagination.encodeId(5L), null);
+
+        assertEquals(List.of(3L), result.getItems().stream().map(CommentDTO::getId).toList());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void searchPosts_noMatches_doesNotQueryDatabase() {
+        when(searchIndex.search(any(), any(), anyLong(), anyInt())).thenReturn(new long[0]);
+
+        PageDTO<PostDTO> result = contentSearchService.searchPosts("самолет", null, null);
+
+        assertTrue(result.getItems().isEmpty());
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void searchPosts_blankQuery_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> contentSearchService.searchPosts(" ", null, null));
+        verifyNoInteractions(searchIndex);
+    }
+}
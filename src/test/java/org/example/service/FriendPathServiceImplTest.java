@@ -0,0 +1,83 @@
+package org.example.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.example.dto.FriendPathDTO;
+import org.example.dto.UserDTO;
+import org.example.entity.User;
+import org.example.graph.FriendGraph;
+import org.example.mapper.UserMapper;
+import org.example.service.impl.FriendPathServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class FriendPathServiceImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private FriendGraph friendGraph;
+
+    @Mock
+    private UserMapper userMapper;
+
+    private FriendPathServiceImpl friendPathService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        friendPathService = new FriendPathServiceImpl(entityManager, friendGraph, userMapper, 6, 1000);
+        when(userMapper.toDTO(any(User.class))).thenAnswer(invocation ->
+                UserDTO.builder().id(((User) invocation.getArgument(0)).getId()).build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockUsers(List<User> users) {
+        TypedQuery<User> query = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(User.class))).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(users);
+    }
+
+    @Test
+    void findPath_returnsUsersInChainOrder() {
+        when(friendGraph.shortestPath(1L, 9L, 6, 1000)).thenReturn(new long[]{1L, 4L, 9L});
+        // Порядок строк из БД не совпадает с порядком цепочки
+        mockUsers(List.of(User.builder().id(9L).build(), User.builder().id(1L).build(), User.builder().id(4L).build()));
+
+        FriendPathDTO result = friendPathService.findPath(1L, 9L);
+
+        assertTrue(result.isFound());
+        assertEquals(2, result.getDegree());
+        assertEquals(List.of(1L, 4L, 9L), result.getPath().stream().map(UserDTO::getId).toList());
+    }
+
+    @Test
+    void findPath_notFound_skipsUserQuery() {
+        when(friendGraph.shortestPath(1L, 9L, 6, 1000)).thenReturn(null);
+
+        FriendPathDTO result = friendPathService.findPath(1L, 9L);
+
+        assertFalse(result.isFound());
+        assertNull(result.getDegree());
+        assertTrue(result.getPath().isEmpty());
+        verify(entityManager, never()).createQuery(anyString(), eq(User.class));
+    }
+
+    @Test
+    void findPath_unknownTarget_throwsException() {
+        when(friendGraph.shortestPath(1L, 1L, 6, 1000)).thenReturn(new long[]{1L});
+        mockUsers(List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> friendPathService.findPath(1L, 1L));
+    }
+}
@@ -1,20 +1,27 @@
 package org.example.service;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import org.example.dto.FriendshipDTO;
+import org.example.dto.MutualFriendsDTO;
 import org.example.dto.UserDTO;
 import org.example.entity.Friendship;
 import org.example.entity.User;
 import org.example.entity.enums.FriendshipStatus;
+import org.example.event.FriendRequestSentEvent;
+import org.example.event.FriendshipChangedEvent;
+import org.example.graph.FriendGraph;
 import org.example.mapper.FriendshipMapper;
 import org.example.mapper.UserMapper;
+import org.example.pagination.Pagination;
 import org.example.service.impl.FriendshipServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 
@@ -32,13 +39,19 @@ public class FriendshipServiceImplTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private FriendGraph friendGraph;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private FriendshipServiceImpl friendshipService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
         // Создаем сервис с EntityManager и мапперами
-        friendshipService = new FriendshipServiceImpl(entityManager, friendshipMapper, userMapper);
+        friendshipService = new FriendshipServiceImpl(entityManager, friendshipMapper, userMapper, friendGraph, eventPublisher);
     }
 
     @Test
@@ -51,20 +64,39 @@ public class FriendshipServiceImplTest {
         when(entityManager.find(User.class, 1L)).thenReturn(user1);
         when(entityManager.find(User.class, 2L)).thenReturn(user2);
 
-        TypedQuery<Friendship> query = mock(TypedQuery.class);
-        when(entityManager.createQuery(anyString(), eq(Friendship.class))).thenReturn(query);
-        when(query.setParameter(anyString(), any())).thenReturn(query);
-        when(query.getResultList()).thenReturn(List.of());
+        // Вставка по ключу пары возвращает id новой записи
+        Query insert = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(insert);
+        when(insert.setParameter(anyString(), any())).thenReturn(insert);
+        when(insert.getResultList()).thenReturn(List.of(1L));
 
         FriendshipDTO expectedDto = FriendshipDTO.builder().id(1L).status(FriendshipStatus.PENDING).build();
 
-        when(friendshipMapper.toDTO(any(Friendship.class))).thenReturn(expectedDto);
+        when(friendshipMapper.toDTO(argThat(f -> f.getId() == 1L && f.getStatus() == FriendshipStatus.PENDING)))
+                .thenReturn(expectedDto);
 
-        FriendshipDTO result = friendshipService.sendFriendRequest(1L, 2L);
+        FriendshipDTO result = friendshipService.sendFriendRequest(2L, 1L);
 
         assertEquals(FriendshipStatus.PENDING, result.getStatus());
         assertEquals(expectedDto.getId(), result.getId());
-        verify(entityManager, times(1)).persist(any(Friendship.class));
+        verify(insert).setParameter("low", 1L);
+        verify(insert).setParameter("high", 2L);
+        verify(eventPublisher).publishEvent(any(FriendRequestSentEvent.class));
+    }
+
+    @Test
+    void sendFriendRequestTest_existingPair_throwsException() {
+        when(entityManager.find(User.class, 1L)).thenReturn(User.builder().id(1L).build());
+        when(entityManager.find(User.class, 2L)).thenReturn(User.builder().id(2L).build());
+
+        // Запрос, дружба или встречный запрос уже есть - INSERT ... ON CONFLICT ничего не вставил
+        Query insert = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(insert);
+        when(insert.setParameter(anyString(), any())).thenReturn(insert);
+        when(insert.getResultList()).thenReturn(List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> friendshipService.sendFriendRequest(1L, 2L));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -74,7 +106,10 @@ public class FriendshipServiceImplTest {
 
     @Test
     void acceptFriendRequest_success() {
-        Friendship friendship = Friendship.builder().id(1L).status(FriendshipStatus.PENDING).build();
+        Friendship friendship = Friendship.builder().id(1L).status(FriendshipStatus.PENDING)
+                .requester(User.builder().id(2L).build())
+                .receiver(User.builder().id(3L).build())
+                .build();
 
         when(entityManager.find(Friendship.class, 1L)).thenReturn(friendship);
 
@@ -82,6 +117,9 @@ public class FriendshipServiceImplTest {
 
         assertEquals(FriendshipStatus.ACCEPTED, friendship.getStatus());
         verify(entityManager).merge(friendship);
+        // Граф дружбы обновляется событием после коммита
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof FriendshipChangedEvent e
+                && e.getUserId1() == 2L && e.getUserId2() == 3L && e.isFriends()));
     }
 
     @Test
@@ -98,27 +136,31 @@ public class FriendshipServiceImplTest {
         User friend1 = User.builder().id(1L).username("Иван").build();
         UserDTO friendDto = UserDTO.builder().id(1L).username("Иван").build();
 
-        // Мокаем два запроса: один для друзей как отправитель, другой как получатель
-        TypedQuery<User> query1 = mock(TypedQuery.class);
-        TypedQuery<User> query2 = mock(TypedQuery.class);
-        
-        when(entityManager.createQuery(anyString(), eq(User.class)))
-                .thenReturn(query1)  // Первый вызов
-                .thenReturn(query2); // Второй вызов
-        
-        when(query1.setParameter(anyString(), any())).thenReturn(query1);
-        when(query2.setParameter(anyString(), any())).thenReturn(query2);
-        
-        // Первый запрос возвращает одного друга, второй - пустой список
-        when(query1.getResultList()).thenReturn(List.of(friend1));
-        when(query2.getResultList()).thenReturn(List.of());
+        // id друзей приходят из графа, из БД загружаются только пользователи
+        when(friendGraph.friendIds(2L)).thenReturn(new long[]{1L});
+
+        TypedQuery<User> query = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(User.class))).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(friend1));
 
         when(userMapper.toDTO(friend1)).thenReturn(friendDto);
 
-        List<UserDTO> result = friendshipService.getFriends(1L);
+        List<UserDTO> result = friendshipService.getFriends(2L);
 
         assertEquals(1, result.size());
         assertEquals("Иван", result.get(0).getUsername());
+        verify(query).setParameter("ids", List.of(1L));
+    }
+
+    @Test
+    void getFriends_noFriends_skipsQuery() {
+        when(friendGraph.friendIds(2L)).thenReturn(new long[0]);
+
+        List<UserDTO> result = friendshipService.getFriends(2L);
+
+        assertTrue(result.isEmpty());
+        verify(entityManager, never()).createQuery(anyString(), eq(User.class));
     }
 
     @Test
@@ -144,28 +186,31 @@ public class FriendshipServiceImplTest {
 
     @Test
     void removeFriend_success() {
-        Friendship friendship = Friendship.builder().id(1L).status(FriendshipStatus.ACCEPTED).build();
-
-        TypedQuery<Friendship> query = mock(TypedQuery.class);
-        when(entityManager.createQuery(anyString(), eq(Friendship.class))).thenReturn(query);
-        when(query.setParameter(anyString(), any())).thenReturn(query);
-        when(query.getResultList()).thenReturn(List.of(friendship));
-
-        friendshipService.removeFriend(1L, 2L);
-
-        verify(entityManager, times(1)).remove(friendship);
+        Query delete = mock(Query.class);
+        when(entityManager.createQuery(anyString())).thenReturn(delete);
+        when(delete.setParameter(anyString(), any())).thenReturn(delete);
+        when(delete.executeUpdate()).thenReturn(1);
+
+        friendshipService.removeFriend(2L, 1L);
+
+        // Удаление по ключу пары независимо от направления запроса
+        verify(delete).setParameter("low", 1L);
+        verify(delete).setParameter("high", 2L);
+        verify(delete, times(1)).executeUpdate();
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof FriendshipChangedEvent e
+                && e.getUserId1() == 2L && e.getUserId2() == 1L && !e.isFriends()));
     }
 
     @Test
     void removeFriend_notFound() {
-        TypedQuery<Friendship> query = mock(TypedQuery.class);
-        when(entityManager.createQuery(anyString(), eq(Friendship.class))).thenReturn(query);
-        when(query.setParameter(anyString(), any())).thenReturn(query);
-        when(query.getResultList()).thenReturn(List.of());
+        Query delete = mock(Query.class);
+        when(entityManager.createQuery(anyString())).thenReturn(delete);
+        when(delete.setParameter(anyString(), any())).thenReturn(delete);
+        when(delete.executeUpdate()).thenReturn(0);
 
         assertThrows(IllegalArgumentException.class, () -> friendshipService.removeFriend(1L, 2L));
 
-        verify(entityManager, never()).remove(any());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -187,4 +232,47 @@ public class FriendshipServiceImplTest {
 
         verify(friendshipMapper, times(1)).toDTO(friendship);
     }
+
+    @Test
+    void getMutualFriends_returnsPageAndCursor() {
+        User friend3 = User.builder().id(3L).username("Иван").build();
+        User friend5 = User.builder().id(5L).username("Петр").build();
+        when(friendGraph.mutualCount(1L, 2L)).thenReturn(3);
+        when(friendGraph.mutualFriendIds(1L, 2L, 0L, 3)).thenReturn(new long[]{3L, 5L, 8L});
+
+        TypedQuery<User> query = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(User.class))).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(friend3, friend5));
+        when(userMapper.toDTO(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            return UserDTO.builder().id(user.getId()).build();
+        });
+
+        MutualFriendsDTO result = friendshipService.getMutualFriends(1L, 2L, null, 2);
+
+        assertEquals(3, result.getCount());
+        assertEquals(List.of(3L, 5L), result.getItems().stream().map(UserDTO::getId).toList());
+        assertEquals(Pagination.encodeId(5L), result.getNextCursor());
+        // Загружается только текущая страница
+        verify(query).setParameter("ids", List.of(3L, 5L));
+    }
+
+    @Test
+    void getMutualFriends_lastPage_noQueryWhenEmpty() {
+        when(friendGraph.mutualCount(1L, 2L)).thenReturn(2);
+        when(friendGraph.mutualFriendIds(1L, 2L, 5L, 21)).thenReturn(new long[0]);
+
+        MutualFriendsDTO result = friendshipService.getMutualFriends(1L, 2L, Pagination.encodeId(5L), null);
+
+        assertEquals(2, result.getCount());
+        assertTrue(result.getItems().isEmpty());
+        assertNull(result.getNextCursor());
+        verify(entityManager, never()).createQuery(anyString(), eq(User.class));
+    }
+
+    @Test
+    void getMutualFriends_self_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> friendshipService.getMutualFriends(1L, 1L, null, null));
+    }
 }
@@ -1,19 +1,29 @@
 package org.example.service;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import org.example.dto.MessageDTO;
+import org.example.dto.MessageSyncDTO;
+import org.example.dto.PageDTO;
 import org.example.entity.Chat;
 import org.example.entity.Message;
 import org.example.entity.User;
+import org.example.entity.enums.MessageEventType;
+import org.example.event.MessageSentEvent;
 import org.example.mapper.MessageMapper;
+import org.example.pagination.Pagination;
 import org.example.service.impl.MessageServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.Mockito.*;
@@ -27,13 +37,16 @@ public class MessageServiceImplTest {
     @Mock
     private MessageMapper messageMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private MessageServiceImpl messageService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        // Создаем сервис с EntityManager и маппером
-        messageService = new MessageServiceImpl(entityManager, messageMapper);
+        // Создаем сервис с EntityManager, маппером и публикатором событий
+        messageService = new MessageServiceImpl(entityManager, messageMapper, eventPublisher);
     }
 
     @Test
@@ -60,6 +73,13 @@ public class MessageServiceImplTest {
         when(messageMapper.toDTO(any(Message.class))).thenReturn(expectedDto);
         when(entityManager.find(Chat.class, 1L)).thenReturn(chat);
         when(entityManager.find(User.class, 1L)).thenReturn(user1);
+        TypedQuery<Long> recipientsQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(startsWith("SELECT p.id FROM Chat c"), eq(Long.class))).thenReturn(recipientsQuery);
+        when(recipientsQuery.getResultList()).thenReturn(List.of(1L, 2L));
+        Query eventInsert = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("INSERT INTO message_events"))).thenReturn(eventInsert);
+        Query readMarker = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("UPDATE chat_participants"))).thenReturn(readMarker);
 
 
         MessageDTO result = messageService.sendMessage(1L, 1L, inputDto);
@@ -68,6 +88,18 @@ public class MessageServiceImplTest {
         assertEquals(expectedDto.getContent(), result.getContent());
         verify(entityManager).persist(messageEntity);
         verify(messageMapper).toDTO(messageEntity);
+
+        // Участники чата получают сообщение через событие после коммита
+        ArgumentCaptor<MessageSentEvent> event = ArgumentCaptor.forClass(MessageSentEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertSame(expectedDto, event.getValue().getMessage());
+        assertEquals(List.of(1L, 2L), event.getValue().getRecipientIds());
+        verify(eventInsert).setParameter("type", "CREATED");
+        verify(eventInsert).executeUpdate();
+        // Отправитель прочитал чат до своего сообщения
+        verify(readMarker).setParameter("messageId", 1L);
+        verify(readMarker).setParameter("userId", 1L);
+        verify(readMarker).executeUpdate();
     }
 
     @Test
@@ -82,7 +114,7 @@ public class MessageServiceImplTest {
 
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> messageService.sendMessage(1L, 1L, inputDto));
         assertEquals("Error: содержимое сообщение не может быть пустым", ex.getMessage());
-        verifyNoInteractions(entityManager, messageMapper);
+        verifyNoInteractions(entityManager, messageMapper, eventPublisher);
     }
 
     @Test
@@ -105,83 +137,217 @@ public class MessageServiceImplTest {
 
     @Test
     void getMessagesBetweenUsers_success() {
-        Chat chat = new Chat();
-        chat.setId(1L);
-
-        Message message1 = new Message();
-        message1.setId(1L);
-        message1.setContent("Первое сообщение");
-        Message message2 = new Message();
-        message2.setId(2L);
-        message2.setContent("Второе сообщение");
-
-        TypedQuery<Chat> chatQuery = mock(TypedQuery.class);
-        TypedQuery<Message> messagesQuery = mock(TypedQuery.class);
+        TypedQuery<MessageDTO> messagesQuery = mock(TypedQuery.class, RETURNS_SELF);
 
-        when(entityManager.createQuery(startsWith("SELECT c FROM Chat"), eq(Chat.class))).thenReturn(chatQuery);
-        when(chatQuery.setParameter(eq("userId1"), eq(1L))).thenReturn(chatQuery);
-        when(chatQuery.setParameter(eq("userId2"), eq(2L))).thenReturn(chatQuery);
-        when(chatQuery.setParameter(eq("chatType"), any())).thenReturn(chatQuery);
-        when(chatQuery.getResultList()).thenReturn(List.of(chat));
+        when(entityManager.createQuery(startsWith("SELECT new org.example.dto.MessageDTO"), eq(MessageDTO.class))).thenReturn(messagesQuery);
+        when(messagesQuery.getResultList()).thenReturn(List.of(
+                MessageDTO.builder().id(1L).content("Первое сообщение").build(),
+                MessageDTO.builder().id(2L).content("Второе сообщение").build()));
 
-        when(entityManager.createQuery(startsWith("SELECT m FROM Message"), eq(Message.class))).thenReturn(messagesQuery);
-        when(messagesQuery.setParameter(eq("chatId"), eq(1L))).thenReturn(messagesQuery);
-        when(messagesQuery.getResultList()).thenReturn(List.of(message1, message2));
-
-        when(messageMapper.toDTO(message1)).thenReturn(MessageDTO.builder().id(1L).content("Первое сообщение").build());
-        when(messageMapper.toDTO(message2)).thenReturn(MessageDTO.builder().id(2L).content("Второе сообщение").build());
-
-        List<MessageDTO> result = messageService.getMessageBetweenUsers(1L, 2L);
+        // Порядок аргументов не важен: ключ пары канонический
+        List<MessageDTO> result = messageService.getMessageBetweenUsers(2L, 1L);
 
         assertEquals(2, result.size());
         assertEquals("Первое сообщение", result.get(0).getContent());
         assertEquals("Второе сообщение", result.get(1).getContent());
+        verify(messagesQuery).setParameter("low", 1L);
+        verify(messagesQuery).setParameter("high", 2L);
+        verifyNoInteractions(messageMapper);
     }
 
 
     @Test
     void getMessagesForUser_success() {
-        List<Long> chatIds = List.of(1L);
-
-        Message message1 = new Message();
-        message1.setId(1L);
-        message1.setContent("Первое сообщение");
-
-        Message message2 = new Message();
-        message2.setId(2L);
-        message2.setContent("Второе сообщение");
-
-        var chatIdsQuery = mock(TypedQuery.class);
-        when(entityManager.createQuery(startsWith("SELECT c.id"), eq(Long.class))).thenReturn(chatIdsQuery);
-        when(chatIdsQuery.setParameter(eq("userId"), eq(1L))).thenReturn(chatIdsQuery);
-        when(chatIdsQuery.getResultList()).thenReturn(chatIds);
-
-        var messagesQuery = mock(TypedQuery.class);
-        when(entityManager.createQuery(startsWith("SELECT m FROM Message"), eq(Message.class))).thenReturn(messagesQuery);
-        when(messagesQuery.setParameter(eq("chatIds"), eq(chatIds))).thenReturn(messagesQuery);
-        when(messagesQuery.getResultList()).thenReturn(List.of(message1, message2));
-
-        when(messageMapper.toDTO(message1)).thenReturn(MessageDTO.builder().id(1L).content("Первое сообщение").build());
-        when(messageMapper.toDTO(message2)).thenReturn(MessageDTO.builder().id(2L).content("Второе сообщение").build());
+        TypedQuery<MessageDTO> messagesQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(contains("SELECT c.id FROM Chat c JOIN c.participants p WHERE p.id = :userId"), eq(MessageDTO.class))).thenReturn(messagesQuery);
+        when(messagesQuery.getResultList()).thenReturn(List.of(
+                MessageDTO.builder().id(1L).content("Первое сообщение").build(),
+                MessageDTO.builder().id(2L).content("Второе сообщение").build()));
 
         List<MessageDTO> result = messageService.getAllMessagesForUser(1L);
 
         assertEquals(2, result.size());
         assertEquals("Первое сообщение", result.get(0).getContent());
         assertEquals("Второе сообщение", result.get(1).getContent());
+        verify(messagesQuery).setParameter("userId", 1L);
+        verifyNoInteractions(messageMapper);
     }
 
+
     @Test
     void deleteMessage_success() {
         Message message = new Message();
         message.setId(1L);
         message.setContent("Сообщение");
+        Chat chat = new Chat();
+        chat.setId(3L);
+        message.setChat(chat);
 
         when(entityManager.find(Message.class, 1L)).thenReturn(message);
+        Query eventInsert = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("INSERT INTO message_events"))).thenReturn(eventInsert);
 
         messageService.deleteMessage(1L);
 
         verify(entityManager).find(Message.class, 1L);
         verify(entityManager).remove(message);
+        // Удаление попадает в журнал, чтобы клиенты узнали о нем при синхронизации
+        verify(eventInsert).setParameter("chatId", 3L);
+        verify(eventInsert).setParameter("messageId", 1L);
+        verify(eventInsert).setParameter("type", "DELETED");
+        verify(eventInsert).executeUpdate();
+    }
+
+    private void participant(boolean isParticipant) {
+        Query existsQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(startsWith("SELECT EXISTS"))).thenReturn(existsQuery);
+        when(existsQuery.getSingleResult()).thenReturn(isParticipant);
+    }
+
+    @Test
+    void getChatMessages_firstPage_hasNextCursor() {
+        LocalDateTime now = LocalDateTime.of(2025, 10, 20, 12, 0);
+        MessageDTO message3 = MessageDTO.builder().id(3L).content("3").sentAt(now).build();
+        MessageDTO message2 = MessageDTO.builder().id(2L).content("2").sentAt(now.minusMinutes(1)).build();
+        MessageDTO message1 = MessageDTO.builder().id(1L).content("1").sentAt(now.minusMinutes(2)).build();
+
+        participant(true);
+        TypedQuery<MessageDTO> pageQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(contains("ORDER BY m.sentAt DESC, m.id DESC"), eq(MessageDTO.class))).thenReturn(pageQuery);
+        when(pageQuery.getResultList()).thenReturn(List.of(message3, message2, message1));
+
+        PageDTO<MessageDTO> result = messageService.getChatMessages(1L, 2L, null, 2);
+
+        assertEquals(2, result.getItems().size());
+        assertEquals(3L, result.getItems().get(0).getId());
+        assertEquals(Pagination.encode(message2.getSentAt(), 2L), result.getNextCursor());
+        verify(pageQuery).setParameter("chatId", 1L);
+        verify(pageQuery).setMaxResults(3);
+    }
+
+    @Test
+    void getChatMessages_withCursor_lastPage() {
+        LocalDateTime sentAt = LocalDateTime.of(2025, 10, 20, 12, 0);
+        MessageDTO message = MessageDTO.builder().id(1L).content("1").sentAt(sentAt.minusMinutes(1)).build();
+
+        participant(true);
+        TypedQuery<MessageDTO> pageQuery = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(contains("(m.sentAt, m.id) < (:sentAt, :id)"), eq(MessageDTO.class))).thenReturn(pageQuery);
+        when(pageQuery.getResultList()).thenReturn(List.of(message));
+
+        PageDTO<MessageDTO> result = messageService.getChatMessages(1L, 2L, Pagination.encode(sentAt, 2L), null);
+
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+        verify(pageQuery).setParameter("sentAt", sentAt);
+        verify(pageQuery).setParameter("id", 2L);
+        verify(pageQuery).setMaxResults(Pagination.DEFAULT_LIMIT + 1);
+    }
+
+    @Test
+    void getChatMessages_notParticipant_throwsException() {
+        participant(false);
+
+        assertThrows(SecurityException.class, () -> messageService.getChatMessages(1L, 9L, null, 20));
+        verify(entityManager, never()).createQuery(anyString(), eq(MessageDTO.class));
+    }
+
+    @Test
+    void getChatMessages_invalidCursor_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> messageService.getChatMessages(1L, 2L, "не-курсор", 20));
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void syncMessages_returnsEventsAndWatermark() {
+        LocalDateTime sentAt = LocalDateTime.of(2025, 10, 20, 12, 0);
+        Query syncQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("FROM message_events e"))).thenReturn(syncQuery);
+        when(syncQuery.getResultList()).thenReturn(List.of(
+                new Object[]{11L, "CREATED", 1L, 5L, "Привет", 2L, Timestamp.valueOf(sentAt), 700L},
+                new Object[]{12L, "DELETED", 1L, 4L, null, null, null, 701L}));
+
+        MessageSyncDTO result = messageService.syncMessages(2L, Pagination.encodeEvent(650L, 10L), 20);
+
+        assertEquals(2, result.getEvents().size());
+        assertEquals(MessageEventType.CREATED, result.getEvents().get(0).getType());
+        assertEquals("Привет", result.getEvents().get(0).getMessage().getContent());
+        assertEquals(sentAt, result.getEvents().get(0).getMessage().getSentAt());
+        assertEquals(MessageEventType.DELETED, result.getEvents().get(1).getType());
+        assertNull(result.getEvents().get(1).getMessage());
+        assertEquals(Pagination.encodeEvent(701L, 12L), result.getWatermark());
+        assertFalse(result.isHasMore());
+        verify(syncQuery).setParameter("sinceXact", 650L);
+        verify(syncQuery).setParameter("sinceId", 10L);
+        verify(syncQuery).setMaxResults(21);
+    }
+
+    @Test
+    void syncMessages_chatDeleted_hasNoMessage() {
+        Query syncQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("FROM message_events e"))).thenReturn(syncQuery);
+        when(syncQuery.getResultList()).thenReturn(List.<Object[]>of(
+                new Object[]{13L, "CHAT_DELETED", 1L, null, null, null, null, 702L}));
+
+        MessageSyncDTO result = messageService.syncMessages(2L, null, null);
+
+        assertEquals(MessageEventType.CHAT_DELETED, result.getEvents().get(0).getType());
+        assertEquals(1L, result.getEvents().get(0).getChatId());
+        assertNull(result.getEvents().get(0).getMessageId());
+        assertNull(result.getEvents().get(0).getMessage());
+        // Адресные события ищутся по user_id: участников удаленного чата уже нет
+        verify(entityManager).createNativeQuery(contains("WHERE e.user_id = :userId"));
+    }
+
+    @Test
+    void syncMessages_onlyFinishedTransactions_orderedByTransaction() {
+        Query syncQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(syncQuery);
+        when(syncQuery.getResultList()).thenReturn(List.of());
+
+        messageService.syncMessages(2L, null, null);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager).createNativeQuery(sql.capture());
+        assertTrue(sql.getValue().contains("e.xact_id < CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text) AS bigint)"));
+        assertTrue(sql.getValue().contains("ORDER BY e.xact_id, e.id"));
+    }
+
+    @Test
+    void syncMessages_moreThanLimit_hasMore() {
+        Query syncQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("FROM message_events e"))).thenReturn(syncQuery);
+        when(syncQuery.getResultList()).thenReturn(List.of(
+                new Object[]{2L, "DELETED", 1L, 1L, null, null, null, 500L},
+                new Object[]{1L, "DELETED", 1L, 2L, null, null, null, 501L}));
+
+        MessageSyncDTO result = messageService.syncMessages(2L, null, 1);
+
+        assertEquals(1, result.getEvents().size());
+        assertEquals(Pagination.encodeEvent(500L, 2L), result.getWatermark());
+        assertTrue(result.isHasMore());
+        verify(syncQuery).setParameter("sinceXact", 0L);
+        verify(syncQuery).setParameter("sinceId", 0L);
+    }
+
+    @Test
+    void syncMessages_noEvents_keepsWatermark() {
+        Query syncQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("FROM message_events e"))).thenReturn(syncQuery);
+        when(syncQuery.getResultList()).thenReturn(List.of());
+
+        String since = Pagination.encodeEvent(900L, 42L);
+        MessageSyncDTO result = messageService.syncMessages(2L, since, null);
+
+        assertTrue(result.getEvents().isEmpty());
+        assertEquals(since, result.getWatermark());
+        assertFalse(result.isHasMore());
+    }
+
+    @Test
+    void syncMessages_invalidWatermark_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> messageService.syncMessages(2L, "42", null));
+        assertThrows(IllegalArgumentException.class, () -> messageService.syncMessages(2L, Pagination.encodeEvent(-1L, 5L), null));
+        verifyNoInteractions(entityManager);
     }
 }
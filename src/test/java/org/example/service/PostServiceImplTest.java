@@ -1,22 +1,33 @@
 package org.example.service;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import org.example.dto.CommunityDTO;
+import org.example.dto.PageDTO;
 import org.example.dto.PostDTO;
 import org.example.dto.UserDTO;
+import org.example.entity.Comment;
 import org.example.entity.Community;
 import org.example.entity.Post;
 import org.example.entity.User;
+import org.example.event.ContentChangedEvent;
+import org.example.event.PostCreatedEvent;
 import org.example.mapper.PostMapper;
+import org.example.pagination.Pagination;
+import org.example.search.ContentType;
 import org.example.service.impl.PostServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.parameters.P;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.Mockito.*;
@@ -30,13 +41,16 @@ public class PostServiceImplTest {
     @Mock
     private PostMapper postMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private PostServiceImpl postService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
         // Создаем сервис с EntityManager и маппером
-        postService = new PostServiceImpl(entityManager, postMapper);
+        postService = new PostServiceImpl(entityManager, postMapper, eventPublisher);
     }
 
     @Test
@@ -65,6 +79,10 @@ public class PostServiceImplTest {
         assertEquals(exceptedDto.getContent(), result.getContent());
         verify(entityManager).persist(postEntity);
         verify(postMapper).toDTO(any(Post.class));
+        verify(eventPublisher).publishEvent(argThat((Object published) -> published instanceof PostCreatedEvent event
+                && event.getPostId().equals(1L) && event.getAuthorId().equals(1L) && event.getCommunityId() == null));
+        verify(eventPublisher).publishEvent(argThat((Object published) -> published instanceof ContentChangedEvent event
+                && event.getType() == ContentType.POST && event.getId().equals(1L) && event.getOldContent() == null));
     }
 
     @Test
@@ -143,29 +161,15 @@ public class PostServiceImplTest {
 
     @Test
     void getPostsByUserId_success() {
-        Post post1 = new Post();
-        post1.setId(1L);
-        post1.setContent("Первый пост!");
-
-        Post post2 = new Post();
-        post2.setId(2L);
-        post2.setContent("Второй пост!");
+        List<PostDTO> posts = List.of(
+                PostDTO.builder().id(1L).content("Первый пост!").authorId(1L).authorUsername("ivan").build(),
+                PostDTO.builder().id(2L).content("Второй пост!").authorId(1L).authorUsername("ivan").build());
 
-        List<Post> posts = List.of(post1, post2);
-
-        // Мокаем find() для проверки существования пользователя
-        User user = new User();
-        user.setId(1L);
-        when(entityManager.find(User.class, 1L)).thenReturn(user);
-
-        TypedQuery<Post> queryMock = mock(TypedQuery.class);
-        when(entityManager.createQuery(anyString(), eq(Post.class))).thenReturn(queryMock);
+        TypedQuery<PostDTO> queryMock = mock(TypedQuery.class);
+        when(entityManager.createQuery(contains("WHERE a.id = :userId"), eq(PostDTO.class))).thenReturn(queryMock);
         when(queryMock.setParameter(eq("userId"), eq(1L))).thenReturn(queryMock);
         when(queryMock.getResultList()).thenReturn(posts);
 
-        when(postMapper.toDTO(post1)).thenReturn(PostDTO.builder().id(1L).content("Первый пост!").build());
-        when(postMapper.toDTO(post2)).thenReturn(PostDTO.builder().id(2L).content("Второй пост!").build());
-
         List<PostDTO> result = postService.getPostsByUserId(1L);
 
         assertNotNull(result, "Результат не должен быть null");
@@ -173,38 +177,37 @@ public class PostServiceImplTest {
 
         assertEquals(1L, result.get(0).getId());
         assertEquals("Первый пост!", result.get(0).getContent());
+        assertEquals("ivan", result.get(0).getAuthorUsername());
 
         assertEquals(2L, result.get(1).getId());
         assertEquals("Второй пост!", result.get(1).getContent());
 
-        verify(entityManager, times(1)).find(User.class, 1L);
+        // Непустой результат - отдельная проверка пользователя не нужна
+        verify(entityManager, never()).find(eq(User.class), any());
+        verifyNoInteractions(postMapper);
     }
 
     @Test
-    void getPostsByCommunityId_success() {
-        Post post1 = new Post();
-        post1.setId(1L);
-        post1.setContent("Первый пост!");
-
-        Post post2 = new Post();
-        post2.setId(2L);
-        post2.setContent("Второй пост!");
+    void getPostsByUserId_userNotFound_throwsException() {
+        TypedQuery<PostDTO> queryMock = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(anyString(), eq(PostDTO.class))).thenReturn(queryMock);
+        when(queryMock.getResultList()).thenReturn(List.of());
+        when(entityManager.find(User.class, 1L)).thenReturn(null);
 
-        List<Post> posts = List.of(post1, post2);
+        assertThrows(IllegalArgumentException.class, () -> postService.getPostsByUserId(1L));
+    }
 
-        // Мокаем find() для проверки существования сообщества
-        Community community = new Community();
-        community.setId(1L);
-        when(entityManager.find(Community.class, 1L)).thenReturn(community);
+    @Test
+    void getPostsByCommunityId_success() {
+        List<PostDTO> posts = List.of(
+                PostDTO.builder().id(1L).content("Первый пост!").communityId(1L).build(),
+                PostDTO.builder().id(2L).content("Второй пост!").communityId(1L).build());
 
-        TypedQuery<Post> queryMock = mock(TypedQuery.class);
-        when(entityManager.createQuery(anyString(), eq(Post.class))).thenReturn(queryMock);
+        TypedQuery<PostDTO> queryMock = mock(TypedQuery.class);
+        when(entityManager.createQuery(contains("WHERE p.community.id = :communityId"), eq(PostDTO.class))).thenReturn(queryMock);
         when(queryMock.setParameter(eq("communityId"), eq(1L))).thenReturn(queryMock);
         when(queryMock.getResultList()).thenReturn(posts);
 
-        when(postMapper.toDTO(post1)).thenReturn(PostDTO.builder().id(1L).content("Первый пост!").build());
-        when(postMapper.toDTO(post2)).thenReturn(PostDTO.builder().id(2L).content("Второй пост!").build());
-
         List<PostDTO> result = postService.getPostsByCommunityId(1L);
 
         assertNotNull(result, "Результат не должен быть null");
@@ -216,32 +219,128 @@ public class PostServiceImplTest {
         assertEquals(2L, result.get(1).getId());
         assertEquals("Второй пост!", result.get(1).getContent());
 
-        verify(entityManager, times(1)).find(Community.class, 1L);
+        verify(entityManager, never()).find(eq(Community.class), any());
     }
 
     @Test
-    void getAllPosts_success() {
-        Post post1 = new Post();
-        post1.setId(1L);
-        post1.setContent("Пост 1");
+    void getPostsByCommunityId_emptyCommunity_returnsEmptyList() {
+        TypedQuery<PostDTO> queryMock = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(anyString(), eq(PostDTO.class))).thenReturn(queryMock);
+        when(queryMock.getResultList()).thenReturn(List.of());
+        when(entityManager.find(Community.class, 1L)).thenReturn(new Community());
 
-        Post post2 = new Post();
-        post2.setId(2L);
-        post2.setContent("Пост 2");
+        List<PostDTO> result = postService.getPostsByCommunityId(1L);
 
-        List<Post> posts = List.of(post1, post2);
+        assertTrue(result.isEmpty());
+        verify(entityManager).find(Community.class, 1L);
+    }
 
-        TypedQuery<Post> queryMock = mock(TypedQuery.class);
-        when(entityManager.createQuery("SELECT p FROM Post p", Post.class)).thenReturn(queryMock);
-        when(queryMock.getResultList()).thenReturn(posts);
-        when(postMapper.toDTO(post1)).thenReturn(PostDTO.builder().id(1L).content("Пост 1").build());
-        when(postMapper.toDTO(post2)).thenReturn(PostDTO.builder().id(2L).content("Пост 2").build());
+    @Test
+    void getPostsPage_firstPage_hasNextCursor() {
+        LocalDateTime now = LocalDateTime.of(2025, 10, 20, 12, 0);
 
-        List<PostDTO> result = postService.getAllPosts();
+        PostDTO post1 = PostDTO.builder().id(3L).content("Пост 3").createAt(now).build();
+        PostDTO post2 = PostDTO.builder().id(2L).content("Пост 2").createAt(now.minusMinutes(1)).build();
+        PostDTO post3 = PostDTO.builder().id(1L).content("Пост 1").createAt(now.minusMinutes(2)).build();
 
-        assertEquals(2, result.size());
-        verify(postMapper).toDTO(post1);
-        verify(postMapper).toDTO(post2);
+        TypedQuery<PostDTO> queryMock = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(PostDTO.class))).thenReturn(queryMock);
+        when(queryMock.setMaxResults(3)).thenReturn(queryMock);
+        when(queryMock.getResultList()).thenReturn(List.of(post1, post2, post3));
+
+        PageDTO<PostDTO> result = postService.getPostsPage(null, 2);
+
+        assertEquals(2, result.getItems().size());
+        assertEquals(3L, result.getItems().get(0).getId());
+        assertEquals(2L, result.getItems().get(1).getId());
+        assertEquals(Pagination.encode(post2.getCreateAt(), 2L), result.getNextCursor());
+    }
+
+    @Test
+    void getPostsPage_withCursor_lastPage() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 10, 20, 12, 0);
+        PostDTO post = PostDTO.builder().id(1L).content("Пост 1").createAt(createdAt.minusMinutes(1)).build();
+
+        TypedQuery<PostDTO> queryMock = mock(TypedQuery.class);
+        when(entityManager.createQuery(contains("(p.createdAt, p.id) < (:createdAt, :id)"), eq(PostDTO.class))).thenReturn(queryMock);
+        when(queryMock.setParameter(anyString(), any())).thenReturn(queryMock);
+        when(queryMock.setMaxResults(anyInt())).thenReturn(queryMock);
+        when(queryMock.getResultList()).thenReturn(List.of(post));
+
+        PageDTO<PostDTO> result = postService.getPostsPage(Pagination.encode(createdAt, 2L), null);
+
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+        verify(queryMock).setParameter("createdAt", createdAt);
+        verify(queryMock).setParameter("id", 2L);
+        verify(queryMock).setMaxResults(Pagination.DEFAULT_LIMIT + 1);
+    }
+
+    @Test
+    void getPostsPage_limitAboveMax_isCapped() {
+        TypedQuery<PostDTO> queryMock = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(PostDTO.class))).thenReturn(queryMock);
+        when(queryMock.setMaxResults(anyInt())).thenReturn(queryMock);
+        when(queryMock.getResultList()).thenReturn(List.of());
+
+        PageDTO<PostDTO> result = postService.getPostsPage(null, 10_000);
+
+        assertTrue(result.getItems().isEmpty());
+        assertNull(result.getNextCursor());
+        verify(queryMock).setMaxResults(Pagination.MAX_LIMIT + 1);
+    }
+
+    @Test
+    void getPostsPage_invalidCursor_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> postService.getPostsPage("не-курсор", 10));
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void searchPosts_firstPage_ranksAndEncodesCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 10, 20, 12, 0);
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains("p.search_vector @@ q.query"))).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.<Object[]>of(
+                new Object[]{7L, "Горы и реки", 1L, "user1", null, Timestamp.valueOf(createdAt), 0.6},
+                new Object[]{4L, "Горы", 2L, "user2", 3L, Timestamp.valueOf(createdAt), 0.3},
+                new Object[]{2L, "Снова горы", 1L, "user1", null, Timestamp.valueOf(createdAt), 0.1}));
+
+        PageDTO<PostDTO> result = postService.searchPosts("горы", null, null, null, 2);
+
+        assertEquals(List.of(7L, 4L), result.getItems().stream().map(PostDTO::getId).toList());
+        assertEquals("user2", result.getItems().get(1).getAuthorUsername());
+        assertEquals(3L, result.getItems().get(1).getCommunityId());
+        assertEquals(createdAt, result.getItems().get(0).getCreateAt());
+        assertEquals(Pagination.encodeRank(0.3, 4L), result.getNextCursor());
+        verify(query).setParameter("query", "горы");
+        verify(query).setParameter("limit", 3);
+    }
+
+    @Test
+    void searchPosts_scopedWithCursor_addsFilters() {
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of());
+
+        PageDTO<PostDTO> result = postService.searchPosts("горы", 3L, 1L, Pagination.encodeRank(0.25, 9L), null);
+
+        assertTrue(result.getItems().isEmpty());
+        assertNull(result.getNextCursor());
+        verify(entityManager).createNativeQuery(argThat((String sql) -> sql.contains("p.community_id = :communityId")
+                && sql.contains("p.author_id = :authorId")
+                && sql.contains("< (:rank, :id)")));
+        verify(query).setParameter("communityId", 3L);
+        verify(query).setParameter("authorId", 1L);
+        verify(query).setParameter("rank", 0.25);
+        verify(query).setParameter("id", 9L);
+    }
+
+    @Test
+    void searchPosts_blankQuery_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> postService.searchPosts("  ", null, null, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> postService.searchPosts("горы", null, null, "не-курсор", 10));
+        verifyNoInteractions(entityManager);
     }
 
     @Test
@@ -254,21 +353,24 @@ public class PostServiceImplTest {
                 .content("New")
                 .build();
 
-        when(entityManager.find(Post.class, 1L)).thenReturn(existingPost);
+        when(entityManager.find(Post.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(existingPost);
         when(postMapper.toDTO(existingPost)).thenReturn(PostDTO.builder().id(1L).content("New").build());
 
         PostDTO updated = postService.updatePost(1L, updateDto);
 
         assertEquals("New", existingPost.getContent());
+        assertEquals(1, existingPost.getContentVersion());
         assertEquals(1L, updated.getId());
         assertEquals("New", updated.getContent());
         verify(entityManager).merge(existingPost);
-
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ContentChangedEvent changed
+                && changed.getType() == ContentType.POST && changed.getId() == 1L
+                && "Old".equals(changed.getOldContent()) && "New".equals(changed.getNewContent())));
     }
 
     @Test
     void updatePost_notFound_throwsException() {
-        when(entityManager.find(Post.class, 1L)).thenReturn(null);
+        when(entityManager.find(Post.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(null);
         PostDTO updateDto = new PostDTO();
 
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> postService.updatePost(1L, updateDto));
@@ -280,12 +382,21 @@ public class PostServiceImplTest {
         Post post = new Post();
         post.setId(1L);
         post.setContent("Пост");
+        Comment comment = new Comment();
+        comment.setId(5L);
+        comment.setContent("Комментарий");
+        post.getComments().add(comment);
 
-        when(entityManager.find(Post.class, 1L)).thenReturn(post);
+        when(entityManager.find(Post.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(post);
 
         postService.deletePost(1L);
 
-        verify(entityManager).find(Post.class, 1L);
+        verify(entityManager).find(Post.class, 1L, LockModeType.PESSIMISTIC_WRITE);
         verify(entityManager).remove(post);
+        // Из индекса убираются и пост, и удаленные каскадом комментарии
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ContentChangedEvent changed
+                && changed.getType() == ContentType.POST && changed.getId() == 1L && changed.getNewContent() == null));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ContentChangedEvent changed
+                && changed.getType() == ContentType.COMMENT && changed.getId() == 5L && changed.getNewContent() == null));
     }
 }
@@ -0,0 +1,132 @@
+package org.example.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.example.dto.SuggestionDTO;
+import org.example.dto.UserDTO;
+import org.example.entity.User;
+import org.example.event.FriendRequestSentEvent;
+import org.example.event.FriendshipChangedEvent;
+import org.example.graph.FriendGraph;
+import org.example.mapper.UserMapper;
+import org.example.service.impl.SuggestionServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SuggestionServiceImplTest {
+
+    private EntityManager entityManager;
+    private FriendGraph friendGraph;
+    private Query relatedQuery;
+    private Query communityQuery;
+    private SuggestionServiceImpl suggestionService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        Query graphQuery = mock(Query.class, RETURNS_SELF);
+        when(graphQuery.getResultList()).thenReturn(List.of());
+        when(entityManager.createNativeQuery(contains("status = 'ACCEPTED'"))).thenReturn(graphQuery);
+        friendGraph = new FriendGraph(entityManager);
+        friendGraph.load();
+
+        // Пользователь 1 дружит с 2 и 3; 10 - друг обоих, 11 и 12 - друзья только 2
+        friendGraph.addFriendship(1L, 2L);
+        friendGraph.addFriendship(1L, 3L);
+        friendGraph.addFriendship(2L, 10L);
+        friendGraph.addFriendship(3L, 10L);
+        friendGraph.addFriendship(2L, 11L);
+        friendGraph.addFriendship(2L, 12L);
+
+        relatedQuery = mock(Query.class);
+        when(entityManager.createNativeQuery(contains("FROM friendships"))).thenReturn(relatedQuery);
+        when(relatedQuery.setParameter(anyString(), any())).thenReturn(relatedQuery);
+        when(relatedQuery.getResultList()).thenReturn(List.of());
+
+        // У 12 два общих сообщества с пользователем 1
+        communityQuery = mock(Query.class);
+        when(entityManager.createNativeQuery(contains("community_members"))).thenReturn(communityQuery);
+        when(communityQuery.setParameter(anyString(), any())).thenReturn(communityQuery);
+        when(communityQuery.getResultList()).thenReturn(List.<Object[]>of(new Object[]{12L, 2L}));
+
+        TypedQuery<User> userQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(User.class))).thenReturn(userQuery);
+        when(userQuery.setParameter(anyString(), any())).thenReturn(userQuery);
+        when(userQuery.getResultList()).thenAnswer(invocation -> List.of(
+                User.builder().id(10L).build(), User.builder().id(11L).build(), User.builder().id(12L).build()));
+
+        UserMapper userMapper = mock(UserMapper.class);
+        when(userMapper.toDTO(any(User.class))).thenAnswer(invocation ->
+                UserDTO.builder().id(((User) invocation.getArgument(0)).getId()).build());
+
+        suggestionService = new SuggestionServiceImpl(entityManager, friendGraph, userMapper, 2, 1000, 100, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        suggestionService.shutdown();
+    }
+
+    private static List<Long> ids(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(suggestion -> suggestion.getUser().getId()).toList();
+    }
+
+    @Test
+    void getSuggestions_scoresMutualFriendsAndSharedCommunities() {
+        List<SuggestionDTO> result = suggestionService.getSuggestions(1L, null);
+
+        // 10: 2 общих друга = 4; 12: 1 общий друг и 2 сообщества = 4, при равенстве меньший id выше; 11: 2
+        assertEquals(List.of(10L, 12L, 11L), ids(result));
+        assertEquals(2, result.get(0).getMutualFriends());
+        assertEquals(2, result.get(1).getSharedCommunities());
+    }
+
+    @Test
+    void getSuggestions_excludesPendingRequests() {
+        when(relatedQuery.getResultList()).thenReturn(List.of(10L));
+
+        assertEquals(List.of(12L, 11L), ids(suggestionService.getSuggestions(1L, null)));
+    }
+
+    @Test
+    void getSuggestions_cachedUntilGraphChanges() {
+        suggestionService.getSuggestions(1L, null);
+        suggestionService.getSuggestions(1L, 1);
+        verify(relatedQuery, times(1)).getResultList();
+
+        // Запрос в друзья от 1 к 11: 11 исключается из рекомендаций
+        suggestionService.onFriendRequestSent(new FriendRequestSentEvent(1L, 11L));
+        when(relatedQuery.getResultList()).thenReturn(List.of(11L));
+
+        assertEquals(List.of(10L, 12L), ids(suggestionService.getSuggestions(1L, null)));
+        verify(relatedQuery, times(2)).getResultList();
+    }
+
+    @Test
+    void onFriendshipChanged_invalidatesFriendsOfBothUsers() {
+        suggestionService.getSuggestions(1L, null);
+
+        // Новая дружба 2 и 20 меняет второй круг пользователя 1, друга пользователя 2
+        friendGraph.addFriendship(2L, 20L);
+        suggestionService.onFriendshipChanged(new FriendshipChangedEvent(2L, 20L, true));
+        suggestionService.getSuggestions(1L, null);
+
+        verify(relatedQuery, times(2)).getResultList();
+    }
+
+    @Test
+    void getSuggestions_noFriends_returnsEmptyWithoutUserQuery() {
+        assertTrue(suggestionService.getSuggestions(42L, null).isEmpty());
+        verify(entityManager, never()).createQuery(anyString(), eq(User.class));
+        verify(communityQuery, never()).getResultList();
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.example.dto.PageDTO;
+import org.example.dto.PostDTO;
+import org.example.event.PostCreatedEvent;
+import org.example.membership.CommunityMembershipIndex;
+import org.example.pagination.Pagination;
+import org.example.service.impl.TimelineServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TimelineServiceImplTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 10, 20, 12, 0);
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private CommunityMembershipIndex membershipIndex;
+
+
+    private TimelineServiceImpl timelineService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Порог раскладки - 2 получателя
+        timelineService = new TimelineServiceImpl(entityManager, membershipIndex, 2);
+    }
+
+    private Query nativeQuery(String sqlFragment) {
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(contains(sqlFragment))).thenReturn(query);
+        return query;
+    }
+
+    @Test
+    void fanOut_userPost_insertsForFriends() {
+        Query authorInsert = nativeQuery("VALUES (:userId, :postId, :createdAt)");
+        Query count = nativeQuery("SELECT COUNT(*) FROM friendships");
+        Query friendsInsert = nativeQuery("CASE WHEN f.requester_id = :authorId");
+        when(count.getSingleResult()).thenReturn(2L);
+        when(friendsInsert.executeUpdate()).thenReturn(2);
+
+        timelineService.fanOut(new PostCreatedEvent(10L, 1L, null, NOW));
+
+        verify(authorInsert).setParameter("userId", 1L);
+        verify(authorInsert).executeUpdate();
+        verify(friendsInsert).setParameter("postId", 10L);
+        verify(friendsInsert).executeUpdate();
+        verify(entityManager, never()).createNativeQuery(contains("timeline_pull_sources"));
+    }
+
+    @Test
+    void fanOut_userPostAboveThreshold_registersPullSource() {
+        nativeQuery("VALUES (:userId, :postId, :createdAt)");
+        Query count = nativeQuery("SELECT COUNT(*) FROM friendships");
+        Query pullSource = nativeQuery("INSERT INTO timeline_pull_sources");
+        when(count.getSingleResult()).thenReturn(3L);
+
+        timelineService.fanOut(new PostCreatedEvent(10L, 1L, null, NOW));
+
+        verify(pullSource).setParameter("sourceType", "AUTHOR");
+        verify(pullSource).setParameter("sourceId", 1L);
+        verify(pullSource).executeUpdate();
+        verify(entityManager, never()).createNativeQuery(contains("CASE WHEN f.requester_id = :authorId"));
+    }
+
+    @Test
+    void fanOut_communityPost_insertsForMembers() {
+        nativeQuery("VALUES (:userId, :postId, :createdAt)");
+        Query membersInsert = nativeQuery("FROM community_members cm");
+        when(membershipIndex.memberCount(5L)).thenReturn(1L);
+
+        timelineService.fanOut(new PostCreatedEvent(10L, 1L, 5L, NOW));
+
+        verify(membersInsert).setParameter("communityId", 5L);
+        verify(membersInsert).executeUpdate();
+        verify(entityManager, never()).createNativeQuery(contains("FROM friendships f"));
+    }
+
+    @Test
+    void getFeed_mergesPushedAndPulledPosts() {
+        Query entries = nativeQuery("FROM timeline_entries te");
+        when(entries.getResultList()).thenReturn(List.<Object[]>of(
+                new Object[]{3L, Timestamp.valueOf(NOW)},
+                new Object[]{1L, Timestamp.valueOf(NOW.minusMinutes(2))}));
+
+        Query sources = nativeQuery("FROM timeline_pull_sources ps");
+        when(sources.getResultList()).thenReturn(List.<Object[]>of(new Object[]{"AUTHOR", 7L}));
+
+        Query pulled = nativeQuery("WHERE p.author_id IN (:authorIds)");
+        when(pulled.getResultList()).thenReturn(List.<Object[]>of(new Object[]{2L, Timestamp.valueOf(NOW.minusMinutes(1))}));
+
+        PostDTO post1 = PostDTO.builder().id(1L).createAt(NOW.minusMinutes(2)).build();
+        PostDTO post2 = PostDTO.builder().id(2L).createAt(NOW.minusMinutes(1)).build();
+        PostDTO post3 = PostDTO.builder().id(3L).createAt(NOW).build();
+        TypedQuery<PostDTO> postsQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(PostDTO.class))).thenReturn(postsQuery);
+        when(postsQuery.setParameter(eq("ids"), any())).thenReturn(postsQuery);
+        when(postsQuery.getResultList()).thenReturn(List.of(post1, post2, post3));
+
+        PageDTO<PostDTO> result = timelineService.getFeed(1L, null, 2);
+
+        assertEquals(List.of(3L, 2L), result.getItems().stream().map(PostDTO::getId).toList());
+        assertEquals(Pagination.encode(post2.getCreateAt(), 2L), result.getNextCursor());
+        verify(entries).setParameter("userId", 1L);
+        verify(pulled).setParameter("authorIds", List.of(7L));
+    }
+
+    @Test
+    void getFeed_withoutPullSources_readsOnlyTimeline() {
+        Query entries = nativeQuery("FROM timeline_entries te");
+        when(entries.getResultList()).thenReturn(List.of());
+        Query sources = nativeQuery("FROM timeline_pull_sources ps");
+        when(sources.getResultList()).thenReturn(List.of());
+
+        PageDTO<PostDTO> result = timelineService.getFeed(1L, Pagination.encode(NOW, 5L), null);
+
+        assertTrue(result.getItems().isEmpty());
+        assertNull(result.getNextCursor());
+        verify(entries).setParameter("cursorCreatedAt", NOW);
+        verify(entries).setParameter("cursorId", 5L);
+        verify(entityManager, never()).createNativeQuery(contains("FROM posts p"));
+        verify(entityManager, never()).createQuery(anyString(), eq(PostDTO.class));
+    }
+}
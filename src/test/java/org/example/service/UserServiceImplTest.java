@@ -2,16 +2,22 @@ package org.example.service;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
+import org.example.dto.PageDTO;
 import org.example.dto.UserDTO;
 import org.example.entity.User;
+import org.example.event.UserRegisteredEvent;
 import org.example.mapper.UserMapper;
 import org.example.service.impl.UserServiceImpl;
+import org.example.pagination.Pagination;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 
@@ -27,13 +33,16 @@ public class UserServiceImplTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private UserServiceImpl userService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
         // Создаем сервис с EntityManager и маппером
-        userService = new UserServiceImpl(entityManager, userMapper);
+        userService = new UserServiceImpl(entityManager, userMapper, eventPublisher);
     }
 
     @Test
@@ -41,6 +50,7 @@ public class UserServiceImplTest {
         UserDTO inputDto = UserDTO.builder().firstName("Иван").build();
         User userEntity = new User();
         userEntity.setFirstName("Иван");
+        userEntity.setUsername("ivan");
         User savedUser = new User();
         savedUser.setId(1L);
         savedUser.setFirstName("Иван");
@@ -64,6 +74,8 @@ public class UserServiceImplTest {
         assertEquals(expectedDto.getFirstName(), result.getFirstName());
         verify(entityManager).persist(userEntity);
         verify(userMapper).toDTO(userEntity);
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof UserRegisteredEvent e
+                && e.getUserId().equals(1L) && "ivan".equals(e.getUsername())));
     }
 
     @Test
@@ -144,26 +156,97 @@ public class UserServiceImplTest {
 
     @Test
     void searchUser_success() {
-        TypedQuery<User> mockedQuery = mock(TypedQuery.class);
+        Query idQuery = mock(Query.class, RETURNS_SELF);
+        TypedQuery<User> usersQuery = mock(TypedQuery.class, RETURNS_SELF);
 
-        when(entityManager.createQuery(anyString(), eq(User.class))).thenReturn(mockedQuery);
-        when(mockedQuery.setParameter(anyInt(), any())).thenReturn(mockedQuery);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(List.of(1L, 2L, 3L));
+        when(entityManager.createQuery(anyString(), eq(User.class))).thenReturn(usersQuery);
 
         User user1 = new User();
         user1.setId(1L);
         User user2 = new User();
         user2.setId(2L);
 
-        when(mockedQuery.getResultList()).thenReturn(List.of(user1, user2));
+        when(usersQuery.getResultList()).thenReturn(List.of(user1, user2));
         when(userMapper.toDTO(user1)).thenReturn(UserDTO.builder().id(1L).build());
         when(userMapper.toDTO(user2)).thenReturn(UserDTO.builder().id(2L).build());
 
-        List<UserDTO> results = userService.searchUsers("Иван", null, null, null);
+        PageDTO<UserDTO> results = userService.searchUsers(" Иван ", null, null, null, false, null, 2);
+
+        assertEquals(1L, results.getItems().get(0).getId());
+        assertEquals(2L, results.getItems().get(1).getId());
+        assertEquals(2, results.getItems().size());
+        assertEquals(Pagination.encodeId(2L), results.getNextCursor());
+        verify(entityManager).createNativeQuery(
+                "SELECT u.id FROM users u WHERE u.id > :after AND lower(u.first_name) LIKE lower(:firstName) || '%' ORDER BY u.id LIMIT :limit");
+        verify(idQuery).setParameter("firstName", "Иван");
+        verify(idQuery).setParameter("after", 0L);
+        verify(idQuery).setParameter("limit", 3);
+        verify(usersQuery).setParameter("ids", List.of(1L, 2L));
+    }
+
+    @Test
+    void searchUser_emptyPage_skipsUserLoad() {
+        Query idQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(List.of());
+
+        PageDTO<UserDTO> results = userService.searchUsers(null, "Петров", 30, "MALE", false, Pagination.encodeId(10L), null);
+
+        assertTrue(results.getItems().isEmpty());
+        assertNull(results.getNextCursor());
+        verify(idQuery).setParameter("after", 10L);
+        verify(idQuery).setParameter("age", 30);
+        verify(idQuery).setParameter("gender", "MALE");
+        verify(entityManager, never()).createQuery(anyString(), eq(User.class));
+    }
+
+    @Test
+    void searchUser_prefixEscapesLikeWildcards() {
+        Query idQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(List.of());
+
+        userService.searchUsers("100%_", null, null, null, false, null, null);
+
+        verify(idQuery).setParameter("firstName", "100\\%\\_");
+    }
+
+    @Test
+    void searchUser_fuzzy_usesTrigramSimilarity() {
+        Query idQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(List.of());
+
+        userService.searchUsers(null, "Петорв", null, null, true, null, null);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager).createNativeQuery(sql.capture());
+        assertTrue(sql.getValue().contains("lower(u.last_name) % lower(:lastName)"));
+        assertFalse(sql.getValue().contains("LIKE"));
+        verify(idQuery).setParameter("lastName", "Петорв");
+    }
+
+    @Test
+    void searchUser_sameShape_reusesSqlString() {
+        Query idQuery = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(List.of());
+
+        userService.searchUsers("Иван", null, 20, null, false, null, null);
+        userService.searchUsers("Петр", null, 40, null, false, null, null);
 
-        assertEquals(1L, results.get(0).getId());
-        assertEquals(2L, results.get(1).getId());
-        assertEquals(2, results.size());
-        verify(entityManager).createQuery(startsWith("SELECT u FROM User u WHERE 1=1"), eq(User.class));
-        verify(mockedQuery).setParameter(eq(1), eq("Иван"));
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager, times(2)).createNativeQuery(sql.capture());
+        assertSame(sql.getAllValues().get(0), sql.getAllValues().get(1));
+    }
+
+    @Test
+    void searchUser_invalidGender_throwsException() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> userService.searchUsers(null, null, null, "UNKNOWN", false, null, null));
+        assertTrue(ex.getMessage().contains("Некорректный пол"));
+        verifyNoInteractions(entityManager);
     }
 }
@@ -0,0 +1,49 @@
+package org.example.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuggestionCacheTest {
+
+    private static final List<SuggestionServiceImpl.ScoredCandidate> RANKED =
+            List.of(new SuggestionServiceImpl.ScoredCandidate(10L, 2, 1));
+
+    @Test
+    void put_afterInvalidationOfSameUser_isDiscarded() {
+        SuggestionCache cache = new SuggestionCache(100, 60_000);
+        long generation = cache.generation(1L);
+
+        cache.invalidate(List.of(1L));
+        cache.put(1L, RANKED, generation, 0);
+
+        assertNull(cache.get(1L, 0));
+    }
+
+    @Test
+    void put_afterInvalidationOfOtherUsers_isCached() {
+        SuggestionCache cache = new SuggestionCache(100, 60_000);
+        long generation = cache.generation(1L);
+
+        // Запросы дружбы между другими пользователями не мешают кэшировать пользователя 1
+        cache.invalidate(List.of(2L, 3L));
+        cache.invalidate(List.of(4L, 5L));
+        cache.put(1L, RANKED, generation, 0);
+
+        assertEquals(RANKED, cache.get(1L, 0));
+    }
+
+    @Test
+    void invalidate_removesOnlyGivenUsers() {
+        SuggestionCache cache = new SuggestionCache(100, 60_000);
+        cache.put(1L, RANKED, cache.generation(1L), 0);
+        cache.put(2L, RANKED, cache.generation(2L), 0);
+
+        cache.invalidate(List.of(2L));
+
+        assertEquals(RANKED, cache.get(1L, 0));
+        assertNull(cache.get(2L, 0));
+    }
+}
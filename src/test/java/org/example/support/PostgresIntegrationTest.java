@@ -0,0 +1,55 @@
+package org.example.support;
+
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+// Интеграционные тесты на настоящем PostgreSQL: контейнер Testcontainers либо уже запущенная
+// пустая база (-Dquery-plan.jdbc-url=...). Без Docker и без адреса базы тесты пропускаются.
+// Контейнер общий для всех наследников и живет до конца JVM (вместе с закэшированным контекстом Spring).
+// @EnabledIf не наследуется, поэтому наследники объявляют его сами: @EnabledIf(DATABASE_AVAILABLE)
+@SpringBootTest
+@Import(SqlStatementRecorder.Config.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class PostgresIntegrationTest {
+
+    public static final String DATABASE_AVAILABLE = "org.example.support.PostgresIntegrationTest#databaseAvailable";
+
+    private static final String JDBC_URL_PROPERTY = "query-plan.jdbc-url";
+
+    private static PostgreSQLContainer<?> postgres;
+
+    public static boolean databaseAvailable() {
+        return System.getProperty(JDBC_URL_PROPERTY) != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        // Снимок поискового индекса тестового контекста не должен попадать в рабочий каталог приложения
+        registry.add("search.index.snapshot-path", () -> "target/test-search-index.snapshot");
+        String url = System.getProperty(JDBC_URL_PROPERTY);
+        if (url != null) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> System.getProperty("query-plan.username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("query-plan.password", "postgres"));
+            return;
+        }
+        if (postgres == null) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+        }
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    protected static final String TRUNCATE_ALL = """
+            TRUNCATE users, roles, user_roles, communities, community_members, posts, comments,
+                     chats, chat_participants, messages, message_events, friendships, timeline_entries, timeline_pull_sources
+            RESTART IDENTITY CASCADE
+            """;
+}
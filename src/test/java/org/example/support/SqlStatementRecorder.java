@@ -0,0 +1,86 @@
+package org.example.support;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+// Запоминает SQL, который приложение подготавливает через DataSource.
+// Подключается в интеграционных тестах через @Import(SqlStatementRecorder.Config.class)
+public class SqlStatementRecorder {
+
+    private final List<String> statements = new ArrayList<>();
+
+    public synchronized void clear() {
+        statements.clear();
+    }
+
+    public synchronized List<String> getStatements() {
+        return List.copyOf(statements);
+    }
+
+    // Только запросы на чтение
+    public List<String> getSelects() {
+        return getStatements().stream()
+                .filter(sql -> sql.stripLeading().regionMatches(true, 0, "select", 0, 6))
+                .toList();
+    }
+
+    private synchronized void record(String sql) {
+        statements.add(sql);
+    }
+
+    DataSource wrap(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    return result instanceof Connection connection ? wrap(connection) : result;
+                });
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String sql) {
+                        record(sql);
+                    }
+                    return invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @TestConfiguration
+    public static class Config {
+
+        @Bean
+        public SqlStatementRecorder sqlStatementRecorder() {
+            return new SqlStatementRecorder();
+        }
+
+        @Bean
+        public static BeanPostProcessor sqlStatementRecorderPostProcessor(
+                ObjectProvider<SqlStatementRecorder> recorder) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? recorder.getObject().wrap(dataSource) : bean;
+                }
+            };
+        }
+    }
+}
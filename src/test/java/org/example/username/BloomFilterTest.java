@@ -0,0 +1,62 @@
+package org.example.username;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    void addedValues_areAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user_" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user_" + i));
+        }
+        assertEquals(10_000, filter.insertions());
+    }
+
+    @Test
+    void falsePositiveRate_staysNearConfiguredAtCapacity() {
+        BloomFilter filter = new BloomFilter(50_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.add("user_" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("free_" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "ложных срабатываний: " + falsePositives);
+    }
+
+    @Test
+    void emptyFilter_containsNothing() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        assertFalse(filter.mightContain("ivan"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    void sizing_followsCapacityAndRate() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        // ~9.6 бит и 7 хешей на элемент при 1%
+        assertTrue(filter.bitCount() >= 9_585_059L && filter.bitCount() < 9_585_059L + 64);
+        assertEquals(7, filter.hashCount());
+        assertEquals(1_000_000, filter.capacity());
+    }
+
+    @Test
+    void invalidParameters_throwException() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.username;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.example.event.UserRegisteredEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UsernameFilterTest {
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final Query countQuery = mock(Query.class);
+    private final Query usernamesQuery = mock(Query.class, RETURNS_SELF);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    // Задачи перестроения не выполняются сами: тест запускает их явно
+    private final ExecutorService rebuildExecutor = mock(ExecutorService.class);
+
+    private UsernameFilter loadedFilter(long count, List<Object[]> rows) {
+        when(entityManager.createNativeQuery(anyString())).thenReturn(usernamesQuery);
+        when(entityManager.createNativeQuery(startsWith("SELECT count(*)"))).thenReturn(countQuery);
+        when(countQuery.getSingleResult()).thenReturn(count);
+        when(usernamesQuery.getResultList()).thenReturn(new ArrayList<>(rows));
+        UsernameFilter filter = new UsernameFilter(entityManager, transactionManager, rebuildExecutor);
+        filter.load();
+        return filter;
+    }
+
+    @Test
+    void load_marksExistingUsernamesAsTaken() {
+        UsernameFilter filter = loadedFilter(2, List.of(
+                new Object[]{1L, "ivan"},
+                new Object[]{2L, "petr"}));
+
+        assertTrue(filter.mightBeTaken("ivan"));
+        assertTrue(filter.mightBeTaken("petr"));
+        assertFalse(filter.mightBeTaken("anna"));
+        verify(usernamesQuery).setParameter("after", 0L);
+    }
+
+    @Test
+    void onUserRegistered_addsUsername() {
+        UsernameFilter filter = loadedFilter(0, List.of());
+
+        filter.onUserRegistered(new UserRegisteredEvent(5L, "anna"));
+        filter.onUserRegistered(new UserRegisteredEvent(6L, null));
+
+        assertTrue(filter.mightBeTaken("anna"));
+    }
+
+    @Test
+    void onUserRegistered_overCapacity_rebuildsInBackgroundAndReplaysNewUsernames() {
+        UsernameFilter filter = loadedFilter(0, List.of());
+        clearInvocations(entityManager);
+        when(countQuery.getSingleResult()).thenReturn(UsernameFilter.MIN_CAPACITY + 1);
+        when(usernamesQuery.getResultList()).thenReturn(new ArrayList<Object[]>(List.<Object[]>of(new Object[]{1L, "user_0"})));
+
+        for (long i = 0; i <= UsernameFilter.MIN_CAPACITY; i++) {
+            filter.onUserRegistered(new UserRegisteredEvent(i + 1, "user_" + i));
+        }
+
+        // Регистрация, заполнившая фильтр, не читает users сама - перестроение отдано в свой поток
+        ArgumentCaptor<Runnable> rebuild = ArgumentCaptor.forClass(Runnable.class);
+        verify(rebuildExecutor).execute(rebuild.capture());
+        verify(entityManager, never()).createNativeQuery(anyString());
+
+        // Логин, зарегистрированный во время перестроения, есть и в текущем фильтре, и в новом
+        filter.onUserRegistered(new UserRegisteredEvent(200_000L, "late_user"));
+        assertTrue(filter.mightBeTaken("late_user"));
+        verify(rebuildExecutor, times(1)).execute(any(Runnable.class));
+
+        rebuild.getValue().run();
+
+        verify(entityManager).createNativeQuery(startsWith("SELECT count(*)"));
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        assertTrue(filter.mightBeTaken("user_0"));
+        assertTrue(filter.mightBeTaken("late_user"));
+        assertFalse(filter.mightBeTaken("user_50000"));
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.dto.MessageDTO;
+import org.example.event.MessageSentEvent;
+import org.example.security.JwtHandshakeInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MessageHubTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private static WebSocketSession session(String id, Long userId) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(JwtHandshakeInterceptor.USER_ID_ATTRIBUTE, userId);
+        when(session.getId()).thenReturn(id);
+        when(session.getAttributes()).thenReturn(attributes);
+        return session;
+    }
+
+    private static MessageSentEvent event(long messageId, Long... recipientIds) {
+        MessageDTO message = MessageDTO.builder().id(messageId).content("Привет").chatId(1L).senderId(1L).build();
+        return new MessageSentEvent(message, List.of(recipientIds));
+    }
+
+    @Test
+    void onMessageSent_pushesToAllSessionsOfRecipients() throws Exception {
+        MessageHub hub = new MessageHub(OBJECT_MAPPER, Runnable::run, 16, 10_000);
+        WebSocketSession phone = session("s1", 2L);
+        WebSocketSession laptop = session("s2", 2L);
+        WebSocketSession stranger = session("s3", 3L);
+        hub.afterConnectionEstablished(phone);
+        hub.afterConnectionEstablished(laptop);
+        hub.afterConnectionEstablished(stranger);
+
+        hub.onMessageSent(event(7L, 1L, 2L));
+
+        verify(phone).sendMessage(argThat(m -> ((TextMessage) m).getPayload().contains("\"id\":7")));
+        verify(laptop).sendMessage(any(TextMessage.class));
+        verify(stranger, never()).sendMessage(any());
+    }
+
+    @Test
+    void deliveryPool_stuckSessionDoesNotBlockOtherSessions() throws Exception {
+        // Два потока доставки: один занят зависшей отправкой, второй доставляет остальным
+        MessageHub hub = new MessageHub(OBJECT_MAPPER, 2, 16, 10_000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        WebSocketSession stuck = session("s1", 2L);
+        WebSocketSession healthy = session("s2", 3L);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(stuck).sendMessage(any());
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            delivered.countDown();
+            return null;
+        }).when(healthy).sendMessage(any());
+        hub.afterConnectionEstablished(stuck);
+        hub.afterConnectionEstablished(healthy);
+
+        try {
+            hub.onMessageSent(event(7L, 2L, 3L));
+
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertTrue(threads.get(0).startsWith("ws-delivery-"));
+        } finally {
+            release.countDown();
+            hub.shutdown();
+        }
+    }
+
+    @Test
+    void afterConnectionClosed_stopsDelivery() throws Exception {
+        MessageHub hub = new MessageHub(OBJECT_MAPPER, Runnable::run, 16, 10_000);
+        WebSocketSession session = session("s1", 2L);
+        hub.afterConnectionEstablished(session);
+
+        hub.afterConnectionClosed(session, CloseStatus.NORMAL);
+        hub.onMessageSent(event(7L, 2L));
+
+        assertEquals(0, hub.sessionCount(2L));
+        verify(session, never()).sendMessage(any());
+    }
+
+    @Test
+    void fullQueue_evictsSlowConsumer() throws Exception {
+        // Отправка в сокет не выполняется: клиент не читает, очередь копится
+        List<Runnable> pending = new ArrayList<>();
+        Executor stalled = pending::add;
+        MessageHub hub = new MessageHub(OBJECT_MAPPER, stalled, 2, 10_000);
+        WebSocketSession slow = session("s1", 2L);
+        WebSocketSession fast = session("s2", 3L);
+        hub.afterConnectionEstablished(slow);
+        hub.afterConnectionEstablished(fast);
+
+        hub.onMessageSent(event(1L, 2L));
+        hub.onMessageSent(event(2L, 2L));
+        assertEquals(1, hub.sessionCount(2L));
+
+        hub.onMessageSent(event(3L, 2L, 3L));
+
+        verify(slow).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, hub.sessionCount(2L));
+        assertEquals(1, hub.sessionCount(3L));
+        // Один поток отправки на сессию, сколько бы сообщений ни пришло
+        assertEquals(2, pending.size());
+    }
+
+    @Test
+    void sendFailure_evictsSession() throws Exception {
+        MessageHub hub = new MessageHub(OBJECT_MAPPER, Runnable::run, 16, 10_000);
+        WebSocketSession broken = session("s1", 2L);
+        doThrow(new IOException("Broken pipe")).when(broken).sendMessage(any());
+        hub.afterConnectionEstablished(broken);
+
+        hub.onMessageSent(event(1L, 2L));
+
+        verify(broken).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, hub.sessionCount(2L));
+    }
+
+    @Test
+    void messagesAreDeliveredInOrder() throws Exception {
+        List<Runnable> pending = new ArrayList<>();
+        MessageHub hub = new MessageHub(OBJECT_MAPPER, pending::add, 16, 10_000);
+        WebSocketSession session = session("s1", 2L);
+        List<String> received = new ArrayList<>();
+        doAnswer(invocation -> received.add(((TextMessage) invocation.getArgument(0)).getPayload()))
+                .when(session).sendMessage(any());
+        hub.afterConnectionEstablished(session);
+
+        for (long id = 1; id <= 3; id++) {
+            hub.onMessageSent(event(id, 2L));
+        }
+        pending.forEach(Runnable::run);
+
+        assertEquals(3, received.size());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(received.get(i).contains("\"id\":" + (i + 1)));
+        }
+    }
+}